@@ -42,7 +42,8 @@ class Append implements OptionHandlerFactory {
 				f.getType() == List.class ||
 				f.getType() == ArrayList.class ||
 				f.getType() == LinkedList.class ||
-				f.getType() == Set.class) {
+				f.getType() == Set.class ||
+				f.getType() == CompactStringList.class) {
 
 			int numArgs = opt.nargs();
 			if ( numArgs == -1 )
@@ -52,7 +53,12 @@ class Append implements OptionHandlerFactory {
 			
 			Class<?> innerType;
 			
-			if ( numArgs > 1 ) {
+			if ( f.getType() == CompactStringList.class ) {
+				// a compact list only holds strings, one per occurrence
+				if ( numArgs > 1 )
+					throw new IllegalArgumentException("CompactStringList can only append a single argument");
+				innerType = String.class;
+			} else if ( numArgs > 1 ) {
 				// appending a collection
 				Type type = ((ParameterizedType) f.getGenericType()).getActualTypeArguments()[0]; // a collection only has one type (hence the [0])
 				// note(pfelt): this code appears to be intended to get the class value from something  
@@ -81,7 +87,9 @@ class Append implements OptionHandlerFactory {
 
 			// get a factory
 			CollectionFactory<Object> factory;
-			if (f.getType().isInstance(Set.class)) {
+			if (f.getType() == CompactStringList.class) {
+				factory = new CollectionFactories.CompactStringListFactory<Object>();
+			} else if (f.getType().isInstance(Set.class)) {
 				factory = new CollectionFactories.HashSetFactory<Object>();
 			} else if (f.getType().isInstance(LinkedList.class)){
 				factory = new CollectionFactories.LinkedListFactory<Object>();
@@ -20,24 +20,33 @@ import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 
 import edu.byu.nlp.util.Strings;
-import edu.byu.nlp.util.TrieMap;
+import edu.byu.nlp.util.jargparser.annotations.Component;
 import edu.byu.nlp.util.jargparser.annotations.Description;
 import edu.byu.nlp.util.jargparser.annotations.Option;
 import edu.byu.nlp.util.jargparser.annotations.Options;
 import edu.byu.nlp.util.jargparser.annotations.ParserOptions;
 import edu.byu.nlp.util.jargparser.annotations.Usage;
 import edu.byu.nlp.util.jargparser.annotations.Version;
+import edu.byu.nlp.util.jargparser.arghandlers.BaseOption;
 import edu.byu.nlp.util.jargparser.arghandlers.SingleArgCallback;
 import edu.byu.nlp.util.jargparser.arghandlers.ZeroArgCallback;
 
@@ -212,11 +221,14 @@ public class ArgumentParser {
 	public static final boolean DEFAULT_ALLOW_INTERSPERSED_ARGS = true;
 	public static final boolean DEFAULT_ADD_HELP_OPTION = true;
 
-	// The reason for maintaining separate lists has to do with the behavior of collision detection
-	private Map<Character,OptionHandler> shortOpts;
-	private TrieMap<OptionHandler> longOpts;
-	
-	List<OptionHandler> mainGroup;
+	// the published options, replaced as a whole whenever options are added or removed
+	private volatile OptionRegistry registry;
+	// guards the following, which hold the changes of an update in progress
+	private final ReentrantLock registryLock = new ReentrantLock();
+	private OptionRegistry pending;
+	private int updateDepth;
+	// the namespace whose options are being added; null when adding the parser's own options
+	private Namespace binding;
 	
 	private String usage;
 	private String version;
@@ -228,7 +240,27 @@ public class ArgumentParser {
 	private boolean allowInterspersedArgs;
 	private int numPos;
 	private Map<String,OptionHandlerFactory> actionMap;
+	// actions not in actionMap that plugins provide, looked up once per name
+	private final ConcurrentHashMap<String, OptionHandlerFactory> pluginActions = new ConcurrentHashMap<String, OptionHandlerFactory>();
 	private boolean exitOnError = true;
+	private ParseLimits limits = new ParseLimits();
+	// creates the target of each parse; null if options store into the objects they were added with
+	private TargetFactory<?> targetFactory;
+	private Executor callbackExecutor;
+	private boolean transactional;
+	private boolean completionEnabled;
+	private volatile OptionTelemetry telemetry;
+	private volatile ParseCache parseCache;
+	private Map<String,OptionValidator> validatorMap;
+	private ForkJoinPool validationPool;
+	
+	// the pool shared by all parsers for parallel work, created when first needed
+	private static class SharedPool {
+		static final ForkJoinPool POOL = new ForkJoinPool();
+	}
+	
+	// error messages longer than this are truncated, e.g. when they echo a huge argument
+	private static final int MAX_ERROR_LENGTH = 1024;
 	
 	/**
 	 * Instantiates a new instance of the option parser with no version and the default help options.
@@ -285,6 +317,11 @@ public class ArgumentParser {
 	 * additional options are set. All variables and methods annotated with
 	 * <code>Option</code> are automatically added as options.
 	 * 
+	 * <p>If the class is annotated with <code>@ParserOptions(newTargetPerParse=true)</code>,
+	 * instance variables and methods are used as well, and each parse stores into
+	 * a new instance created with the class's no-argument constructor, as if by
+	 * {@link #ArgumentParser(Class, TargetFactory)}.</p>
+	 * 
 	 * @param optObject the object to use for setting options
 	 * 
 	 * @see #addArguments(Object)
@@ -294,7 +331,43 @@ public class ArgumentParser {
 	 * @see #setAllowInterspersedArgs(boolean)
 	 */
 	public ArgumentParser(Class<?> cls) {
-		init(cls, null);
+		ParserOptions parserOpts = cls.getAnnotation(ParserOptions.class);
+		if (parserOpts != null && parserOpts.newTargetPerParse()) {
+			this.targetFactory = new TargetFactories.ConstructorFactory<Object>(cls);
+			init(cls, targetFactory.newInstance());
+		} else {
+			init(cls, null);
+		}
+	}
+	
+	/**
+	 * Instantiates a new instance of the option parser whose parses each store
+	 * into a new instance of the provided class, created by <code>targetFactory</code>.
+	 * The new instance is available from {@link ArgumentValues#getTarget()}.
+	 * Since parses share no instances, they may run concurrently.
+	 * 
+	 * <p>The class is inspected as by {@link #ArgumentParser(Object)}. One instance
+	 * is created immediately; it is never stored into, but provides the
+	 * defaults shown in the help message.</p>
+	 * 
+	 * @param cls			the class to inspect for options
+	 * @param targetFactory	creates the target of each parse
+	 * 
+	 * @see TargetFactories.ConstructorFactory
+	 */
+	public <T> ArgumentParser(Class<T> cls, TargetFactory<? extends T> targetFactory) {
+		this.targetFactory = targetFactory;
+		init(cls, targetFactory.newInstance());
+	}
+	
+	/**
+	 * Instantiates a parser as {@link #ArgumentParser(Class, TargetFactory)} does,
+	 * inspecting the class of the instance created immediately.
+	 */
+	ArgumentParser(TargetFactory<?> targetFactory) {
+		this.targetFactory = targetFactory;
+		Object prototype = targetFactory.newInstance();
+		init(prototype.getClass(), prototype);
 	}
 	
 	/**
@@ -305,6 +378,166 @@ public class ArgumentParser {
 		this.exitOnError=exitOnError;
 	}
 	
+	/**
+	 * @return true if the program exits when a bad argument is encountered
+	 * 
+	 * @see #setExitOnError(boolean)
+	 */
+	public boolean isExitOnError() {
+		return exitOnError;
+	}
+	
+	/**
+	 * Gets the limits on the resources used by a single parse.
+	 * 
+	 * @return the limits; never null
+	 * 
+	 * @see #setLimits(ParseLimits)
+	 */
+	public ParseLimits getLimits() {
+		return limits;
+	}
+	
+	/**
+	 * Sets the limits on the resources used by a single parse,
+	 * e.g. when parsing command-lines from untrusted sources.
+	 * 
+	 * @param limits the limits to enforce
+	 * 
+	 * @see ParseLimits
+	 */
+	public void setLimits(ParseLimits limits) {
+		if (limits == null)
+			throw new IllegalArgumentException("limits cannot be null");
+		this.limits = limits;
+	}
+	
+	/**
+	 * Gets the executor on which callbacks run.
+	 * 
+	 * @return the executor; null if callbacks run as they are parsed
+	 * 
+	 * @see #setCallbackExecutor(Executor)
+	 */
+	public Executor getCallbackExecutor() {
+		return callbackExecutor;
+	}
+	
+	/**
+	 * Sets the executor on which callbacks run. By default (null), callbacks run
+	 * one after another as they are parsed. Otherwise, callback methods with zero or
+	 * one argument are recorded and, once all of the arguments have been parsed,
+	 * run on the executor, concurrently unless ordered by the <code>after</code>
+	 * attribute of <code>@Option</code>. Repeated occurrences of an option run in
+	 * order. Callbacks taking the <code>ParserState</code> still run as they are
+	 * parsed, since they may consume arguments.
+	 * 
+	 * <p>Parsing returns without waiting for the callbacks; <code>ArgumentValues.get()</code>
+	 * waits for them to finish.</p>
+	 * 
+	 * @param callbackExecutor the executor; null to run callbacks as they are parsed
+	 * 
+	 * @see Option#after()
+	 * @see ArgumentValues#get()
+	 */
+	public void setCallbackExecutor(Executor callbackExecutor) {
+		this.callbackExecutor = callbackExecutor;
+	}
+	
+	/**
+	 * @return true if values are only stored once a parse succeeds
+	 * 
+	 * @see #setTransactional(boolean)
+	 */
+	public boolean isTransactional() {
+		return transactional;
+	}
+	
+	/**
+	 * Determines whether values are stored as each option is parsed (default) or
+	 * staged and stored together once the whole parse, including validation,
+	 * succeeds. A transactional parse that fails leaves its target untouched.
+	 * Callbacks that run while parsing see the values stored so far through
+	 * <code>ParserState.getValue</code>, but not in the target.
+	 * 
+	 * @param transactional true to store values only once a parse succeeds
+	 * 
+	 * @see StagedValues
+	 */
+	public void setTransactional(boolean transactional) {
+		this.transactional = transactional;
+	}
+	
+	/**
+	 * @return the cache of parses; null if parses are not cached
+	 * 
+	 * @see #setParseCache(ParseCache)
+	 */
+	public ParseCache getParseCache() {
+		return parseCache;
+	}
+	
+	/**
+	 * Sets a cache of parses, for programs that parse the same command-lines
+	 * many times. A parse found in the cache performs the cached actions on its
+	 * target without tokenizing, converting or validating the arguments again.
+	 * Adding options, e.g. through {@link #addArguments(Object...)}, invalidates
+	 * the cached parses of this parser. Sessions and {@link #parseKnownArgs(String...)}
+	 * do not use the cache.
+	 * 
+	 * @param parseCache the cache; null to stop caching
+	 * 
+	 * @see ParseCache
+	 */
+	public void setParseCache(ParseCache parseCache) {
+		this.parseCache = parseCache;
+	}
+	
+	/**
+	 * @return true if {@link #parseArgs(String...)} answers shell completion queries
+	 * 
+	 * @see #setCompletionEnabled(boolean)
+	 */
+	public boolean isCompletionEnabled() {
+		return completionEnabled;
+	}
+	
+	/**
+	 * Determines whether {@link #parseArgs(String...)} answers shell completion
+	 * queries, i.e. arguments starting with {@link ShellCompletion#COMPLETE_OPTION},
+	 * by printing the candidates. It then exits if the parser exits on errors,
+	 * and throws an {@link ExitRequestedError} otherwise. {@link #tryParseArgs(String...)}
+	 * returns the candidates instead. Disabled by default.
+	 * 
+	 * @param completionEnabled true to answer completion queries
+	 * 
+	 * @see ShellCompletion
+	 */
+	public void setCompletionEnabled(boolean completionEnabled) {
+		this.completionEnabled = completionEnabled;
+	}
+	
+	/**
+	 * @return the telemetry that counts how options are used; null if none
+	 * 
+	 * @see #setTelemetry(OptionTelemetry)
+	 */
+	public OptionTelemetry getTelemetry() {
+		return telemetry;
+	}
+	
+	/**
+	 * Sets the telemetry that counts how options are used. By default (null),
+	 * nothing is counted.
+	 * 
+	 * @param telemetry the telemetry; null to stop counting
+	 * 
+	 * @see OptionTelemetry
+	 */
+	public void setTelemetry(OptionTelemetry telemetry) {
+		this.telemetry = telemetry;
+	}
+	
 	private void init(Class<?> cls, Object optObject) {
 		Description desc = cls.getAnnotation(Description.class);
 		Usage usage = cls.getAnnotation(Usage.class);
@@ -337,11 +570,10 @@ public class ArgumentParser {
 	}
 
 	private void init(String version, boolean addHelpOption) {
-		this.shortOpts = new HashMap<Character, OptionHandler>();
-		this.longOpts = new TrieMap<OptionHandler>();
-		this.mainGroup = new ArrayList<OptionHandler>();
+		this.registry = new OptionRegistry();
 		this.conflictHandler = new ErrorConflictHandler();
 		initActions();
+		initValidators();
 		this.numPos = -1;
 		this.allowInterspersedArgs = DEFAULT_ALLOW_INTERSPERSED_ARGS;
 		
@@ -353,8 +585,7 @@ public class ArgumentParser {
 		// Because we don't have a remove, we can't actually do this later;
 		// Furthermore, it appears that optparse doesn't allow you to set this later, either.
 		if ( version != null) {
-			// add version option
-			version = version.replaceAll("%prog", getProg());
+			// add version option; "%prog" is replaced when the version is printed
 			addVersionOption(version, "show program's version number and exit", "--version");
 		}
 	}
@@ -373,6 +604,20 @@ public class ArgumentParser {
 		actionMap.put(Option.COUNT,new Count());
 	}
 
+	/**
+	 * Initializes the map of standard validators
+	 */
+	private void initValidators() {
+		this.validatorMap = new HashMap<String,OptionValidator>();
+		validatorMap.put(Validators.EXISTS, new Validators.Exists());
+		validatorMap.put(Validators.FILE, new Validators.IsFile());
+		validatorMap.put(Validators.DIRECTORY, new Validators.IsDirectory());
+		validatorMap.put(Validators.READABLE, new Validators.Readable());
+		validatorMap.put(Validators.WRITABLE, new Validators.Writable());
+		validatorMap.put(Validators.MIN, new Validators.Min());
+		validatorMap.put(Validators.MAX, new Validators.Max());
+	}
+
 	/**
 	 * Adds a version option to the parser. Currently, this is only possible
 	 * through the constructor, in compliance to Python's optparse.
@@ -404,45 +649,525 @@ public class ArgumentParser {
 	 * @see ArgumentValues
 	 */
 	public ArgumentValues parseArgs(final String... args) {
-		final ParserState s = new ParserState(this, args);
+		if (completionEnabled && ShellCompletion.isQuery(args)) {
+			List<String> candidates = new ShellCompletion(this).candidates(args);
+			for (String candidate : candidates) {
+				System.out.println(candidate);
+			}
+			System.out.flush();
+			if (exitOnError)
+				System.exit(0);
+			throw ExitRequestedError.completion(this, Strings.join(candidates, "\n"));
+		}
+		return parse(new ParserState(this, new String[0], newTarget()), args);
+	}
+	
+	/**
+	 * Parses the specified arguments, skipping options the parser does not know
+	 * rather than reporting them as errors. The unknown options, and their
+	 * likely values, are recorded as ranges of indices into <code>args</code>
+	 * so that they can be forwarded without being copied or parsed again.
+	 * A group of short options is unknown if its first option is.
+	 * 
+	 * @param args the arguments to parse
+	 * @return the results of parsing and the unknown arguments
+	 * 
+	 * @see KnownArgs
+	 */
+	public KnownArgs parseKnownArgs(final String... args) {
+		ParserState s = new ParserState(this, new String[0], newTarget());
+		s.known = new KnownArgs(args);
+		s.known.setValues(parse(s, args));
+		return s.known;
+	}
+	
+	/**
+	 * Parses the specified arguments without printing or exiting, regardless of
+	 * {@link #setExitOnError(boolean)}. Requests for help or the version, and
+	 * errors, are returned rather than printed.
+	 * 
+	 * @param args the arguments to parse
+	 * @return how the parse ended
+	 * 
+	 * @see ParseOutcome
+	 */
+	public ParseOutcome tryParseArgs(final String... args) {
+		return tryParseArgs(args, null);
+	}
+	
+	/**
+	 * Parses the arguments as {@link #tryParseArgs(String...)} does, resolving
+	 * relative files, whether arguments of <code>File</code> options or
+	 * references to primitive arrays, against the specified directory.
+	 * 
+	 * @param args				the arguments to parse
+	 * @param workingDirectory	the directory to resolve relative files against; null for the JVM's working directory
+	 * @return how the parse ended
+	 */
+	ParseOutcome tryParseArgs(String[] args, File workingDirectory) {
+		if (completionEnabled && ShellCompletion.isQuery(args)) {
+			List<String> candidates = new ShellCompletion(this).candidates(args);
+			return ParseOutcome.failed(this, ExitRequestedError.completion(this, Strings.join(candidates, "\n")));
+		}
+		ParserState s = new ParserState(this, new String[0], newTarget());
+		s.quiet = true;
+		s.workingDirectory = workingDirectory;
+		try {
+			return ParseOutcome.parsed(this, parse(s, args));
+		} catch (IllegalArgumentException e) {
+			return ParseOutcome.failed(this, e);
+		}
+	}
+	
+	/**
+	 * Parses many command-lines in parallel, each into a new object created by
+	 * <code>targetFactory</code>. Options added from an object of the same class
+	 * as the targets store into the target of each command-line rather than into
+	 * the object they were added with. Errors are reported in the results rather
+	 * than printed, and never cause the program to exit.
+	 * 
+	 * <p>Options must not be added to or removed from the parser while parsing.</p>
+	 * 
+	 * @param <T>			the type of the targets
+	 * @param argvs			the command-lines to parse
+	 * @param targetFactory	creates the target of each command-line
+	 * @return the result of each command-line, in the same order as <code>argvs</code>
+	 * 
+	 * @see ParseResult
+	 */
+	public <T> List<ParseResult<T>> parseAll(List<String[]> argvs, TargetFactory<T> targetFactory) {
+		return parseAll(argvs, targetFactory, null);
+	}
+	
+	/**
+	 * Parses many command-lines in parallel using the specified pool.
+	 * 
+	 * @param <T>			the type of the targets
+	 * @param argvs			the command-lines to parse
+	 * @param targetFactory	creates the target of each command-line
+	 * @param pool			the pool in which to parse; null to use the pool shared by all parsers
+	 * @return the result of each command-line, in the same order as <code>argvs</code>
+	 * 
+	 * @see #parseAll(List, TargetFactory)
+	 */
+	public <T> List<ParseResult<T>> parseAll(List<String[]> argvs, TargetFactory<T> targetFactory, ForkJoinPool pool) {
+		ParseAllTask<T> task = new ParseAllTask<T>(this, argvs.toArray(new String[argvs.size()][]), targetFactory);
+		orSharedPool(pool).invoke(task);
+		return Collections.unmodifiableList(Arrays.asList(task.results));
+	}
+	
+	/**
+	 * Checks and parses all of the arguments, starting from a new state.
+	 * 
+	 * @param s		the state of the parser, without any arguments
+	 * @param args	the arguments to parse
+	 * @return the results of parsing
+	 */
+	ArgumentValues parse(ParserState s, String[] args) {
+		checkArgs(s, args);
+		ParseCache cache = parseCache;
+		if (cache == null || s.known != null || s.workingDirectory != null) {
+			Collections.addAll(s.remainingArgs, args);
+			parseAvailable(s, true);
+			return complete(s);
+		}
 		
-		while(!s.remainingArgs.isEmpty()) {
-			String curArg = s.remainingArgs.getFirst();
-			if (isOpt(curArg)) { // this is an option
-				try {
-					if (curArg.equals("-")) { // bare -
-						// Do not discard the argument
-						break;									// Done!
-					} else if (curArg.equals("--")) { // bare --
-						s.remainingArgs.removeFirst();			// should be discarded
-						break;									// Done!
-					} else if (isLongOpt(curArg)) { // long option
-						parseLongOption(s);
-					} else { // short option(s)
-						parseShortOptions(s);
+		ParseCache.Entry entry = cache.get(s.options, args);
+		if (entry != null)
+			return replay(s, entry);
+		s.recorded = new ArrayList<ParseCache.Action>();
+		Collections.addAll(s.remainingArgs, args);
+		parseAvailable(s, true);
+		ArgumentValues values = complete(s);
+		if (s.recorded != null && s.command == null)
+			cache.put(s.options, args, s.recorded, s.posArgs);
+		return values;
+	}
+	
+	/**
+	 * Performs the actions of a cached parse, which has already been
+	 * tokenized, converted and validated.
+	 * 
+	 * @param s		the state of the parser, without any arguments
+	 * @param entry	the cached parse
+	 * @return the results of parsing
+	 */
+	private ArgumentValues replay(ParserState s, ParseCache.Entry entry) {
+		for (ParseCache.Action a : entry.actions) {
+			countOccurrence(a.opt, s);
+			perform(a.opt, a.optName, a.args == null ? null : a.args.clone(), s);
+		}
+		Collections.addAll(s.posArgs, entry.posArgs);
+		s.fromCache = true;
+		return complete(s);
+	}
+	
+	/**
+	 * @return a new target for a parse; null if this parser does not create targets
+	 */
+	Object newTarget() {
+		return targetFactory == null ? null : targetFactory.newInstance();
+	}
+	
+	/**
+	 * Restores every variable and property added as an option to the value it had
+	 * when the option was added, so that the objects can be parsed into again.
+	 * Collections are restored in place. Callbacks are not undone.
+	 * 
+	 * @see ParserPool
+	 */
+	public void reset() {
+		for (OptionRegistry options : withBoundNamespaces(currentOptions())) {
+			for (DefaultValue d : options.defaults) {
+				d.restore();
+			}
+		}
+	}
+	
+	/**
+	 * @return the registry followed by those of its namespaces, recursively, that have been bound
+	 */
+	private static List<OptionRegistry> withBoundNamespaces(OptionRegistry options) {
+		if (options.namespaces.isEmpty())
+			return Collections.singletonList(options);
+		List<OptionRegistry> all = new ArrayList<OptionRegistry>();
+		all.add(options);
+		for (int i = 0; i < all.size(); i++) {
+			for (Namespace ns : all.get(i).namespaces.values()) {
+				if (ns.isBound())
+					all.add(ns.options);
+			}
+		}
+		return all;
+	}
+	
+	/**
+	 * Finds a long option by its name or an unambiguous prefix of it. A name that
+	 * is not found and starts with a namespace, e.g. <code>encoder.layers</code>,
+	 * is looked up among the options of the namespace, binding it if necessary.
+	 * 
+	 * @param options	the options
+	 * @param optName	the name of the option, without the leading dashes
+	 * @return the full name of the option and its handler; null if there is no such option
+	 */
+	private static Entry<CharSequence, OptionHandler> findLongOpt(OptionRegistry options, String optName) {
+		Entry<CharSequence, OptionHandler> entry = options.longOpts.getEntryFromUnambiguousPrefix(optName);
+		if (entry != null || options.namespaces.isEmpty())
+			return entry;
+		int pos = optName.indexOf('.');
+		if (pos < 0)
+			return null;
+		Namespace ns = options.namespaces.get(optName.substring(0, pos));
+		if (ns == null)
+			return null;
+		String name = optName.substring(pos + 1);
+		OptionRegistry nsOptions = ns.options();
+		if (name.length() == 1 && nsOptions.shortOpts.containsKey(name.charAt(0)))	// a one-character field
+			return new AbstractMap.SimpleImmutableEntry<CharSequence, OptionHandler>(optName, nsOptions.shortOpts.get(name.charAt(0)));
+		entry = findLongOpt(nsOptions, name);
+		if (entry == null)
+			return null;
+		return new AbstractMap.SimpleImmutableEntry<CharSequence, OptionHandler>(ns.name + "." + entry.getKey(), entry.getValue());
+	}
+	
+	/**
+	 * Inspects the component of a namespace for options, which are kept in a
+	 * registry of their own rather than added to this parser's.
+	 * 
+	 * @return the options of the namespace
+	 */
+	OptionRegistry bind(Namespace ns) {
+		beginUpdate();
+		OptionRegistry outer = pending;
+		Namespace outerBinding = binding;
+		try {
+			if (ns.options == null) {
+				Object component = ns.getComponent();
+				pending = new OptionRegistry();
+				binding = ns;
+				addOptionsTo(component.getClass(), component);
+				ns.options = pending;
+			}
+			return ns.options;
+		} finally {
+			pending = outer;
+			binding = outerBinding;
+			endUpdate(false);
+		}
+	}
+	
+	/**
+	 * @return the namespaces of components, in the order they were added
+	 * 
+	 * @see Component
+	 */
+	public Set<String> getNamespaces() {
+		return Collections.unmodifiableSet(currentOptions().namespaces.keySet());
+	}
+	
+	/**
+	 * Gets the component of a namespace, creating it and inspecting it for options if necessary.
+	 * 
+	 * @param name the namespace, e.g. <code>encoder</code> or <code>encoder.attention</code>
+	 * @return the component; null if there is no such namespace
+	 * 
+	 * @see Component
+	 */
+	public Object getNamespace(String name) {
+		OptionRegistry options = currentOptions();
+		Namespace ns = null;
+		for (String part : name.split("\\.")) {
+			ns = options.namespaces.get(part);
+			if (ns == null)
+				return null;
+			options = ns.options();
+		}
+		return ns == null ? null : ns.getComponent();
+	}
+	
+	/**
+	 * Starts an incremental parse to which arguments are pushed as they arrive.
+	 * 
+	 * @return a new session for this parser
+	 * 
+	 * @see ParserSession
+	 */
+	public ParserSession newSession() {
+		return new ParserSession(this);
+	}
+	
+	/**
+	 * Parses as many of the remaining arguments as possible. Unless <code>finished</code> is true,
+	 * stops at an option whose arguments have not all arrived yet, leaving it at the front of
+	 * the remaining arguments so that parsing can resume once more arguments are added.
+	 * 
+	 * @param s			the state of the parser
+	 * @param finished	true if no more arguments will be added
+	 */
+	void parseAvailable(ParserState s, boolean finished) {
+		try {
+			while(!s.remainingArgs.isEmpty()) {
+				String curArg = s.remainingArgs.getFirst();
+				if (s.optionsEnded) {	// reached "-" or "--" or interspersed args disallowed
+					addPositionalArg(s);
+				} else if (isOpt(curArg)) { // this is an option
+					if (s.known != null && !isKnown(s, curArg)) {
+						skipUnknown(s);
+						continue;
 					}
-				} catch (Exception e) {
-					error(": error: option " + curArg + ": " + e.getMessage());
-					// not reached, we exit before this
+					if (!finished && s.remainingArgs.size() <= argsNeeded(s, curArg)) {
+						return;									// Wait for the option's arguments
+					}
+					try {
+						if (curArg.equals("-")) { // bare -
+							// Do not discard the argument
+							s.optionsEnded = true;					// Done!
+						} else if (curArg.equals("--")) { // bare --
+							s.remainingArgs.removeFirst();			// should be discarded
+							s.optionsEnded = true;					// Done!
+						} else if (isLongOpt(curArg)) { // long option
+							parseLongOption(s);
+						} else { // short option(s)
+							parseShortOptions(s);
+						}
+					} catch (ParseLimitError e) {
+						throw e;
+					} catch (ExitRequestedError e) {
+						throw e;
+					} catch (Exception e) {
+						error(s, ": error: option " + curArg + ": " + e.getMessage());
+						// not reached, we exit before this
+					}
+				} else if (allowInterspersedArgs){ // else, a positional arg
+					addPositionalArg(s);
+				} else {							// first non-option since interspersed arguments aren't allowed
+					s.optionsEnded = true;
 				}
-			} else if (allowInterspersedArgs){ // else, a positional arg
-				s.posArgs.add(s.remainingArgs.removeFirst());
-			} else {							// first non-option since interspersed arguments aren't allowed
-				break;
 			}
+		} catch (ParseLimitError e) {
+			limitExceeded(s, e);
 		}
-
-		// Add the remaining arguments (if there are any, e.g. reached "-" or "--" or interspersed args disallowed
-		while (!s.remainingArgs.isEmpty()) {
-			s.posArgs.add(s.remainingArgs.removeFirst());
+	}
+	
+	/**
+	 * @return true if the argument is "-", "--" or starts with an option of the parser
+	 */
+	private static boolean isKnown(ParserState s, String curArg) {
+		if (curArg.length() < 2 || curArg.equals("--"))
+			return true;
+		if (isLongOpt(curArg)) {
+			String optName = stripPrefix(curArg);
+			int pos = optName.indexOf('=');
+			return findLongOpt(s.options, pos > -1 ? optName.substring(0, pos) : optName) != null;
 		}
-		
+		return s.options.shortOpts.containsKey(curArg.charAt(1));
+	}
+	
+	/**
+	 * Records the unknown option at the front of the remaining arguments,
+	 * along with the argument that follows it, if that is likely its value.
+	 */
+	private static void skipUnknown(ParserState s) {
+		int start = s.known.getArgs().length - s.remainingArgs.size();
+		String curArg = s.remainingArgs.removeFirst();
+		int end = start + 1;
+		boolean attached = isLongOpt(curArg) ? curArg.indexOf('=') > -1 : curArg.length() > 2;
+		if (!attached && !s.remainingArgs.isEmpty() && !isOpt(s.remainingArgs.getFirst())) {
+			s.remainingArgs.removeFirst();
+			end++;
+		}
+		s.known.add(start, end);
+	}
+	
+	/**
+	 * Moves the next remaining argument to the positional arguments.
+	 * If the parser has sub-commands, the first positional argument names
+	 * the command and every argument after it belongs to the command.
+	 */
+	private void addPositionalArg(ParserState s) {
+		if (s.command != null) {
+			s.commandArgs.add(s.remainingArgs.removeFirst());
+			return;
+		}
+		if (!s.options.commands.isEmpty()) {
+			String name = s.remainingArgs.removeFirst();
+			s.command = s.options.commands.get(name);
+			if (s.command == null)
+				error(s, "Unknown command: " + name);
+			s.commandArgs = new ArrayList<String>();
+			s.optionsEnded = true;
+			return;
+		}
+		limits.checkPositionalArgs(s.posArgs.size() + 1);
+		s.posArgs.add(s.remainingArgs.removeFirst());
+	}
+	
+	/**
+	 * Parses the arguments that followed the sub-command with the command's own parser.
+	 */
+	private void parseCommand(ParserState s) {
+		if (s.command == null)
+			error(s, "A command is required");
+		ArgumentParser commandParser = null;
+		try {
+			commandParser = s.command.getParser(this);
+		} catch (RuntimeException e) {
+			error(s, e.getMessage());
+		}
+		ParserState cs = new ParserState(commandParser, new String[0], commandParser.newTarget());
+		cs.quiet = s.quiet;
+		cs.held = true;
+		s.commandValues = commandParser.parse(cs, s.commandArgs.toArray(new String[s.commandArgs.size()]));
+		s.commandParser = commandParser;
+		s.commandState = cs;
+	}
+	
+	/**
+	 * Checks the number and length of the arguments before any of them are copied.
+	 */
+	private void checkArgs(ParserState s, String[] args) {
+		try {
+			limits.checkTokens(args.length);
+			if (limits.getMaxTokenLength() != ParseLimits.UNLIMITED) {
+				for (String arg : args) {
+					limits.checkTokenLength(arg.length());
+				}
+			}
+		} catch (ParseLimitError e) {
+			limitExceeded(s, e);
+		}
+	}
+	
+	/**
+	 * Checks the positional arguments once all arguments have been parsed,
+	 * parses the sub-command, if any, and validates the results. Unless the
+	 * parse is held for a parent, the results are then committed and the
+	 * deferred callbacks dispatched.
+	 * 
+	 * @param s the state of the parser
+	 * @return the results of parsing
+	 */
+	ArgumentValues complete(ParserState s) {
 		// If a specific number of positional arguments are expected, ensure it is correct
 		if (numPos >= 0 && s.posArgs.size() != numPos) {
-			error("Incorrect number of positional arguments");
+			error(s, "Incorrect number of positional arguments");
 		}
 		
-		return new ArgumentValues(this, s.posArgs);
+		if (!s.options.commands.isEmpty()) {
+			parseCommand(s);
+		}
+		
+		ArgumentValues values = new ArgumentValues(this, s, s.staged);
+		for (OptionRegistry options : s.fromCache ? Collections.<OptionRegistry>emptyList() : withBoundNamespaces(s.options)) {
+			if (!options.validators.isEmpty() || !options.argumentsValidators.isEmpty()) {
+				try {
+					Validation.validate(options, values, orSharedPool(validationPool), s.scope);
+				} catch (ValidationError e) {
+					validationFailed(s, e);
+				}
+			}
+		}
+		if (s.deferred != null)
+			s.deferred.link();
+		return s.held ? values : finish(s, values);
+	}
+	
+	/**
+	 * Commits the results of a parse that has been validated, then those of its
+	 * sub-command, and dispatches their deferred callbacks. A sub-command therefore
+	 * has no effect unless the parse it belongs to succeeds.
+	 * 
+	 * @param s			the state of the parser
+	 * @param values	the results, as validated
+	 * @return the results of parsing
+	 */
+	private ArgumentValues finish(ParserState s, ArgumentValues values) {
+		if (s.staged != null)
+			s.staged.commit();
+		if (s.commandState != null)
+			s.commandValues = s.commandParser.finish(s.commandState, s.commandValues);
+		if (s.staged != null || s.commandState != null)
+			values = new ArgumentValues(this, s, null);
+		if (s.telemetry != null) {
+			s.telemetry.parsed(s.schema, s.seenOptions);
+			s.seenOptions = null;	// handed back for reuse
+		}
+		if (s.deferred != null)
+			s.deferred.dispatch(callbackExecutor);
+		return values;
+	}
+	
+	/**
+	 * Computes how many of the arguments following the option string
+	 * are consumed as its arguments. Unknown options need none; they are
+	 * reported as soon as they are parsed.
+	 * 
+	 * @param s the state of the parser
+	 * @param curArg the option string, possibly a group of short options or a long option with an attached value
+	 * @return the number of following arguments needed by the option
+	 */
+	private int argsNeeded(ParserState s, String curArg) {
+		if (curArg.equals("-") || curArg.equals("--"))
+			return 0;
+		if (isLongOpt(curArg)) {
+			String optName = stripPrefix(curArg);
+			int pos = optName.indexOf('=');
+			if (pos > -1)
+				optName = optName.substring(0, pos);
+			Entry<CharSequence, OptionHandler> optPair = findLongOpt(s.options, optName);
+			if (optPair == null)
+				return 0;
+			int numArgs = optPair.getValue().getNumArgs();
+			return pos > -1 ? Math.max(numArgs - 1, 0) : numArgs;
+		}
+		for(int charIndex = 1; charIndex < curArg.length(); charIndex++) {
+			OptionHandler opt = s.options.shortOpts.get(curArg.charAt(charIndex));
+			if (opt == null)
+				return 0;
+			if (opt.getNumArgs() > 0) // the rest of the string, if any, is the first argument
+				return charIndex + 1 < curArg.length() ? opt.getNumArgs() - 1 : opt.getNumArgs();
+		}
+		return 0;
 	}
 	
 	/**
@@ -455,13 +1180,12 @@ public class ArgumentParser {
 		String curArg = s.remainingArgs.removeFirst();
 		for(int charIndex = 1; charIndex < curArg.length(); charIndex++) {
 			char optName = curArg.charAt(charIndex);
-			OptionHandler opt = shortOpts.get(optName);
+			OptionHandler opt = s.options.shortOpts.get(optName);
 			if (opt == null) {
-				error("The option " + optName + " does not exist.");
+				error(s, "The option " + optName + " does not exist.");
 			}
 			
 			String[] optArgs = new String[opt.getNumArgs()];
-			Object[] convertedArgs = null;
 			if (opt.getNumArgs() > 0) {
 				if ( charIndex + 1 < curArg.length() ) { // the argument is the rest of the string
 					// Push the remainder of the string as an option
@@ -470,10 +1194,9 @@ public class ArgumentParser {
 					charIndex = curArg.length();
 				}
 				getArgs(s, "-" + optName, optArgs);
-				convertedArgs = convert(opt.getType(), optArgs);
 			}
 			
-			opt.performAction(Character.toString(optName), convertedArgs, this, s);
+			performAction(opt, Character.toString(optName), optArgs, s);
 		}
 	}
 
@@ -488,7 +1211,7 @@ public class ArgumentParser {
 		// Store the arguments
 		for(int arg = 0; arg < optArgs.length; arg++) {
 			if ( s.remainingArgs.isEmpty() )
-				error("Expecting argument for option " + optName);
+				error(s, "Expecting argument for option " + optName);
 			optArgs[arg] = s.remainingArgs.removeFirst();
 		}
 	}
@@ -534,26 +1257,105 @@ public class ArgumentParser {
 			optName = optName.substring(0,pos);
 		}
 		
-		Entry<CharSequence, OptionHandler> optPair = longOpts.getEntryFromUnambiguousPrefix(optName);
+		Entry<CharSequence, OptionHandler> optPair = findLongOpt(s.options, optName);
 		if (optPair == null)
-			error("The option " + optName + " doesn't exist.");
+			error(s, "The option " + optName + " doesn't exist.");
 
 		// TODO : consider forcing TrieMap to be String
 		String fullName = optPair.getKey().toString();
 		OptionHandler opt = optPair.getValue();
 		
 		String[] optArgs = new String[opt.getNumArgs()];
-		Object[] convertedArgs = null;
 		if (opt.getNumArgs() > 0) { // requires an argument
 			getArgs(s, optString, optArgs);
-			convertedArgs = convert(opt.getType(), optArgs);
 		} else if ( pos > -1 ) { // no argument, yet one is provided via --opt=arg syntax
-			error("--" + fullName + " option does not take a value");
+			error(s, "--" + fullName + " option does not take a value");
+		}
+		performAction(opt, fullName, optArgs, s);
+	}
+	
+	/**
+	 * Converts the arguments of an option and performs its action.
+	 * A single argument referring to a file (see {@link PrimitiveArrayFiles})
+	 * is loaded in bulk by handlers that store primitive arrays.
+	 * 
+	 * @param opt		the handler of the option
+	 * @param optName	the name of the option
+	 * @param optArgs	the unconverted arguments of the option
+	 * @param s			the state of the parser
+	 */
+	private void performAction(OptionHandler opt, String optName, String[] optArgs, ParserState s) {
+		countOccurrence(opt, s);
+		if (optArgs.length == 1 && opt instanceof PrimitiveArrayOptionHandler && PrimitiveArrayFiles.isReference(optArgs[0])) {
+			// the contents of the file may change, so the parse cannot be cached
+			s.recorded = null;
+			PrimitiveArrayOptionHandler arrayOpt = (PrimitiveArrayOptionHandler) opt;
+			arrayOpt.storeArray(PrimitiveArrayFiles.load(optArgs[0], arrayOpt.getComponentType(), limits.getMaxCollectionSize(), s.workingDirectory), s);
+			return;
+		}
+		Object[] convertedArgs = null;
+		if (optArgs.length > 0) {
+			try {
+				convertedArgs = convert(opt.getType(), optArgs);
+			} catch (RuntimeException e) {
+				if (s.telemetry != null)
+					s.telemetry.conversionFailed(opt);
+				throw e;
+			}
+			if (s.workingDirectory != null && opt.getType() == File.class) {
+				for (int i = 0; i < convertedArgs.length; i++) {
+					File f = (File) convertedArgs[i];
+					if (f != null && !f.isAbsolute())
+						convertedArgs[i] = new File(s.workingDirectory, f.getPath());
+				}
+			}
+		}
+		if (s.recorded != null) {
+			// callbacks given the state may consume arguments, and hits would share mutable
+			// arguments, so neither parse can be cached
+			if (opt instanceof CallbackOptionHandler || !ParseCache.isImmutable(convertedArgs))
+				s.recorded = null;
+			else
+				s.recorded.add(new ParseCache.Action(opt, optName, convertedArgs == null ? null : convertedArgs.clone()));
+		}
+		perform(opt, optName, convertedArgs, s);
+	}
+	
+	/**
+	 * Enforces the limit on occurrences and records that the option was seen.
+	 */
+	private void countOccurrence(OptionHandler opt, ParserState s) {
+		if (limits.getMaxOccurrences() != ParseLimits.UNLIMITED) {
+			limits.checkOccurrences(s.countOccurrence(opt));
+		}
+		if (s.telemetry != null)
+			s.markSeen(s.telemetry.seen(opt));
+	}
+	
+	/**
+	 * Performs the action of an option, or defers it, once its arguments have been converted.
+	 */
+	private void perform(OptionHandler opt, String optName, Object[] convertedArgs, ParserState s) {
+		if (callbackExecutor != null && opt instanceof DeferrableOptionHandler) {
+			if (s.deferred == null)
+				s.deferred = new DeferredActions(this, s);
+			s.deferred.add((DeferrableOptionHandler) opt, optName, convertedArgs);
+			return;
+		}
+		opt.performAction(optName, convertedArgs, this, s);
+		
+		if (limits.getMaxCollectionSize() != ParseLimits.UNLIMITED && opt.hasValue()) {
+			int size = s.collectionSize(opt);
+			if (size >= 0)
+				limits.checkCollectionSize(size);
 		}
-		opt.performAction(fullName, convertedArgs, this, s);
 	}
 	
-	private void error(String msg) {
+	private void error(ParserState s, String msg) {
+		if (msg.length() > MAX_ERROR_LENGTH)
+			msg = msg.substring(0, MAX_ERROR_LENGTH) + "...";
+		if (s.quiet)
+			throw new IllegalArgumentException(msg);
 		System.err.println(msg);
 		System.out.println(helpString());
 		if (exitOnError){
@@ -564,6 +1366,38 @@ public class ArgumentParser {
 		}
 	}
 	
+	/**
+	 * Reports a violated limit. Unlike other errors, the help message is not rendered.
+	 * 
+	 * @param s the state of the parser
+	 * @param e the violation
+	 */
+	void limitExceeded(ParserState s, ParseLimitError e) {
+		if (!s.quiet) {
+			System.err.println(e.getMessage());
+			if (exitOnError){
+				System.exit(-1);
+			}
+		}
+		throw e;
+	}
+	
+	/**
+	 * Reports failed validation, listing every failure.
+	 * 
+	 * @param s the state of the parser
+	 * @param e the failures
+	 */
+	private void validationFailed(ParserState s, ValidationError e) {
+		if (!s.quiet) {
+			System.err.println(e.getMessage());
+			if (exitOnError){
+				System.exit(-1);
+			}
+		}
+		throw e;
+	}
+	
 	public String helpString() {
 		return getHelpFormatter().format(this);
 	}
@@ -586,6 +1420,74 @@ public class ArgumentParser {
 		setUsage(DEFAULT_USAGE + " " + Strings.join(names, " ") + "\n" + desc);
 	}
 	
+	/**
+	 * Adds a sub-command, selected by the first positional argument. The options of
+	 * the command are declared by the named class, which is only loaded, and its
+	 * options only added, the first time the command is used. Each parse stores
+	 * into a new instance of the class, so it needs a no-argument constructor.
+	 * 
+	 * <p>The options of this parser are global: they precede the command and are
+	 * parsed once, by this parser. Every argument after the command is parsed by
+	 * the command's parser, whose results are available from
+	 * <code>ArgumentValues.getCommandValues()</code>. Once a command has been
+	 * added, a command is required.</p>
+	 * 
+	 * @param name		the name of the command
+	 * @param className	the fully qualified name of the class declaring the command's options
+	 * 
+	 * @see ArgumentValues#getCommand()
+	 * @see ArgumentValues#getCommandValues()
+	 */
+	public void addCommand(String name, String className) {
+		addCommand(new SubCommand(name, className, null));
+	}
+	
+	/**
+	 * Adds a sub-command whose options are declared by the objects the factory creates.
+	 * The factory is not called until the command is first used.
+	 * 
+	 * @param name			the name of the command
+	 * @param targetFactory	creates the object each parse of the command stores into
+	 * 
+	 * @see #addCommand(String, String)
+	 */
+	public void addCommand(String name, TargetFactory<?> targetFactory) {
+		addCommand(new SubCommand(name, null, targetFactory));
+	}
+	
+	private void addCommand(SubCommand command) {
+		beginUpdate();
+		boolean done = false;
+		try {
+			if (pending.commands.containsKey(command.name))
+				throw new IllegalArgumentException("The command " + command.name + " already exists");
+			pending.commands.put(command.name, command);
+			done = true;
+		} finally {
+			endUpdate(done);
+		}
+	}
+	
+	/**
+	 * @return the names of the sub-commands, in the order they were added
+	 * 
+	 * @see #addCommand(String, String)
+	 */
+	public Set<String> getCommands() {
+		return Collections.unmodifiableSet(currentOptions().commands.keySet());
+	}
+	
+	/**
+	 * Gets the parser of a sub-command, e.g. to configure it, loading the command if necessary.
+	 * 
+	 * @param name the name of the command
+	 * @return the command's parser; null if there is no such command
+	 */
+	public ArgumentParser getCommand(String name) {
+		SubCommand command = currentOptions().commands.get(name);
+		return command == null ? null : command.getParser(this);
+	}
+	
 	// TODO : more fully document
 	/**
 	 * Inspects the provided object for <code>Option</code>s and adds them.
@@ -607,6 +1509,17 @@ public class ArgumentParser {
 	}
 	
 	private void addOptions(Class<?> cls, Object optObject) {
+		beginUpdate();
+		boolean done = false;
+		try {
+			addOptionsTo(cls, optObject);
+			done = true;
+		} finally {
+			endUpdate(done);
+		}
+	}
+	
+	private void addOptionsTo(Class<?> cls, Object optObject) {
 
 		// Search fields for options
 		for ( Field f : cls.getDeclaredFields()) {
@@ -621,6 +1534,14 @@ public class ArgumentParser {
 			if ( opt != null && ( optObject != null || Modifier.isStatic(f.getModifiers()) ) ) { 
 				addOpt(f, opt, optObject);
 			}
+			
+			Component component = f.getAnnotation(Component.class);
+			if ( component != null && ( optObject != null || Modifier.isStatic(f.getModifiers()) ) ) {
+				String name = component.value().equals("") ? removeCamelCase(f.getName()) : component.value();
+				if (pending.namespaces.containsKey(name))
+					throw new IllegalArgumentException("Namespace " + name + " already exists");
+				pending.namespaces.put(name, new Namespace(name, component.help(), this, f, optObject, binding));
+			}
 		}
 
 		// Search methods for options
@@ -811,10 +1732,15 @@ public class ArgumentParser {
 	}
 
 	/**
-	 * Adds an instance variable as an option
+	 * Adds an instance variable as an option.
+	 * Variables holding a <code>ScopedOption</code> store into the holder.
 	 */
 	private void addOpt(Field f, Option opt, Object optObject) {
-		InstanceVariable var = new InstanceVariable(f);
+		ReflectiveVariable var;
+		if (ScopedOption.class.isAssignableFrom(f.getType()))
+			var = new ScopedVariable(f);
+		else
+			var = new InstanceVariable(f);
 		
 		addOpt(var, opt, optObject);
 	}
@@ -837,12 +1763,29 @@ public class ArgumentParser {
 			}
 		}
 		
-		OptionHandlerFactory handlerFactory = actionMap.get(action);
+		OptionHandlerFactory handlerFactory = getOptionHandlerFactory(action);
 		if (handlerFactory == null)
 			throw new IllegalArgumentException("The action " + action + ", specified for option strings " + optStrings + ", is not registered");
 
 		OptionHandler handler = handlerFactory.newHandler(this, var, opt, optObject, optStrings);
 		addOptionHandler(handler);
+		pending.defaults.add(new DefaultValue(handler, var, optObject));
+		
+		for (String name : opt.validate()) {
+			String arg = null;
+			int pos = name.indexOf('=');
+			if (pos > -1) {
+				arg = name.substring(pos + 1);
+				name = name.substring(0, pos);
+			}
+			OptionValidator validator = validatorMap.get(name);
+			if (validator == null)
+				throw new IllegalArgumentException("The validator " + name + ", specified for option strings " + optStrings + ", is not registered");
+			String problem = Validators.checkArgument(validator, arg);
+			if (problem != null)
+				throw new IllegalArgumentException("The validator " + name + ", specified for option strings " + optStrings + ", " + problem);
+			pending.validators.add(new Validation.Binding(handler, validator, arg));
+		}
 	}
 
 	/**
@@ -900,18 +1843,154 @@ public class ArgumentParser {
 	 * @param opt the option handler to add
 	 */
 	public void addOptionHandler(OptionHandler opt) {
-		for( String optString : opt.getOptionStrings() ) {
-			OptionHandler prev = null;
-			if (ArgumentParser.isLongOpt(optString)) {
-				prev = longOpts.put(stripPrefix(optString),opt);
-			} else {
-				prev = shortOpts.put(stripPrefix(optString).charAt(0),opt);
+		beginUpdate();
+		boolean done = false;
+		try {
+			OptionRegistry options = pending;
+			if (binding != null && opt instanceof BaseOption)
+				((BaseOption) opt).setScope(binding);
+			for( String optString : opt.getOptionStrings() ) {
+				OptionHandler prev = null;
+				if (ArgumentParser.isLongOpt(optString)) {
+					prev = options.longOpts.put(stripPrefix(optString),opt);
+				} else {
+					prev = options.shortOpts.put(stripPrefix(optString).charAt(0),opt);
+				}
+				if (prev != null) { // duplicate option?
+					conflictHandler.handleConflict(this, optString, opt, prev);
+				}
 			}
-			if (prev != null) { // duplicate option?
-				conflictHandler.handleConflict(this, optString, opt, prev);
+			options.mainGroup.add(opt);
+			done = true;
+		} finally {
+			endUpdate(done);
+		}
+	}
+	
+	/**
+	 * Starts a batch of changes to the options of this parser, which are published
+	 * together by the matching call to {@link #endUpdate()}. Parses that are already
+	 * in progress, or that start before then, use the options as they were. Each
+	 * call to a method that adds or removes options is its own update, unless
+	 * it is part of a larger one. Updates may be nested, and are serialized:
+	 * this method waits for updates by other threads to finish.
+	 * 
+	 * <p>Updates should be used like so:</p>
+	 * 
+	 * <p><blockquote><pre>
+	 * 	parser.beginUpdate();
+	 * 	try {
+	 * 		parser.addArguments(pluginOptions);
+	 * 		parser.addArguments(moreOptions);
+	 * 	} finally {
+	 * 		parser.endUpdate();
+	 * 	}
+	 * </pre></blockquote></p>
+	 * 
+	 * @see #endUpdate()
+	 */
+	public void beginUpdate() {
+		registryLock.lock();
+		if (updateDepth++ == 0)
+			pending = registry.copy();
+	}
+	
+	/**
+	 * Ends a batch of changes to the options of this parser. Once the outermost
+	 * update has ended, the changes become visible to new parses in one step.
+	 * Options may therefore refer to options added later in the same update,
+	 * e.g. in the <code>after</code> attribute of <code>@Option</code>.
+	 * 
+	 * @throws IllegalStateException if the current thread has not begun an update
+	 * @throws IllegalArgumentException if a callback must run after an option that
+	 * 		does not exist or the callbacks' dependencies form a cycle, in which case
+	 * 		the changes are discarded
+	 * 
+	 * @see #beginUpdate()
+	 */
+	public void endUpdate() {
+		endUpdate(true);
+	}
+	
+	/**
+	 * Ends an update, discarding its changes if it is the outermost update and did not complete.
+	 */
+	private void endUpdate(boolean publish) {
+		if (!registryLock.isHeldByCurrentThread())
+			throw new IllegalStateException("No update is in progress");
+		try {
+			if (publish && updateDepth == 1)
+				checkDependencies(pending);
+		} catch (RuntimeException e) {
+			publish = false;
+			throw e;
+		} finally {
+			try {
+				if (--updateDepth == 0) {
+					if (publish)
+						registry = pending;
+					pending = null;
+				}
+			} finally {
+				registryLock.unlock();
+			}
+		}
+	}
+	
+	/**
+	 * Checks that the options named in the <code>after</code> attributes of
+	 * callbacks exist and that the callbacks do not depend on one another in a cycle.
+	 */
+	private void checkDependencies(OptionRegistry options) {
+		Map<OptionHandler, List<OptionHandler>> deps = null;
+		for (OptionHandler opt : options.mainGroup) {
+			if (!(opt instanceof DeferrableOptionHandler) || ((DeferrableOptionHandler) opt).getDependencies().length == 0)
+				continue;
+			if (deps == null)
+				deps = new IdentityHashMap<OptionHandler, List<OptionHandler>>();
+			List<OptionHandler> list = new ArrayList<OptionHandler>();
+			for (String name : ((DeferrableOptionHandler) opt).getDependencies()) {
+				OptionHandler dep = getOption(toOptionString(name));
+				if (dep == null)
+					throw new IllegalArgumentException("The option strings " + opt.getOptionStrings() + " must run after " + name + ", which is not an option");
+				if (dep != opt)
+					list.add(dep);
 			}
+			deps.put(opt, list);
 		}
-		mainGroup.add(opt);
+		if (deps == null)
+			return;
+		// depth-first search; an option still on the stack when it is reached again closes a cycle
+		Map<OptionHandler, Boolean> finished = new IdentityHashMap<OptionHandler, Boolean>();
+		for (OptionHandler opt : deps.keySet()) {
+			checkAcyclic(opt, deps, finished);
+		}
+	}
+	
+	private static void checkAcyclic(OptionHandler opt, Map<OptionHandler, List<OptionHandler>> deps, Map<OptionHandler, Boolean> finished) {
+		Boolean done = finished.get(opt);
+		if (done != null) {
+			if (!done)
+				throw new IllegalArgumentException("The options' \"after\" dependencies form a cycle through " + opt.getOptionStrings());
+			return;
+		}
+		List<OptionHandler> list = deps.get(opt);
+		if (list == null)
+			return;
+		finished.put(opt, false);
+		for (OptionHandler dep : list) {
+			checkAcyclic(dep, deps, finished);
+		}
+		finished.put(opt, true);
+	}
+	
+	/**
+	 * @return the options as seen by the current thread, including those of its update in progress, if any
+	 */
+	OptionRegistry currentOptions() {
+		if (registryLock.isHeldByCurrentThread())
+			return pending;
+		return registry;
 	}
 
 	/**
@@ -923,8 +2002,9 @@ public class ArgumentParser {
 	public boolean hasOption(String optString) {
 		if (!isOpt(optString)) return false;
 		optString = stripPrefix(optString);
-		if (isLongOpt(optString) && longOpts.containsKey(optString)) return true;
-		return shortOpts.containsKey(optString);
+		OptionRegistry options = currentOptions();
+		if (isLongOpt(optString) && options.longOpts.containsKey(optString)) return true;
+		return options.shortOpts.containsKey(optString);
 	}
 	
 	/**
@@ -937,12 +2017,19 @@ public class ArgumentParser {
 	 * @return null, if the option string isn't found; the handler for the option otherwise
 	 */
 	public OptionHandler getOption(String optString) {
+		return getOption(currentOptions(), optString);
+	}
+	
+	/**
+	 * Gets the option handler for the specified option string from a set of options.
+	 */
+	OptionHandler getOption(OptionRegistry options, String optString) {
 		if (!isOpt(optString)) return null;
 		if (isLongOpt(optString)) {
-			Entry<CharSequence, OptionHandler> entry = longOpts.getEntryFromUnambiguousPrefix(stripPrefix(optString));
+			Entry<CharSequence, OptionHandler> entry = findLongOpt(options, stripPrefix(optString));
 			return entry == null ? null : entry.getValue();
 		}
-		return shortOpts.get(optString.charAt(1));
+		return options.shortOpts.get(optString.charAt(1));
 	}
 	
 	/**
@@ -1020,6 +2107,7 @@ public class ArgumentParser {
 	 * @return
 	 */
 	public OptionHandler[] getOptions() {
+		List<OptionHandler> mainGroup = currentOptions().mainGroup;
 		return mainGroup.toArray(new OptionHandler[mainGroup.size()]);
 	}
 
@@ -1032,12 +2120,13 @@ public class ArgumentParser {
 	// TODO : push this into the conflict handling stuff
 	public Set<String> existingOptions(List<String> optionStrings) {
 		Set<String> existing = new HashSet<String>();
+		OptionRegistry options = currentOptions();
 		for( String optString : optionStrings ) {
 			if (isLongOpt(optString)) {
-				if (longOpts.containsKey(stripPrefix(optString)))
+				if (options.longOpts.containsKey(stripPrefix(optString)))
 					existing.add(optString);
 			} else {
-				if (shortOpts.containsKey(stripPrefix(optString)))
+				if (options.shortOpts.containsKey(stripPrefix(optString)))
 					existing.add(optString);
 			}
 		}
@@ -1224,6 +2313,16 @@ public class ArgumentParser {
 	 * @see #removeOptionArgumentParser(Class)
 	 */
 	private final Map<Class<?>, OptionArgumentParser<?>> parserMap = new HashMap<Class<?>, OptionArgumentParser<?>>();
+	
+	// parsers for types not in parserMap, i.e. plugins and enums, looked up once per type; NO_PARSER if there is none
+	private final ConcurrentHashMap<Class<?>, OptionArgumentParser<?>> fallbackParsers = new ConcurrentHashMap<Class<?>, OptionArgumentParser<?>>();
+	private static final OptionArgumentParser<Object> NO_PARSER = new OptionArgumentParser<Object>() {
+		@Override
+		public Object parse(String arg) {
+			throw new UnsupportedOperationException();
+		}
+	};
+	
 	{
 		parserMap.put(String.class, new OptionArgumentParser<String>() {
 			@Override
@@ -1331,14 +2430,28 @@ public class ArgumentParser {
 	 * corresponding <code>OptionHandlerFactory</code> to create a new option
 	 * handler.
 	 *  
+	 * If none has been put, a plugin for the action is looked up.
+	 *  
 	 * @param actionName the name of the action for which to get the handler 
 	 * @return the handler corresponding to actionName, if there is one; null otherwise
 	 * 
 	 * @see #putOptionHandlerFactory(String, OptionHandlerFactory)
 	 * @see #removeOptionHandlerFactory(String)
+	 * @see edu.byu.nlp.util.jargparser.annotations.Plugin
 	 */
 	public OptionHandlerFactory getOptionHandlerFactory(String actionName) {
-		return actionMap.get(actionName);
+		OptionHandlerFactory factory = actionMap.get(actionName);
+		if (factory == null)
+			factory = pluginActions.get(actionName);
+		if (factory == null) {
+			factory = Plugins.get().action(actionName);
+			if (factory != null) {
+				OptionHandlerFactory prev = pluginActions.putIfAbsent(actionName, factory);
+				if (prev != null)
+					factory = prev;
+			}
+		}
+		return factory;
 	}
 	
 	/**
@@ -1355,6 +2468,69 @@ public class ArgumentParser {
 		return actionMap.remove(actionName);
 	}
 
+	/**
+	 * Adds a validator that options can refer to by name in the
+	 * <code>validate</code> attribute of <code>@Option</code>.
+	 * If one exists, it is replaced. Validators must be added before
+	 * the options that refer to them.
+	 * 
+	 * @param name		the name of the validator
+	 * @param validator	the validator
+	 * @return the previous validator with this name, if it existed; null otherwise
+	 * 
+	 * @see Validators
+	 */
+	public OptionValidator putValidator(String name, OptionValidator validator) {
+		return validatorMap.put(name, validator);
+	}
+	
+	/**
+	 * Gets the validator with the specified name.
+	 * 
+	 * @param name the name of the validator
+	 * @return the validator, if there is one; null otherwise
+	 */
+	public OptionValidator getValidator(String name) {
+		return validatorMap.get(name);
+	}
+	
+	/**
+	 * Adds a validator that checks the results of every parse, e.g. constraints
+	 * between options. It runs once parsing has finished, in parallel with the
+	 * other validators. If any validator fails, the parse fails with a
+	 * <code>ValidationError</code> that lists every failure.
+	 * 
+	 * @param validator the validator to add
+	 * 
+	 * @see ValidationError
+	 */
+	public void addValidator(ArgumentsValidator validator) {
+		beginUpdate();
+		try {
+			pending.argumentsValidators.add(validator);
+		} finally {
+			endUpdate();
+		}
+	}
+	
+	/**
+	 * Sets the pool on which validators run. By default, a pool shared by
+	 * all parsers is used; a dedicated pool with more threads may be
+	 * preferable when validators block, e.g. on networked storage.
+	 * 
+	 * @param validationPool the pool; null to use the shared pool
+	 */
+	public void setValidationPool(ForkJoinPool validationPool) {
+		this.validationPool = validationPool;
+	}
+	
+	/**
+	 * @return the pool; the pool shared by all parsers if it is null
+	 */
+	private static ForkJoinPool orSharedPool(ForkJoinPool pool) {
+		return pool == null ? SharedPool.POOL : pool;
+	}
+
 	/**
 	 * Adds a parser for the specified type.
 	 * This method allows the option parser to be extended to
@@ -1395,6 +2571,8 @@ public class ArgumentParser {
 	
 	/**
 	 * Gets the option parser for the specified type.
+	 * If none has been put, a plugin for the type is looked up,
+	 * once per type, in the context class loader of the first thread to ask.
 	 * 
 	 * @param <T>	the type that the specified parser can parse
 	 * @param type	the class object of the type
@@ -1402,14 +2580,23 @@ public class ArgumentParser {
 	 * 
 	 * @see #putOptionArgumentParser(Class, OptionArgumentParser)
 	 * @see #removeOptionArgumentParser(Class)
+	 * @see edu.byu.nlp.util.jargparser.annotations.Plugin
 	 */
 	@SuppressWarnings({ "unchecked", "rawtypes" })
 	public <T> OptionArgumentParser<T> getOptionArgumentParser(final Class<T> type) {
 		OptionArgumentParser<T> ret = ((Map<Class<T>, OptionArgumentParser<T>>)(Object)parserMap).get(type);
-		if (ret == null && type.isEnum()) {
-			return new EnumParser(type);
+		if (ret != null)
+			return ret;
+		OptionArgumentParser<?> fallback = fallbackParsers.get(type);
+		if (fallback == null) {
+			fallback = Plugins.get().converter(type);
+			if (fallback == null && type.isEnum())
+				fallback = new EnumParser(type);
+			OptionArgumentParser<?> prev = fallbackParsers.putIfAbsent(type, fallback == null ? NO_PARSER : fallback);
+			if (prev != null)
+				fallback = prev;
 		}
-		return ret;
+		return fallback == NO_PARSER ? null : (OptionArgumentParser<T>) fallback;
 	}
 	
 	private static class EnumParser<E extends Enum<E>> implements OptionArgumentParser<E> {
@@ -1469,14 +2656,31 @@ public class ArgumentParser {
 	 * @return true if succesfully removed 
 	 */
 	public boolean remove(OptionHandler opt) {
-		for( String optString : opt.getOptionStrings() ) {
-			if (isLongOpt(optString)) {
-				longOpts.remove(stripPrefix(optString));
-			} else {
-				shortOpts.remove(stripPrefix(optString).charAt(0));
+		beginUpdate();
+		boolean done = false;
+		try {
+			OptionRegistry options = pending;
+			for( String optString : opt.getOptionStrings() ) {
+				if (isLongOpt(optString)) {
+					options.longOpts.remove(stripPrefix(optString));
+				} else {
+					options.shortOpts.remove(stripPrefix(optString).charAt(0));
+				}
+			}
+			boolean removed = options.mainGroup.remove(opt);
+			for (Iterator<Validation.Binding> it = options.validators.iterator(); it.hasNext(); ) {
+				if (it.next().opt == opt)
+					it.remove();
+			}
+			for (Iterator<DefaultValue> it = options.defaults.iterator(); it.hasNext(); ) {
+				if (it.next().opt == opt)
+					it.remove();
 			}
+			done = true;
+			return removed;
+		} finally {
+			endUpdate(done);
 		}
-		return mainGroup.remove(opt);
 	}
 	
 	/**
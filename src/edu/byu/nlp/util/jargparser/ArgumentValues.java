@@ -19,6 +19,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * The return value of the parser, essentially a pair
@@ -27,17 +31,60 @@ import java.util.Properties;
  * @author rah67
  *
  */
-public class ArgumentValues {
+public class ArgumentValues implements Future<ArgumentValues> {
 
 	/**
 	 * 
 	 */
 	private final ArgumentParser optionParser;
+	// the options of the parse, which options added since do not change
+	private final OptionRegistry options;
 	private final String[] posArgs;
+	private final Object target;
+	private final DeferredActions deferred;
+	// values not yet committed, while the results of a transactional parse are validated
+	private final StagedValues staged;
+	private final String command;
+	private final ArgumentValues commandValues;
 	
 	public ArgumentValues(ArgumentParser optionParser, List<String> posArgs) {
 		this.optionParser = optionParser;
+		this.options = optionParser.currentOptions();
 		this.posArgs = posArgs.toArray(new String[posArgs.size()]);
+		this.target = null;
+		this.deferred = null;
+		this.staged = null;
+		this.command = null;
+		this.commandValues = null;
+	}
+	
+	ArgumentValues(ArgumentParser optionParser, ParserState s, StagedValues staged) {
+		this.optionParser = optionParser;
+		this.options = s.options;
+		this.posArgs = s.posArgs.toArray(new String[s.posArgs.size()]);
+		this.target = s.getTarget();
+		this.deferred = s.deferred;
+		this.staged = staged;
+		this.command = s.command == null ? null : s.command.name;
+		this.commandValues = s.commandValues;
+	}
+	
+	/**
+	 * Reads the value of an option, from the target if the option supports one.
+	 */
+	static Object valueOf(OptionHandler opt, Object target) {
+		if (target != null && opt instanceof TargetedOptionHandler)
+			return ((TargetedOptionHandler) opt).getValue(target);
+		return opt.getValue();
+	}
+	
+	/**
+	 * Reads the value of an option, including any values yet to be committed.
+	 */
+	Object valueOf(OptionHandler opt) {
+		if (staged != null)
+			return staged.valueOf(opt, target);
+		return valueOf(opt, target);
 	}
 
 	/**
@@ -50,12 +97,102 @@ public class ArgumentValues {
 	 */
 	@SuppressWarnings("unchecked")
 	public <T> T getValue(String name) {
-		OptionHandler opt = this.optionParser.getOption(this.optionParser.toOptionString(name));
+		OptionHandler opt = this.optionParser.getOption(options, this.optionParser.toOptionString(name));
 		if (opt == null)
 			throw new IllegalArgumentException("Could not find option for " + name);
 		if (!opt.hasValue())
 			throw new IllegalArgumentException(name + " is not a stored value");
-		return (T) opt.getValue();
+		return (T) valueOf(opt);
+	}
+	
+	/**
+	 * Returns the object that the option values were stored into.
+	 * 
+	 * @param <T> the type of the target
+	 * @return the target of the parse; null if each option stored into the object it was added with
+	 * 
+	 * @see ParserState#getTarget()
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T getTarget() {
+		return (T) target;
+	}
+	
+	/**
+	 * @return the name of the sub-command; null if the parser has no sub-commands
+	 * 
+	 * @see ArgumentParser#addCommand(String, String)
+	 */
+	public String getCommand() {
+		return command;
+	}
+	
+	/**
+	 * Gets the results of parsing the arguments that followed the sub-command,
+	 * including the object its options were stored into.
+	 * 
+	 * @return the results of the sub-command; null if the parser has no sub-commands
+	 * 
+	 * @see #getCommand()
+	 */
+	public ArgumentValues getCommandValues() {
+		return commandValues;
+	}
+	
+	/**
+	 * Callbacks cannot be cancelled once parsing has finished.
+	 * 
+	 * @return false
+	 */
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		return false;
+	}
+	
+	@Override
+	public boolean isCancelled() {
+		return false;
+	}
+	
+	/**
+	 * @return true if all callbacks have finished; always true unless the parser has a callback executor
+	 * 
+	 * @see ArgumentParser#setCallbackExecutor(java.util.concurrent.Executor)
+	 */
+	@Override
+	public boolean isDone() {
+		return deferred == null || deferred.isDone();
+	}
+	
+	/**
+	 * Waits for all callbacks to finish, which is only necessary
+	 * if the parser runs them asynchronously.
+	 * 
+	 * @return this
+	 * @throws ExecutionException if a callback failed
+	 * 
+	 * @see ArgumentParser#setCallbackExecutor(java.util.concurrent.Executor)
+	 */
+	@Override
+	public ArgumentValues get() throws InterruptedException, ExecutionException {
+		if (deferred != null)
+			deferred.await();
+		return this;
+	}
+	
+	/**
+	 * Waits at most the specified time for all callbacks to finish.
+	 * 
+	 * @return this
+	 * @throws ExecutionException if a callback failed
+	 * 
+	 * @see #get()
+	 */
+	@Override
+	public ArgumentValues get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+		if (deferred != null)
+			deferred.await(timeout, unit);
+		return this;
 	}
 	
 	/**
@@ -72,10 +209,10 @@ public class ArgumentValues {
 	 */
 	public Map<String,Object> optionsMap() {
 		HashMap<String, Object> map = new HashMap<String, Object>();
-		for( OptionHandler o : optionParser.mainGroup ) {
+		for( OptionHandler o : options.mainGroup ) {
 			if (o.hasValue()) {
 				for( String optString : o.getOptionStrings() ) {
-					map.put(ArgumentParser.stripPrefix(optString), o.getValue());
+					map.put(ArgumentParser.stripPrefix(optString), valueOf(o));
 				}
 			}
 		}
@@ -92,10 +229,10 @@ public class ArgumentValues {
 	 */
 	public Properties properties() {
 		Properties props = new Properties();
-		for( OptionHandler o : optionParser.mainGroup ) {
+		for( OptionHandler o : options.mainGroup ) {
 			if (o.hasValue()) {
 				for( String optString : o.getOptionStrings() ) {
-					props.setProperty(ArgumentParser.stripPrefix(optString), o.getValue().toString());
+					props.setProperty(ArgumentParser.stripPrefix(optString), valueOf(o).toString());
 				}
 			}
 		}
@@ -0,0 +1,31 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+/**
+ * Checks the results of parsing as a whole, e.g. constraints between options.
+ * Validators may be called concurrently and must be thread-safe.
+ * 
+ * @see ArgumentParser#addValidator(ArgumentsValidator)
+ */
+public interface ArgumentsValidator {
+	
+	/**
+	 * @param values the results of parsing
+	 * @return null if the results are valid; otherwise, a description of the problem
+	 */
+	String validate(ArgumentValues values);
+}
@@ -38,7 +38,7 @@ public class CallbackOptionHandler extends BaseValuelessOption {
 	@Override
 	public void performAction(String optName, Object[] optArgs, ArgumentParser p, ParserState state) {
 		try {
-			m.invoke(optObject, new Object[]{optName,optArgs,p,state});
+			m.invoke(getTarget(state), new Object[]{optName,optArgs,p,state});
 		} catch (IllegalAccessException e) {
 			throw new RuntimeException(e);
 		} catch (InvocationTargetException e) {
@@ -45,4 +45,25 @@ public class CollectionFactories {
 			return new HashSet<E>();
 		}
 	}
+
+	/**
+	 * Creates {@link CompactStringList}s, optionally backed by off-heap arenas.
+	 */
+	public static class CompactStringListFactory<E> implements CollectionFactory<E> {
+		private final boolean direct;
+
+		public CompactStringListFactory() {
+			this(false);
+		}
+
+		public CompactStringListFactory(boolean direct) {
+			this.direct = direct;
+		}
+
+		@SuppressWarnings("unchecked")	// the parser only adds Strings to this collection
+		@Override
+		public Collection<E> newInstance() {
+			return (Collection<E>) (Collection<?>) new CompactStringList(direct);
+		}
+	}
 }
@@ -0,0 +1,220 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A compact list of strings intended for options that are repeated a very
+ * large number of times (e.g. vocabulary tokens or document ids).
+ *
+ * <p>Rather than keeping a separate <code>String</code> per value, the values are
+ * encoded contiguously into one or more large byte arenas, Latin-1 when every
+ * character fits and UTF-8 otherwise, along with an index of offsets. A
+ * <code>String</code> is only decoded when {@link #get(int)} is called.
+ * The arenas may optionally be allocated off-heap.</p>
+ *
+ * <p>To callers, the list is read-only: elements can be neither replaced nor removed
+ * individually. The only supported mutations are {@link #add(String)}, which appends
+ * to the end of the list and is what the <code>store</code> and <code>append</code>
+ * actions use to populate the option, and {@link #clear()}. For example:</p>
+ *
+ * <p><pre><blockquote>
+ * 		@Option(action=Option.APPEND)
+ * 		CompactStringList tokens = new CompactStringList(true); // off-heap
+ * </blockquote></pre></p>
+ *
+ * <p>Appending is not thread-safe; reading a fully populated list is.</p>
+ */
+public class CompactStringList extends AbstractList<String> implements RandomAccess {
+
+	public static final int DEFAULT_ARENA_SIZE = 1 << 20;
+
+	private static final Charset LATIN1 = StandardCharsets.ISO_8859_1;
+	private static final Charset UTF8 = StandardCharsets.UTF_8;
+	private static final int INITIAL_CAPACITY = 16;
+
+	private final boolean direct;
+	private final int arenaSize;
+	private final List<ByteBuffer> arenas;
+
+	// position of value i: arena index in the high word, offset within the arena in the low word
+	private long[] positions;
+	// encoded length of value i; negative (~length) if the value is UTF-8 rather than Latin-1
+	private int[] lengths;
+	private int size;
+
+	/**
+	 * Creates an empty list whose arenas live on the Java heap.
+	 */
+	public CompactStringList() {
+		this(false);
+	}
+
+	/**
+	 * Creates an empty list using arenas of the default size.
+	 *
+	 * @param direct if true, arenas are allocated off-heap
+	 */
+	public CompactStringList(boolean direct) {
+		this(direct, DEFAULT_ARENA_SIZE);
+	}
+
+	/**
+	 * Creates an empty list.
+	 *
+	 * @param direct if true, arenas are allocated off-heap
+	 * @param arenaSize the size in bytes of each arena; values larger than this get their own arena
+	 */
+	public CompactStringList(boolean direct, int arenaSize) {
+		if (arenaSize < 1)
+			throw new IllegalArgumentException("Arena size must be positive");
+		this.direct = direct;
+		this.arenaSize = arenaSize;
+		this.arenas = new ArrayList<ByteBuffer>();
+		this.positions = new long[INITIAL_CAPACITY];
+		this.lengths = new int[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Decodes and returns the value at the specified index.
+	 */
+	@Override
+	public String get(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		ByteBuffer arena = arenas.get((int) (positions[index] >>> 32));
+		int offset = (int) positions[index];
+		int len = lengths[index];
+		Charset cs = LATIN1;
+		if (len < 0) {
+			len = ~len;
+			cs = UTF8;
+		}
+		if (arena.hasArray()) {
+			return new String(arena.array(), arena.arrayOffset() + offset, len, cs);
+		}
+		byte[] bytes = new byte[len];
+		ByteBuffer view = arena.duplicate();
+		view.position(offset);
+		view.get(bytes);
+		return new String(bytes, cs);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Appends the value to the end of the list. Null values are not permitted.
+	 *
+	 * @param value the value to append
+	 * @return true
+	 */
+	@Override
+	public boolean add(String value) {
+		if (value == null)
+			throw new NullPointerException("CompactStringList does not permit null values");
+
+		byte[] utf8 = null;
+		int len = value.length();
+		for (int i = 0; i < value.length(); i++) {
+			if (value.charAt(i) > 0xFF) {
+				utf8 = value.getBytes(UTF8);
+				len = utf8.length;
+				break;
+			}
+		}
+
+		ByteBuffer arena = arenaFor(len);
+		int offset = arena.position();
+		if (utf8 == null) {
+			for (int i = 0; i < value.length(); i++) {
+				arena.put((byte) value.charAt(i));
+			}
+		} else {
+			arena.put(utf8);
+		}
+
+		ensureCapacity(size + 1);
+		positions[size] = ((long) (arenas.size() - 1) << 32) | offset;
+		lengths[size] = utf8 == null ? len : ~len;
+		size++;
+		modCount++;
+		return true;
+	}
+
+	/**
+	 * Removes all of the values, releasing the arenas.
+	 */
+	@Override
+	public void clear() {
+		arenas.clear();
+		size = 0;
+		modCount++;
+	}
+
+	/**
+	 * @return the total number of bytes used to store the values
+	 */
+	public long bytesUsed() {
+		long bytes = 0;
+		for (ByteBuffer arena : arenas) {
+			bytes += arena.position();
+		}
+		return bytes;
+	}
+
+	/**
+	 * @return true if the arenas are allocated off-heap
+	 */
+	public boolean isDirect() {
+		return direct;
+	}
+
+	/**
+	 * Returns the arena with room for <code>len</code> more bytes,
+	 * allocating a new one if the current arena is full.
+	 */
+	private ByteBuffer arenaFor(int len) {
+		if (!arenas.isEmpty()) {
+			ByteBuffer last = arenas.get(arenas.size() - 1);
+			if (last.remaining() >= len)
+				return last;
+		}
+		int capacity = Math.max(arenaSize, len);
+		ByteBuffer arena = direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+		arenas.add(arena);
+		return arena;
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > positions.length) {
+			int newCapacity = Math.max(capacity, positions.length + (positions.length >> 1));
+			positions = Arrays.copyOf(positions, newCapacity);
+			lengths = Arrays.copyOf(lengths, newCapacity);
+		}
+	}
+
+}
@@ -0,0 +1,34 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+/**
+ * Locates the object holding the options of a component within the target of a
+ * parse, so that each target gets its own component rather than sharing the one
+ * the options were added with.
+ *
+ * @see edu.byu.nlp.util.jargparser.annotations.Component
+ */
+public interface ComponentScope {
+	
+	/**
+	 * Gets the component of the target, creating it if the target does not have one yet.
+	 * 
+	 * @param target the target of a parse; null for the component the options were added with
+	 * @return the component
+	 */
+	Object getComponent(Object target);
+}
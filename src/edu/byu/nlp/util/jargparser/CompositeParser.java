@@ -0,0 +1,353 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import edu.byu.nlp.util.TrieMap;
+
+/**
+ * Parses one command-line for several components, each of which owns its own
+ * <code>ArgumentParser</code>. The option strings of every component are merged
+ * into a single dispatch index, so the command-line is scanned once and each
+ * option, along with its arguments, is routed to the parser of the component
+ * that owns it. The components' parsers then convert, validate and store the
+ * values as usual, each reporting its own errors.
+ * 
+ * <p>Rather than going through a {@link ConflictHandler}, conflicts are resolved
+ * by namespace: every option of a component named <code>encoder</code> can be given
+ * as <code>--encoder.</code><i>name</i>, e.g. <code>--encoder.layers</code> or
+ * <code>--encoder.l</code>, and an option string that is not shared with another
+ * component can also be given as is, e.g. <code>--layers</code>. A shared option
+ * string is an error that lists its namespaced forms. For example:</p>
+ * 
+ * <p><blockquote><pre>
+ * 	CompositeParser parser = new CompositeParser();
+ * 	parser.add("encoder", new ArgumentParser(encoderOpts));
+ * 	parser.add("decoder", new ArgumentParser(decoderOpts));
+ * 	CompositeValues values = parser.parseArgs("--encoder.layers", "6", "--beam", "4", "in.txt");
+ * </pre></blockquote></p>
+ * 
+ * <p>Positional arguments belong to the composite rather than to any component.
+ * <code>-h</code> and <code>--help</code> print the help of every component unless
+ * a component uses them for something else; the components' own help options are
+ * not routed. Options must be added to a component before the component is added.</p>
+ * 
+ * @see CompositeValues
+ */
+public class CompositeParser {
+	
+	/**
+	 * Where an option string of the composite leads.
+	 */
+	private static final class Route {
+		final String component;
+		final String optString;		// the option string as known to the component
+		final int numArgs;
+		
+		Route(String component, String optString, int numArgs) {
+			this.component = component;
+			this.optString = optString;
+			this.numArgs = numArgs;
+		}
+	}
+	
+	/**
+	 * The dispatch index. Replaced, never modified, as components are added.
+	 */
+	private static final class Index {
+		final TrieMap<Route> longRoutes = new TrieMap<Route>();
+		final Map<Character, Route> shortRoutes = new HashMap<Character, Route>();
+		// option strings shared by several components, and their namespaced forms
+		final Map<String, List<String>> ambiguous = new HashMap<String, List<String>>();
+	}
+	
+	private final Map<String, ArgumentParser> components;
+	private volatile Index index;
+	private String prog;
+	private boolean exitOnError = true;
+	private boolean allowInterspersedArgs = true;
+	
+	public CompositeParser() {
+		this.components = new LinkedHashMap<String, ArgumentParser>();
+		this.index = new Index();
+	}
+	
+	/**
+	 * Adds a component, whose options become part of the dispatch index.
+	 * 
+	 * @param name		the name of the component, which is the namespace of its options
+	 * @param parser	the component's parser
+	 */
+	public synchronized void add(String name, ArgumentParser parser) {
+		if (name.isEmpty() || name.indexOf('=') >= 0 || name.startsWith("-"))
+			throw new IllegalArgumentException("Invalid component name: " + name);
+		if (components.containsKey(name))
+			throw new IllegalArgumentException("Component " + name + " was already added");
+		components.put(name, parser);
+		index = buildIndex();
+	}
+	
+	private Index buildIndex() {
+		Index idx = new Index();
+		Map<String, List<Route>> bare = new LinkedHashMap<String, List<Route>>();
+		for (Entry<String, ArgumentParser> component : components.entrySet()) {
+			OptionRegistry options = component.getValue().currentOptions();
+			for (OptionHandler opt : options.mainGroup) {
+				if (opt instanceof HelpOptionHandler)
+					continue;
+				for (String optString : opt.getOptionStrings()) {
+					String name = ArgumentParser.stripPrefix(optString);
+					boolean isLong = ArgumentParser.isLongOpt(optString);
+					// option strings may have been taken over by later options
+					if ((isLong ? options.longOpts.get(name) : options.shortOpts.get(name.charAt(0))) != opt)
+						continue;
+					Route route = new Route(component.getKey(), optString, opt.getNumArgs());
+					idx.longRoutes.put(component.getKey() + "." + name, route);
+					List<Route> routes = bare.get(optString);
+					if (routes == null) {
+						routes = new ArrayList<Route>(1);
+						bare.put(optString, routes);
+					}
+					routes.add(route);
+				}
+			}
+		}
+		for (Entry<String, List<Route>> e : bare.entrySet()) {
+			String optString = e.getKey();
+			String name = ArgumentParser.stripPrefix(optString);
+			if (e.getValue().size() > 1) {
+				List<String> namespaced = new ArrayList<String>();
+				for (Route route : e.getValue()) {
+					namespaced.add("--" + route.component + "." + name);
+				}
+				idx.ambiguous.put(optString, namespaced);
+			} else if (ArgumentParser.isLongOpt(optString) && idx.longRoutes.containsKey(name)) {
+				// e.g. a component named "a" with an option "--b" and another with an option "--a.b"
+				idx.ambiguous.put(optString, Collections.singletonList("--" + e.getValue().get(0).component + "." + name));
+			} else if (ArgumentParser.isLongOpt(optString)) {
+				idx.longRoutes.put(name, e.getValue().get(0));
+			} else {
+				idx.shortRoutes.put(name.charAt(0), e.getValue().get(0));
+			}
+		}
+		return idx;
+	}
+	
+	/**
+	 * Parses the arguments, routing each option to its component.
+	 * 
+	 * @param args the arguments to parse
+	 * @return the results of parsing, for each component
+	 */
+	public CompositeValues parseArgs(String... args) {
+		Index idx = index;
+		Map<String, ParserSession> sessions = new LinkedHashMap<String, ParserSession>();
+		synchronized (this) {
+			for (Entry<String, ArgumentParser> component : components.entrySet()) {
+				sessions.put(component.getKey(), component.getValue().newSession());
+			}
+		}
+		List<String> posArgs = new ArrayList<String>();
+		boolean optionsEnded = false;
+		int i = 0;
+		while (i < args.length) {
+			String arg = args[i++];
+			if (optionsEnded || arg.equals("-") || !arg.startsWith("-")) {
+				posArgs.add(arg);
+				if (!allowInterspersedArgs)
+					optionsEnded = true;
+			} else if (arg.equals("--")) {
+				optionsEnded = true;
+			} else if (ArgumentParser.isLongOpt(arg)) {
+				int pos = arg.indexOf('=');
+				String name = arg.substring(2, pos > -1 ? pos : arg.length());
+				Route route = longRoute(idx, name);
+				if (route == null) {
+					if (name.equals("help") && !idx.ambiguous.containsKey("--help"))
+						printHelpAndExit();
+					error(idx, "--" + name);
+				}
+				ParserSession session = sessions.get(route.component);
+				session.feed(route.optString);
+				int needed = route.numArgs;
+				if (pos > -1) {
+					session.feed(arg.substring(pos + 1));
+					needed--;
+				}
+				i = feedArgs(session, args, i, needed);
+			} else {
+				for (int charIndex = 1; charIndex < arg.length(); charIndex++) {
+					char c = arg.charAt(charIndex);
+					Route route = idx.shortRoutes.get(c);
+					if (route == null) {
+						if (c == 'h' && !idx.ambiguous.containsKey("-h"))
+							printHelpAndExit();
+						error(idx, "-" + c);
+					}
+					ParserSession session = sessions.get(route.component);
+					session.feed(route.optString);
+					if (route.numArgs > 0) {	// the rest of the string, if any, is the first argument
+						int needed = route.numArgs;
+						if (charIndex + 1 < arg.length()) {
+							session.feed(arg.substring(charIndex + 1));
+							needed--;
+						}
+						i = feedArgs(session, args, i, needed);
+						break;
+					}
+				}
+			}
+		}
+		Map<String, ArgumentValues> values = new LinkedHashMap<String, ArgumentValues>();
+		for (Entry<String, ParserSession> session : sessions.entrySet()) {
+			values.put(session.getKey(), session.getValue().finish());
+		}
+		return new CompositeValues(values, posArgs.toArray(new String[posArgs.size()]));
+	}
+	
+	/**
+	 * Finds an option by its long name or, as <code>ArgumentParser</code> does, by an unambiguous prefix of it.
+	 */
+	private static Route longRoute(Index idx, String name) {
+		Route route = idx.longRoutes.get(name);
+		if (route == null && !idx.ambiguous.containsKey("--" + name)) {
+			Entry<CharSequence, Route> e = idx.longRoutes.getEntryFromUnambiguousPrefix(name);
+			if (e != null)
+				route = e.getValue();
+		}
+		return route;
+	}
+	
+	/**
+	 * Feeds the arguments of an option to its component; any that are missing are reported by the component.
+	 * 
+	 * @return the index of the argument after the option's arguments
+	 */
+	private static int feedArgs(ParserSession session, String[] args, int i, int needed) {
+		for (; needed > 0 && i < args.length; needed--) {
+			session.feed(args[i++]);
+		}
+		return i;
+	}
+	
+	private void error(Index idx, String optString) {
+		List<String> namespaced = idx.ambiguous.get(optString);
+		String msg;
+		if (namespaced == null)
+			msg = "The option " + optString + " does not exist.";
+		else
+			msg = "The option " + optString + " is ambiguous; use one of " + namespaced;
+		System.err.println(msg);
+		System.out.println(helpString());
+		if (exitOnError)
+			System.exit(-1);
+		throw new IllegalArgumentException(msg + "\n" + helpString());
+	}
+	
+	private void printHelpAndExit() {
+		String help = helpString();
+		System.out.println(help);
+		if (exitOnError)
+			System.exit(0);
+		throw ExitRequestedError.help(help);
+	}
+	
+	/**
+	 * @return the help messages of the components, each headed by the component's name
+	 */
+	public synchronized String helpString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("Usage: ").append(getProg()).append(" [options] args\n");
+		for (Entry<String, ArgumentParser> component : components.entrySet()) {
+			sb.append('\n').append(component.getKey()).append(" (--").append(component.getKey()).append(".*):\n");
+			sb.append(component.getValue().helpString());
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * @return the names of the components, in the order they were added
+	 */
+	public synchronized List<String> getComponents() {
+		return new ArrayList<String>(components.keySet());
+	}
+	
+	/**
+	 * @param name the name of the component
+	 * @return the component's parser; null if there is no such component
+	 */
+	public synchronized ArgumentParser getComponent(String name) {
+		return components.get(name);
+	}
+	
+	/**
+	 * Determines whether the program should exit (default) or throw an exception
+	 * when an option does not exist or is ambiguous, or help is requested, in
+	 * which case an {@link ExitRequestedError} is thrown once help is printed.
+	 * Errors within a component are reported according to the component's own setting.
+	 * 
+	 * @see ArgumentParser#setExitOnError(boolean)
+	 */
+	public void setExitOnError(boolean exitOnError) {
+		this.exitOnError = exitOnError;
+	}
+	
+	/**
+	 * @return true if the program exits when an option does not exist or is ambiguous
+	 */
+	public boolean isExitOnError() {
+		return exitOnError;
+	}
+	
+	/**
+	 * @param allowInterspersedArgs whether options may follow positional arguments (default)
+	 * 
+	 * @see ArgumentParser#setAllowInterspersedArgs(boolean)
+	 */
+	public void setAllowInterspersedArgs(boolean allowInterspersedArgs) {
+		this.allowInterspersedArgs = allowInterspersedArgs;
+	}
+	
+	/**
+	 * @return true if options may follow positional arguments
+	 */
+	public boolean getAllowInterspersedArgs() {
+		return allowInterspersedArgs;
+	}
+	
+	/**
+	 * @return the name of the program in the help message; by default, that of the first component
+	 */
+	public synchronized String getProg() {
+		if (prog == null && !components.isEmpty())
+			return components.values().iterator().next().getProg();
+		return prog;
+	}
+	
+	/**
+	 * @param prog the name of the program in the help message
+	 */
+	public synchronized void setProg(String prog) {
+		this.prog = prog;
+	}
+}
@@ -0,0 +1,56 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The results of parsing with a {@link CompositeParser}: those of each
+ * component, and the positional arguments, which belong to none of them.
+ */
+public final class CompositeValues {
+	
+	private final Map<String, ArgumentValues> values;
+	private final String[] posArgs;
+	
+	CompositeValues(Map<String, ArgumentValues> values, String[] posArgs) {
+		this.values = Collections.unmodifiableMap(values);
+		this.posArgs = posArgs;
+	}
+	
+	/**
+	 * @param component the name of the component
+	 * @return the results of parsing for the component; null if there is no such component
+	 */
+	public ArgumentValues getValues(String component) {
+		return values.get(component);
+	}
+	
+	/**
+	 * @return the results of parsing for each component, by name
+	 */
+	public Map<String, ArgumentValues> getAllValues() {
+		return values;
+	}
+	
+	/**
+	 * @return the positional arguments
+	 */
+	public String[] getPositionalArgs() {
+		return posArgs;
+	}
+}
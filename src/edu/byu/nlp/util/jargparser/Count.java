@@ -42,12 +42,18 @@ public class Count implements OptionHandlerFactory {
 
 			@Override
 			public void performAction(String optName, Object[] optArgs, ArgumentParser p, ParserState state) {
+				Object target = getTarget(state);
 				try {
-				int nextValue = 1;								// Initialize to one in case of null
-				Integer curValue = (Integer) var.get(optObject);
-				if (curValue != null)
-					nextValue = curValue + 1;
-					var.set(optObject, nextValue);
+					StagedValues staged = state == null ? null : state.getStagedValues();
+					if (staged != null) {
+						staged.increment(this, var, target);
+						return;
+					}
+					int nextValue = 1;								// Initialize to one in case of null
+					Integer curValue = (Integer) var.get(target);
+					if (curValue != null)
+						nextValue = curValue + 1;
+					var.set(target, nextValue);
 				} catch (Exception e) {
 					throw new RuntimeException(e);
 				}
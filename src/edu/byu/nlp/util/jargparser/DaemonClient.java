@@ -0,0 +1,125 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * A client of a {@link ParseDaemon}, which runs a program in the daemon as if
+ * it had been run in a new JVM. From the command-line:
+ * 
+ * <p><blockquote><pre>
+ * 	java edu.byu.nlp.util.jargparser.DaemonClient PORT_FILE PROGRAM [ARGS...]
+ * </pre></blockquote></p>
+ * 
+ * <p>Since the point of the daemon is to avoid starting a JVM, this class mostly
+ * serves as a reference for clients in other languages; see {@link ParseDaemon}
+ * for the protocol.</p>
+ */
+public class DaemonClient {
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: DaemonClient PORT_FILE PROGRAM [ARGS...]");
+			System.exit(-1);
+		}
+		int status = run(new File(args[0]), args[1], Arrays.copyOfRange(args, 2, args.length),
+				System.getenv(), new File("").getAbsoluteFile(), System.in, System.out, System.err);
+		System.exit(status);
+	}
+	
+	/**
+	 * Runs a program in the daemon, forwarding the streams until it finishes.
+	 * 
+	 * @param portFile	the file the daemon wrote its port and token to
+	 * @param program	the name of the program
+	 * @param args		the program's arguments
+	 * @param env		the environment variables to forward
+	 * @param cwd		the working directory to forward
+	 * @return the program's exit status
+	 */
+	public static int run(File portFile, String program, String[] args, Map<String, String> env, File cwd,
+			final InputStream in, OutputStream out, OutputStream err) throws IOException {
+		String[] portAndToken = new String(Files.readAllBytes(portFile.toPath()), StandardCharsets.UTF_8).trim().split(" ");
+		try (Socket socket = new Socket(InetAddress.getByName(null), Integer.parseInt(portAndToken[0]))) {
+			final DataOutputStream toDaemon = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			ParseDaemon.writeString(toDaemon, portAndToken[1]);
+			ParseDaemon.writeString(toDaemon, program);
+			toDaemon.writeInt(args.length);
+			for (String arg : args)
+				ParseDaemon.writeString(toDaemon, arg);
+			toDaemon.writeInt(env.size());
+			for (Map.Entry<String, String> e : env.entrySet()) {
+				ParseDaemon.writeString(toDaemon, e.getKey());
+				ParseDaemon.writeString(toDaemon, e.getValue());
+			}
+			ParseDaemon.writeString(toDaemon, cwd.getPath());
+			toDaemon.flush();
+			
+			Thread pump = new Thread("jargparser-client-stdin") {
+				@Override
+				public void run() {
+					byte[] buf = new byte[8192];
+					try {
+						int n;
+						while ((n = in.read(buf)) > 0) {
+							toDaemon.writeInt(n);
+							toDaemon.write(buf, 0, n);
+							toDaemon.flush();
+						}
+						toDaemon.writeInt(0);
+						toDaemon.flush();
+					} catch (IOException e) {
+						// the program finished without reading all of its input
+					}
+				}
+			};
+			pump.setDaemon(true);
+			pump.start();
+			
+			DataInputStream fromDaemon = new DataInputStream(socket.getInputStream());
+			byte[] buf = new byte[8192];
+			while (true) {
+				int stream = fromDaemon.readByte();
+				if (stream == ParseDaemon.EXIT) {
+					out.flush();
+					err.flush();
+					return fromDaemon.readInt();
+				}
+				OutputStream dest = stream == ParseDaemon.STDOUT ? out : err;
+				for (int len = fromDaemon.readInt(); len > 0; ) {
+					int n = fromDaemon.read(buf, 0, Math.min(len, buf.length));
+					if (n < 0)
+						throw new IOException("The daemon closed the connection");
+					dest.write(buf, 0, n);
+					len -= n;
+				}
+			}
+		}
+	}
+}
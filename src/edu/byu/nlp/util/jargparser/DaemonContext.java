@@ -0,0 +1,90 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.Map;
+
+/**
+ * The standard streams, environment and working directory of a client of a
+ * {@link ParseDaemon}, for the duration of a single run.
+ * 
+ * @see DaemonMain
+ */
+public class DaemonContext {
+
+	private final InputStream in;
+	private final PrintStream out;
+	private final PrintStream err;
+	private final Map<String, String> environment;
+	private final File workingDirectory;
+	
+	DaemonContext(InputStream in, PrintStream out, PrintStream err, Map<String, String> environment, File workingDirectory) {
+		this.in = in;
+		this.out = out;
+		this.err = err;
+		this.environment = environment;
+		this.workingDirectory = workingDirectory;
+	}
+	
+	/**
+	 * @return the client's standard input
+	 */
+	public InputStream getIn() {
+		return in;
+	}
+	
+	/**
+	 * @return the client's standard output
+	 */
+	public PrintStream getOut() {
+		return out;
+	}
+	
+	/**
+	 * @return the client's standard error
+	 */
+	public PrintStream getErr() {
+		return err;
+	}
+	
+	/**
+	 * @return the client's environment variables; unmodifiable
+	 */
+	public Map<String, String> getEnvironment() {
+		return environment;
+	}
+	
+	/**
+	 * @return the client's working directory
+	 */
+	public File getWorkingDirectory() {
+		return workingDirectory;
+	}
+	
+	/**
+	 * Resolves a path given by the client against its working directory.
+	 * 
+	 * @param path an absolute path or one relative to the client's working directory
+	 * @return the file
+	 */
+	public File resolve(String path) {
+		File f = new File(path);
+		return f.isAbsolute() ? f : new File(workingDirectory, path);
+	}
+}
@@ -0,0 +1,38 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+/**
+ * The entry point of a program run by a {@link ParseDaemon}, in place of its
+ * <code>main</code> method.
+ * 
+ * @param <T> the type of the program's options
+ */
+public interface DaemonMain<T> {
+
+	/**
+	 * Runs the program. Output should go to the context's streams rather than
+	 * <code>System.out</code> and <code>System.err</code>, which other runs share,
+	 * and relative paths should be resolved against the context's working directory.
+	 * The program must not call <code>System.exit</code>.
+	 * 
+	 * @param options	the options, parsed into a new instance for this run
+	 * @param values	the results of parsing, including the positional arguments
+	 * @param context	the client's streams, environment and working directory
+	 * @return the exit status
+	 */
+	int run(T options, ArgumentValues values, DaemonContext context) throws Exception;
+}
@@ -0,0 +1,65 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+import java.util.Collection;
+
+/**
+ * The value of an option's variable when the option was added, so that it
+ * can be restored before the object is reused. Collections are restored
+ * in place, since actions such as <code>append</code> add to them.
+ * 
+ * @see ArgumentParser#reset()
+ */
+final class DefaultValue {
+	
+	final OptionHandler opt;
+	private final ReflectiveVariable var;
+	private final Object owner;
+	private final Object value;
+	// the original elements, if the value is a collection
+	private final Object[] elements;
+	
+	DefaultValue(OptionHandler opt, ReflectiveVariable var, Object owner) {
+		this.opt = opt;
+		this.var = var;
+		this.owner = owner;
+		try {
+			this.value = var.get(owner);
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+		this.elements = value instanceof Collection<?> ? ((Collection<?>) value).toArray() : null;
+	}
+	
+	@SuppressWarnings("unchecked")
+	void restore() {
+		try {
+			if (elements != null) {
+				Collection<Object> coll = (Collection<Object>) value;
+				coll.clear();
+				for (Object element : elements) {
+					coll.add(element);
+				}
+			}
+			var.set(owner, value);
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
@@ -0,0 +1,32 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+/**
+ * An option handler whose action may be deferred until all of the arguments
+ * have been parsed and then run asynchronously, e.g. a callback that loads a model.
+ * The action must not depend on the remaining arguments in the <code>ParserState</code>.
+ * 
+ * @see ArgumentParser#setCallbackExecutor(java.util.concurrent.Executor)
+ */
+public interface DeferrableOptionHandler extends OptionHandler {
+	
+	/**
+	 * @return the names of the options (the option strings, less the leading dashes)
+	 * 		whose actions must finish before this one starts
+	 */
+	String[] getDependencies();
+}
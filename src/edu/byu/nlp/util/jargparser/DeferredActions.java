@@ -0,0 +1,241 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The deferred actions of a single parse. Once parsing finishes, each action runs
+ * on the executor as soon as the actions it depends on have finished: those
+ * named by {@link DeferrableOptionHandler#getDependencies()} and earlier
+ * occurrences of the same option. If an action fails, the actions that depend on it
+ * are skipped and the first failure is reported by {@link #await()}. Actions run
+ * within the {@link OptionScope} the parse started in.
+ */
+class DeferredActions {
+	
+	private class Action implements Runnable {
+		final DeferrableOptionHandler opt;
+		final String optName;
+		final Object[] optArgs;
+		final List<Action> dependents = new ArrayList<Action>();
+		final AtomicInteger pending = new AtomicInteger();
+		volatile boolean skip;	// set if a dependency failed
+		
+		Action(DeferrableOptionHandler opt, String optName, Object[] optArgs) {
+			this.opt = opt;
+			this.optName = optName;
+			this.optArgs = optArgs;
+		}
+		
+		@Override
+		public void run() {
+			boolean ok = false;
+			try {
+				if (!skip) {
+					OptionScope.run(state.scope, new Runnable() {
+						@Override
+						public void run() {
+							opt.performAction(optName, optArgs, parser, state);
+						}
+					});
+					ok = true;
+				}
+			} catch (Throwable t) {
+				fail(t);
+			} finally {
+				finished(this, ok);
+			}
+		}
+	}
+	
+	private final ArgumentParser parser;
+	private final ParserState state;
+	private final List<Action> actions = new ArrayList<Action>();
+	private Executor executor;
+	
+	// guards the following
+	private final Object lock = new Object();
+	private int remaining;
+	private Throwable failure;
+	
+	DeferredActions(ArgumentParser parser, ParserState state) {
+		this.parser = parser;
+		this.state = state;
+	}
+	
+	/**
+	 * Records an action to run once parsing has finished.
+	 */
+	void add(DeferrableOptionHandler opt, String optName, Object[] optArgs) {
+		actions.add(new Action(opt, optName, optArgs));
+	}
+	
+	/**
+	 * Orders the actions by their dependencies, which are looked up among the options
+	 * of the parse. This is done before any values are committed, so that a parse
+	 * whose actions cannot run fails as a whole. The dependencies were checked when
+	 * the options were added, so an unknown dependency or a cycle can only come from
+	 * options added by other means, e.g. the options of a component.
+	 * 
+	 * @throws IllegalArgumentException if a dependency is not an option or the dependencies form a cycle
+	 */
+	void link() {
+		Map<OptionHandler, Action> last = new IdentityHashMap<OptionHandler, Action>();
+		for (Action a : actions) {
+			Action prev = last.put(a.opt, a);
+			if (prev != null)
+				dependsOn(a, prev);
+			for (String name : a.opt.getDependencies()) {
+				OptionHandler dep = parser.getOption(state.options, parser.toOptionString(name));
+				if (dep == null)
+					throw new IllegalArgumentException("Option " + a.optName + " must run after " + name + ", which is not an option");
+				for (Action other : actions) {
+					if (other.opt == dep && dep != a.opt)
+						dependsOn(a, other);
+				}
+			}
+		}
+		checkAcyclic();
+	}
+	
+	/**
+	 * Starts running the actions whose dependencies have been met.
+	 * 
+	 * @see #link()
+	 */
+	void dispatch(Executor executor) {
+		this.executor = executor;
+		List<Action> ready = new ArrayList<Action>();
+		for (Action a : actions) {
+			if (a.pending.get() == 0)
+				ready.add(a);
+		}
+		synchronized (lock) {
+			remaining = actions.size();
+		}
+		for (Action a : ready) {
+			submit(a);
+		}
+	}
+	
+	private static void dependsOn(Action a, Action dep) {
+		dep.dependents.add(a);
+		a.pending.incrementAndGet();
+	}
+	
+	private void checkAcyclic() {
+		Map<Action, int[]> pending = new IdentityHashMap<Action, int[]>();
+		List<Action> ready = new ArrayList<Action>();
+		for (Action a : actions) {
+			pending.put(a, new int[]{a.pending.get()});
+			if (a.pending.get() == 0)
+				ready.add(a);
+		}
+		int visited = 0;
+		while (!ready.isEmpty()) {
+			Action a = ready.remove(ready.size() - 1);
+			visited++;
+			for (Action d : a.dependents) {
+				if (--pending.get(d)[0] == 0)
+					ready.add(d);
+			}
+		}
+		if (visited < actions.size())
+			throw new IllegalArgumentException("The options' \"after\" dependencies form a cycle");
+	}
+	
+	private void submit(Action a) {
+		try {
+			executor.execute(a);
+		} catch (RejectedExecutionException e) {
+			fail(e);
+			finished(a, false);
+		}
+	}
+	
+	private void finished(Action a, boolean ok) {
+		for (Action d : a.dependents) {
+			if (!ok)
+				d.skip = true;
+			if (d.pending.decrementAndGet() == 0)
+				submit(d);
+		}
+		synchronized (lock) {
+			if (--remaining == 0)
+				lock.notifyAll();
+		}
+	}
+	
+	private void fail(Throwable t) {
+		synchronized (lock) {
+			if (failure == null)
+				failure = t;
+		}
+	}
+	
+	boolean isDone() {
+		synchronized (lock) {
+			return remaining == 0;
+		}
+	}
+	
+	/**
+	 * Waits for all actions to finish.
+	 * 
+	 * @throws ExecutionException if an action failed
+	 */
+	void await() throws InterruptedException, ExecutionException {
+		synchronized (lock) {
+			while (remaining > 0) {
+				lock.wait();
+			}
+			checkFailure();
+		}
+	}
+	
+	/**
+	 * Waits at most the specified time for all actions to finish.
+	 * 
+	 * @throws ExecutionException if an action failed
+	 */
+	void await(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		synchronized (lock) {
+			while (remaining > 0) {
+				long left = deadline - System.nanoTime();
+				if (left <= 0)
+					throw new TimeoutException();
+				TimeUnit.NANOSECONDS.timedWait(lock, left);
+			}
+			checkFailure();
+		}
+	}
+	
+	private void checkFailure() throws ExecutionException {
+		if (failure != null)
+			throw new ExecutionException(failure);
+	}
+}
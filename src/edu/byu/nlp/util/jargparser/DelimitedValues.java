@@ -0,0 +1,472 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Parses a single argument holding a delimited list of values, e.g.
+ * <code>--layers=512,256,128</code>, directly into an array of primitives
+ * or a collection. The argument is scanned once; numbers are parsed in place
+ * rather than splitting the argument into a <code>String</code> per element.
+ * 
+ * <p>Integral elements may also be inclusive ranges of the form
+ * <code>START-END</code> or <code>START-END:STEP</code>, e.g. <code>1-100:5</code>
+ * expands to 1, 6, ..., 96. A range counts down if START is greater than END.
+ * Whitespace around elements is ignored.</p>
+ * 
+ * @see edu.byu.nlp.util.jargparser.annotations.Option#separator()
+ */
+public class DelimitedValues {
+	
+	// powers of ten that are exactly representable as doubles
+	private static final double[] POW10 = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+	// powers of ten that are exactly representable as floats
+	private static final float[] FLOAT_POW10 = {
+		1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f };
+	
+	private DelimitedValues() {
+	}
+	
+	/**
+	 * Parses a delimited list of <code>int</code>s, which may include ranges.
+	 */
+	public static int[] parseInts(String arg, String separator) {
+		return parseInts(arg, separator, ParseLimits.UNLIMITED);
+	}
+	
+	/**
+	 * Parses a delimited list of <code>int</code>s, which may include ranges, failing as soon as
+	 * there are more than <code>maxElements</code> of them.
+	 */
+	public static int[] parseInts(String arg, String separator, int maxElements) {
+		Scanner sc = new Scanner(arg, separator);
+		int[] values = new int[Math.min(sc.estimateSize(), maxElements)];
+		int n = 0;
+		while (sc.nextElement()) {
+			sc.parseRange(Integer.MIN_VALUE, Integer.MAX_VALUE);
+			ParseLimits.checkCollectionSize(n + sc.count, maxElements);
+			if (n + sc.count > values.length) {
+				values = Arrays.copyOf(values, grow(values.length, n + sc.count));
+			}
+			for (long i = 0, v = sc.first; i < sc.count; i++, v += sc.step)
+				values[n++] = (int) v;
+		}
+		return n == values.length ? values : Arrays.copyOf(values, n);
+	}
+	
+	/**
+	 * Parses a delimited list of <code>long</code>s, which may include ranges.
+	 */
+	public static long[] parseLongs(String arg, String separator) {
+		return parseLongs(arg, separator, ParseLimits.UNLIMITED);
+	}
+	
+	/**
+	 * Parses a delimited list of <code>long</code>s, which may include ranges, failing as soon as
+	 * there are more than <code>maxElements</code> of them.
+	 */
+	public static long[] parseLongs(String arg, String separator, int maxElements) {
+		Scanner sc = new Scanner(arg, separator);
+		long[] values = new long[Math.min(sc.estimateSize(), maxElements)];
+		int n = 0;
+		while (sc.nextElement()) {
+			sc.parseRange(Long.MIN_VALUE, Long.MAX_VALUE);
+			ParseLimits.checkCollectionSize(n + sc.count, maxElements);
+			if (n + sc.count > values.length) {
+				values = Arrays.copyOf(values, grow(values.length, n + sc.count));
+			}
+			for (long i = 0, v = sc.first; i < sc.count; i++, v += sc.step)
+				values[n++] = v;
+		}
+		return n == values.length ? values : Arrays.copyOf(values, n);
+	}
+	
+	/**
+	 * Parses a delimited list of <code>float</code>s.
+	 */
+	public static float[] parseFloats(String arg, String separator) {
+		return parseFloats(arg, separator, ParseLimits.UNLIMITED);
+	}
+	
+	/**
+	 * Parses a delimited list of <code>float</code>s, failing as soon as
+	 * there are more than <code>maxElements</code> of them.
+	 */
+	public static float[] parseFloats(String arg, String separator, int maxElements) {
+		Scanner sc = new Scanner(arg, separator);
+		float[] values = new float[Math.min(sc.estimateSize(), maxElements)];
+		int n = 0;
+		while (sc.nextElement()) {
+			if (n == values.length)
+				ParseLimits.checkCollectionSize(n + 1, maxElements);
+			values[n++] = sc.parseFloat();
+		}
+		return n == values.length ? values : Arrays.copyOf(values, n);
+	}
+	
+	/**
+	 * Parses a delimited list of <code>double</code>s.
+	 */
+	public static double[] parseDoubles(String arg, String separator) {
+		return parseDoubles(arg, separator, ParseLimits.UNLIMITED);
+	}
+	
+	/**
+	 * Parses a delimited list of <code>double</code>s, failing as soon as
+	 * there are more than <code>maxElements</code> of them.
+	 */
+	public static double[] parseDoubles(String arg, String separator, int maxElements) {
+		Scanner sc = new Scanner(arg, separator);
+		double[] values = new double[Math.min(sc.estimateSize(), maxElements)];
+		int n = 0;
+		while (sc.nextElement()) {
+			if (n == values.length)
+				ParseLimits.checkCollectionSize(n + 1, maxElements);
+			values[n++] = sc.parseDouble();
+		}
+		return n == values.length ? values : Arrays.copyOf(values, n);
+	}
+	
+	/**
+	 * Parses a delimited list into an array of primitives.
+	 * 
+	 * @param componentType one of <code>int.class</code>, <code>long.class</code>, <code>float.class</code> or <code>double.class</code>
+	 * @return an array of <code>componentType</code>
+	 */
+	public static Object parseArray(String arg, String separator, Class<?> componentType) {
+		return parseArray(arg, separator, componentType, ParseLimits.UNLIMITED);
+	}
+	
+	/**
+	 * Parses a delimited list into an array of primitives with at most <code>maxElements</code> elements.
+	 * 
+	 * @param componentType one of <code>int.class</code>, <code>long.class</code>, <code>float.class</code> or <code>double.class</code>
+	 * @return an array of <code>componentType</code>
+	 */
+	public static Object parseArray(String arg, String separator, Class<?> componentType, int maxElements) {
+		if (componentType == Integer.TYPE)
+			return parseInts(arg, separator, maxElements);
+		if (componentType == Long.TYPE)
+			return parseLongs(arg, separator, maxElements);
+		if (componentType == Float.TYPE)
+			return parseFloats(arg, separator, maxElements);
+		if (componentType == Double.TYPE)
+			return parseDoubles(arg, separator, maxElements);
+		throw new IllegalArgumentException("Delimited lists of " + componentType + " are not supported");
+	}
+	
+	/**
+	 * @return true if {@link #parseArray(String, String, Class)} supports the component type
+	 */
+	public static boolean isSupportedArrayType(Class<?> componentType) {
+		return componentType == Integer.TYPE || componentType == Long.TYPE ||
+				componentType == Float.TYPE || componentType == Double.TYPE;
+	}
+	
+	/**
+	 * Parses a delimited list and adds the elements to a collection.
+	 * Numeric elements are parsed in place; elements of other types
+	 * are converted with the parser's <code>OptionArgumentParser</code> for <code>type</code>.
+	 * The size of the collection is limited by the parser's {@link ParseLimits}.
+	 * 
+	 * @param coll		the collection to add to
+	 * @param arg		the delimited list
+	 * @param separator	the separator between elements
+	 * @param type		the type of the elements
+	 * @param p			the parser that holds the <code>OptionArgumentParser</code>s
+	 */
+	public static void addAll(Collection<Object> coll, String arg, String separator, Class<?> type, ArgumentParser p) {
+		addAll(coll, coll.size(), arg, separator, type, p);
+	}
+	
+	/**
+	 * Parses a delimited list and adds the elements to a collection that stands
+	 * in for another, e.g. a list of values to be staged, limiting the elements
+	 * added as if they were added to the other collection.
+	 * 
+	 * @param coll		the collection to add to
+	 * @param size		the size of the collection the elements will end up in
+	 * @param arg		the delimited list
+	 * @param separator	the separator between elements
+	 * @param type		the type of the elements
+	 * @param p			the parser that holds the <code>OptionArgumentParser</code>s
+	 */
+	public static void addAll(Collection<Object> coll, int size, String arg, String separator, Class<?> type, ArgumentParser p) {
+		int maxElements = Math.max(p.getLimits().getMaxCollectionSize() - size, 0);
+		if (type == Integer.class) {
+			int[] values = parseInts(arg, separator, maxElements);
+			presize(coll, values.length);
+			for (int v : values)
+				coll.add(v);
+		} else if (type == Long.class) {
+			long[] values = parseLongs(arg, separator, maxElements);
+			presize(coll, values.length);
+			for (long v : values)
+				coll.add(v);
+		} else if (type == Float.class) {
+			float[] values = parseFloats(arg, separator, maxElements);
+			presize(coll, values.length);
+			for (float v : values)
+				coll.add(v);
+		} else if (type == Double.class) {
+			double[] values = parseDoubles(arg, separator, maxElements);
+			presize(coll, values.length);
+			for (double v : values)
+				coll.add(v);
+		} else {
+			OptionArgumentParser<?> oap = p.getOptionArgumentParser(type);
+			if (oap == null)
+				throw new IllegalArgumentException("No parser for " + type);
+			Scanner sc = new Scanner(arg, separator);
+			presize(coll, Math.min(sc.estimateSize(), maxElements));
+			for (int n = 1; sc.nextElement(); n++) {
+				ParseLimits.checkCollectionSize(n, maxElements);
+				coll.add(oap.parse(arg.substring(sc.start, sc.end)));
+			}
+		}
+	}
+	
+	private static void presize(Collection<Object> coll, int additional) {
+		if (coll instanceof ArrayList)
+			((ArrayList<Object>) coll).ensureCapacity(coll.size() + additional);
+	}
+	
+	private static int grow(int capacity, long needed) {
+		if (needed > Integer.MAX_VALUE - 8)
+			throw new IllegalArgumentException("Too many values");
+		return (int) Math.max(needed, capacity + (capacity >> 1));
+	}
+	
+	/**
+	 * Walks the elements of a delimited list and parses each in place.
+	 */
+	private static class Scanner {
+		private final String arg;
+		private final String separator;
+		private int pos;
+		
+		// bounds of the current element
+		int start;
+		int end;
+		
+		// the current range; a single value is a range of one
+		long first;
+		long step;
+		long count;
+		
+		// sign and number of fraction digits of the current decimal
+		private boolean negative;
+		private int scale;
+		
+		Scanner(String arg, String separator) {
+			if (separator.isEmpty())
+				throw new IllegalArgumentException("The separator must not be empty");
+			this.arg = arg;
+			this.separator = separator;
+		}
+		
+		/**
+		 * An upper bound on the number of elements, not counting range expansion.
+		 */
+		int estimateSize() {
+			return arg.length() / (separator.length() + 1) + 1;
+		}
+		
+		/**
+		 * Advances to the next element, trimming whitespace.
+		 * 
+		 * @return false if there are no more elements
+		 */
+		boolean nextElement() {
+			if (pos > arg.length() || (pos == 0 && arg.trim().isEmpty()))
+				return false;
+			int sep = arg.indexOf(separator, pos);
+			if (sep < 0)
+				sep = arg.length();
+			start = pos;
+			end = sep;
+			pos = sep + separator.length();
+			if (sep == arg.length())
+				pos = arg.length() + 1;
+			
+			while (start < end && Character.isWhitespace(arg.charAt(start)))
+				start++;
+			while (end > start && Character.isWhitespace(arg.charAt(end - 1)))
+				end--;
+			if (start == end)
+				throw error("empty element");
+			return true;
+		}
+		
+		/**
+		 * Parses the current element as a single integer or a range of integers
+		 * between <code>min</code> and <code>max</code>.
+		 */
+		void parseRange(long min, long max) {
+			int i = start;
+			int numEnd = integerEnd(i);
+			first = parseLong(i, numEnd, min, max);
+			step = 1;
+			count = 1;
+			if (numEnd == end)
+				return;
+			if (arg.charAt(numEnd) != '-')
+				throw error("expected a number or a range");
+			
+			i = numEnd + 1;
+			numEnd = integerEnd(i);
+			long last = parseLong(i, numEnd, min, max);
+			if (numEnd < end) {
+				if (arg.charAt(numEnd) != ':')
+					throw error("expected a step");
+				step = parseLong(numEnd + 1, end, 0, Long.MAX_VALUE);
+				if (step == 0)
+					throw error("the step must be positive");
+			}
+			
+			// compute the number of values without overflowing
+			long lo = Math.min(first, last);
+			long hi = Math.max(first, last);
+			long span = hi - lo;
+			if (span < 0) 
+				throw error("range too large");
+			count = span / step + 1;
+			if (count > Integer.MAX_VALUE)
+				throw error("range too large");
+			if (first > last)
+				step = -step;
+		}
+		
+		/**
+		 * Finds the end of the integer (with optional sign) starting at <code>i</code>.
+		 */
+		private int integerEnd(int i) {
+			if (i < end && (arg.charAt(i) == '-' || arg.charAt(i) == '+'))
+				i++;
+			while (i < end && Character.isDigit(arg.charAt(i)))
+				i++;
+			return i;
+		}
+		
+		/**
+		 * Parses the decimal integer in <code>[from, to)</code>, accumulating negatively
+		 * as <code>Long.parseLong</code> does so that <code>min</code> can be represented.
+		 */
+		private long parseLong(int from, int to, long min, long max) {
+			int i = from;
+			boolean negative = false;
+			if (i < to && (arg.charAt(i) == '-' || arg.charAt(i) == '+')) {
+				negative = arg.charAt(i) == '-';
+				i++;
+			}
+			if (i == to)
+				throw error("expected a number");
+			
+			long limit = negative ? min : -max;
+			long multmin = limit / 10;
+			long result = 0;
+			for (; i < to; i++) {
+				int digit = Character.digit(arg.charAt(i), 10);
+				if (digit < 0)
+					throw error("expected a number");
+				if (result < multmin)
+					throw error("value out of range");
+				result *= 10;
+				if (result < limit + digit)
+					throw error("value out of range");
+				result -= digit;
+			}
+			return negative ? result : -result;
+		}
+		
+		/**
+		 * Parses the current element as a double. Short decimals are converted exactly
+		 * with a single (correctly rounded) division; anything else falls back to
+		 * <code>Double.parseDouble</code>.
+		 */
+		double parseDouble() {
+			long mantissa = mantissa(15);
+			if (mantissa >= 0 && scale < POW10.length) {
+				double value = mantissa / POW10[scale];
+				return negative ? -value : value;
+			}
+			try {
+				return Double.parseDouble(arg.substring(start, end));
+			} catch (NumberFormatException e) {
+				throw error("expected a number");
+			}
+		}
+		
+		/**
+		 * Parses the current element as a float, using the same fast path as {@link #parseDouble()}.
+		 */
+		float parseFloat() {
+			long mantissa = mantissa(7);
+			if (mantissa >= 0 && scale < FLOAT_POW10.length) {
+				float value = mantissa / FLOAT_POW10[scale];
+				return negative ? -value : value;
+			}
+			try {
+				return Float.parseFloat(arg.substring(start, end));
+			} catch (NumberFormatException e) {
+				throw error("expected a number");
+			}
+		}
+		
+		/**
+		 * Reads a plain decimal (optional sign, digits, optional fraction) with at most
+		 * <code>maxDigits</code> digits, setting {@link #negative} and {@link #scale}.
+		 * 
+		 * @return the digits as an integer, or -1 if the fast path does not apply
+		 */
+		private long mantissa(int maxDigits) {
+			int i = start;
+			negative = false;
+			if (arg.charAt(i) == '-' || arg.charAt(i) == '+') {
+				negative = arg.charAt(i) == '-';
+				i++;
+			}
+			long mantissa = 0;
+			int digits = 0;
+			scale = 0;
+			boolean point = false;
+			for (; i < end; i++) {
+				char c = arg.charAt(i);
+				if (c == '.' && !point) {
+					point = true;
+				} else if (c >= '0' && c <= '9') {
+					if (++digits > maxDigits)
+						return -1;
+					mantissa = mantissa * 10 + (c - '0');
+					if (point)
+						scale++;
+				} else {
+					return -1;
+				}
+			}
+			return digits == 0 ? -1 : mantissa;
+		}
+		
+		private IllegalArgumentException error(String msg) {
+			return new IllegalArgumentException("Invalid list element \"" + arg.substring(start, end) + "\": " + msg);
+		}
+	}
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+/**
+ * Thrown instead of printing and exiting when help or the version is requested
+ * during a parse that must not exit, e.g. by
+ * {@link ArgumentParser#tryParseArgs(String...)} or
+ * {@link ArgumentParser#parseAll(java.util.List, TargetFactory)}, and by
+ * {@link ArgumentParser#parseArgs(String...)} once it has answered a shell
+ * completion query without exiting, or by {@link CompositeParser#parseArgs(String...)}
+ * once it has printed help without exiting.
+ * The text is only rendered when asked for.
+ */
+public class ExitRequestedError extends IllegalArgumentException {
+
+	private static final long serialVersionUID = 1L;
+	
+	private final ParseOutcome.Kind kind;
+	private transient final ArgumentParser parser;
+	// the version string, before "%prog" is replaced, the completion candidates, or help without a parser
+	private transient final String text;
+	
+	private ExitRequestedError(String message, ParseOutcome.Kind kind, ArgumentParser parser, String text) {
+		super(message);
+		this.kind = kind;
+		this.parser = parser;
+		this.text = text;
+	}
+	
+	static ExitRequestedError help(ArgumentParser parser) {
+		return new ExitRequestedError("Help was requested", ParseOutcome.Kind.HELP, parser, null);
+	}
+	
+	/**
+	 * @param helpText the help message, e.g. of a parser made of several parsers
+	 */
+	static ExitRequestedError help(String helpText) {
+		return new ExitRequestedError("Help was requested", ParseOutcome.Kind.HELP, null, helpText);
+	}
+	
+	static ExitRequestedError version(ArgumentParser parser, String version) {
+		return new ExitRequestedError("The version was requested", ParseOutcome.Kind.VERSION, parser, version);
+	}
+	
+	static ExitRequestedError completion(ArgumentParser parser, String candidates) {
+		return new ExitRequestedError("Completion was requested", ParseOutcome.Kind.COMPLETION, parser, candidates);
+	}
+	
+	/**
+	 * @return what was requested: {@link ParseOutcome.Kind#HELP}, {@link ParseOutcome.Kind#VERSION}
+	 * 		or {@link ParseOutcome.Kind#COMPLETION}
+	 */
+	public ParseOutcome.Kind getKind() {
+		return kind;
+	}
+	
+	/**
+	 * @return true if help was requested
+	 */
+	public boolean isHelp() {
+		return kind == ParseOutcome.Kind.HELP;
+	}
+	
+	/**
+	 * @return the help message, version string or completion candidates that would have been printed
+	 */
+	public String getText() {
+		switch (kind) {
+		case HELP:
+			return parser == null ? text : parser.helpString();
+		case VERSION:
+			return text.replaceAll("%prog", parser.getProg());
+		default:
+			return text;
+		}
+	}
+}
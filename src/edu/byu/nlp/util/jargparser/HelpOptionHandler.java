@@ -77,6 +77,8 @@ public class HelpOptionHandler implements OptionHandler {
 	 */
 	@Override
 	public void performAction(String optName, Object[] optArgs, ArgumentParser p, ParserState state) {
+		if (state.quiet)
+			throw ExitRequestedError.help(p);
 		System.out.println(p.helpString());
 		System.exit(0);
 	}
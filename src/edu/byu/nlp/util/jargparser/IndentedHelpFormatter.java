@@ -16,6 +16,7 @@
 package edu.byu.nlp.util.jargparser;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import edu.byu.nlp.util.Strings;
@@ -84,6 +85,38 @@ public class IndentedHelpFormatter implements HelpFormatter {
 			sb.append("\n");
 		}
 		
+		// Print sub-commands, without loading them
+		if (!parser.getCommands().isEmpty()) {
+			sb.append("\ncommands:\n");
+			for (String command : parser.getCommands()) {
+				sb.append(Strings.repeat(" ", "", TAB_SIZE));
+				sb.append(command);
+				sb.append("\n");
+			}
+		}
+		
+		// Print namespaces of components, without binding them
+		Collection<Namespace> namespaces = parser.currentOptions().namespaces.values();
+		if (!namespaces.isEmpty()) {
+			sb.append("\nnamespaces:\n");
+			for (Namespace ns : namespaces) {
+				String optionStrings = "--" + ns.name + ".*";
+				sb.append(Strings.repeat(" ", "", TAB_SIZE));
+				sb.append(optionStrings);
+				if (!ns.help.isEmpty()) {
+					if (optionStrings.length() > MAX_OPT_STRINGS_LENGTH) {
+						sb.append("\n");
+						sb.append(Strings.repeat(" ", "", MAX_OPT_STRINGS_LENGTH + 2*TAB_SIZE));
+					}
+					else {
+						sb.append(Strings.repeat(" ","", MAX_OPT_STRINGS_LENGTH - optionStrings.length() + TAB_SIZE));
+					}
+					wrapWords(sb, ns.help, MAX_OPT_STRINGS_LENGTH + 2*TAB_SIZE);
+				}
+				sb.append("\n");
+			}
+		}
+		
 		return sb.toString();
 	}
 
@@ -30,6 +30,8 @@ public class InstanceVariable implements ReflectiveVariable {
 	
 	public InstanceVariable(Field f) {
 		this.f = f;
+		// made accessible once, rather than around each access, so that parses may run concurrently
+		f.setAccessible(true);
 	}
 
 	/* (non-Javadoc)
@@ -37,11 +39,7 @@ public class InstanceVariable implements ReflectiveVariable {
 	 */
 	@Override
 	public Object get(Object obj) throws IllegalAccessException {
-		boolean b = f.isAccessible();
-		f.setAccessible(true);
-		Object ret = f.get(obj);
-		f.setAccessible(b);
-		return ret;
+		return f.get(obj);
 	}
 
 	/* (non-Javadoc)
@@ -57,10 +55,7 @@ public class InstanceVariable implements ReflectiveVariable {
 	 */
 	@Override
 	public void set(Object obj, Object value) throws IllegalAccessException {
-		boolean b = f.isAccessible();
-		f.setAccessible(true);
 		f.set(obj, value);
-		f.setAccessible(b);
 	}
 
 	@Override
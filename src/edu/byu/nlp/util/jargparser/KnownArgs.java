@@ -0,0 +1,177 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * The results of {@link ArgumentParser#parseKnownArgs(String...)}: the values
+ * of the options the parser knows, and the arguments it does not, which are
+ * recorded as ranges of indices into the original arguments rather than copied.
+ * An unknown option is assumed to take the argument that follows it, unless
+ * it has a value attached (<code>--opt=value</code>, <code>-ovalue</code>) or
+ * the following argument looks like an option.
+ * 
+ * <p>The unknown arguments are typically forwarded, e.g. to a child process:</p>
+ * 
+ * <p><blockquote><pre>
+ * 	KnownArgs known = parser.parseKnownArgs(args);
+ * 	List&lt;String&gt; command = new ArrayList&lt;String&gt;();
+ * 	command.add("child");
+ * 	command.addAll(known.getUnknownArgs());
+ * 	new ProcessBuilder(command).start();
+ * </pre></blockquote></p>
+ */
+public final class KnownArgs {
+	
+	private final String[] args;
+	// start (inclusive) and end (exclusive) of each range of unknown arguments
+	private int[] ranges;
+	private int numRanges;
+	private int numUnknown;
+	// for each range, the number of unknown arguments before it; computed on demand
+	private int[] cumulative;
+	private ArgumentValues values;
+	
+	KnownArgs(String[] args) {
+		this.args = args;
+		this.ranges = new int[8];
+	}
+	
+	/**
+	 * Records unknown arguments, merging them with the previous range if adjacent.
+	 */
+	void add(int start, int end) {
+		numUnknown += end - start;
+		if (numRanges > 0 && ranges[2 * numRanges - 1] == start) {
+			ranges[2 * numRanges - 1] = end;
+			return;
+		}
+		if (2 * numRanges == ranges.length)
+			ranges = Arrays.copyOf(ranges, 2 * ranges.length);
+		ranges[2 * numRanges] = start;
+		ranges[2 * numRanges + 1] = end;
+		numRanges++;
+	}
+	
+	void setValues(ArgumentValues values) {
+		this.values = values;
+	}
+	
+	/**
+	 * @return the results of parsing the known options and the positional arguments
+	 */
+	public ArgumentValues getValues() {
+		return values;
+	}
+	
+	/**
+	 * @return the original arguments, which are not copied
+	 */
+	public String[] getArgs() {
+		return args;
+	}
+	
+	/**
+	 * @return true if there were any unknown arguments
+	 */
+	public boolean hasUnknownArgs() {
+		return numRanges > 0;
+	}
+	
+	/**
+	 * @return the number of ranges of unknown arguments
+	 */
+	public int getNumRanges() {
+		return numRanges;
+	}
+	
+	/**
+	 * @param range the index of the range
+	 * @return the index into the original arguments of the first argument of the range
+	 */
+	public int getStart(int range) {
+		checkRange(range);
+		return ranges[2 * range];
+	}
+	
+	/**
+	 * @param range the index of the range
+	 * @return the index into the original arguments just past the last argument of the range
+	 */
+	public int getEnd(int range) {
+		checkRange(range);
+		return ranges[2 * range + 1];
+	}
+	
+	private void checkRange(int range) {
+		if (range < 0 || range >= numRanges)
+			throw new IndexOutOfBoundsException("Range: " + range + ", Ranges: " + numRanges);
+	}
+	
+	/**
+	 * Returns the unknown arguments, in order, as a read-only view of the original arguments.
+	 * 
+	 * @return the unknown arguments
+	 */
+	public List<String> getUnknownArgs() {
+		return new UnknownArgs();
+	}
+	
+	private class UnknownArgs extends AbstractList<String> implements RandomAccess {
+		
+		@Override
+		public String get(int index) {
+			if (index < 0 || index >= numUnknown)
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + numUnknown);
+			if (numRanges == 1)
+				return args[ranges[0] + index];
+			// find the range by binary search over the cumulative lengths
+			int lo = 0, hi = numRanges - 1;
+			int[] before = cumulativeLengths();
+			while (lo < hi) {
+				int mid = (lo + hi + 1) >>> 1;
+				if (before[mid] <= index)
+					lo = mid;
+				else
+					hi = mid - 1;
+			}
+			return args[ranges[2 * lo] + index - before[lo]];
+		}
+		
+		@Override
+		public int size() {
+			return numUnknown;
+		}
+	}
+	
+	/**
+	 * @return for each range, the number of unknown arguments in the ranges before it
+	 */
+	private int[] cumulativeLengths() {
+		if (cumulative == null || cumulative.length != numRanges) {
+			int[] c = new int[numRanges];
+			for (int i = 1; i < numRanges; i++) {
+				c[i] = c[i - 1] + ranges[2 * i - 1] - ranges[2 * i - 2];
+			}
+			cumulative = c;
+		}
+		return cumulative;
+	}
+}
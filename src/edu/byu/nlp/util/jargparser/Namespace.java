@@ -0,0 +1,97 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+import java.lang.reflect.Field;
+
+/**
+ * The options of a component, given on the command-line as
+ * <code>--</code><i>namespace</i><code>.</code><i>name</i>. The component is
+ * inspected, and created if necessary, the first time one of its options
+ * is needed; until then, the namespace costs nothing but this object.
+ * 
+ * @see edu.byu.nlp.util.jargparser.annotations.Component
+ */
+final class Namespace implements ComponentScope {
+
+	final String name;
+	final String help;
+	private final ArgumentParser parser;
+	private final Field field;
+	private final Object owner;
+	// the namespace whose component holds this one; null if the field belongs to an object added to the parser
+	private final Namespace parent;
+	// the component's own options; null until bound, and only written by ArgumentParser#bind
+	volatile OptionRegistry options;
+	
+	Namespace(String name, String help, ArgumentParser parser, Field field, Object owner, Namespace parent) {
+		this.name = name;
+		this.help = help;
+		this.parser = parser;
+		this.field = field;
+		this.owner = owner;
+		this.parent = parent;
+		field.setAccessible(true);
+	}
+	
+	/**
+	 * @return true once the component has been inspected for options
+	 */
+	boolean isBound() {
+		return options != null;
+	}
+	
+	/**
+	 * Gets the options of the component, inspecting it on first use.
+	 */
+	OptionRegistry options() {
+		OptionRegistry o = options;
+		return o != null ? o : parser.bind(this);
+	}
+	
+	/**
+	 * Gets the component the options were added with, creating it if the field is null.
+	 */
+	Object getComponent() {
+		return getComponent(null);
+	}
+	
+	/**
+	 * Gets the component of a parse's target by following the fields from the target
+	 * down to this namespace, creating components wherever a field is null. Targets
+	 * of other classes, like null, get the component the options were added with.
+	 */
+	@Override
+	public Object getComponent(Object target) {
+		Object holder;
+		if (parent != null)
+			holder = parent.getComponent(target);
+		else if (target != null && owner != null && owner.getClass().isInstance(target))
+			holder = target;
+		else
+			holder = owner;
+		try {
+			Object component = field.get(holder);
+			if (component == null) {
+				component = new TargetFactories.ConstructorFactory<Object>(field.getType()).newInstance();
+				field.set(holder, component);
+			}
+			return component;
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.byu.nlp.util.TrieMap;
+
+/**
+ * The options of a parser, indexed by option string. Once a registry has been
+ * published by the parser it is never modified, so any number of parses may read
+ * it without locking; options are added to and removed from a copy instead.
+ */
+final class OptionRegistry {
+
+	// The reason for maintaining separate lists has to do with the behavior of collision detection
+	final Map<Character,OptionHandler> shortOpts;
+	final TrieMap<OptionHandler> longOpts;
+	final List<OptionHandler> mainGroup;
+	final List<Validation.Binding> validators;
+	final List<ArgumentsValidator> argumentsValidators;
+	final List<DefaultValue> defaults;
+	final Map<String,SubCommand> commands;
+	final Map<String,Namespace> namespaces;
+	
+	// the ids the parser's telemetry gave these options; a cache, and so the only field set once published
+	volatile OptionTelemetry.Schema telemetrySchema;
+	
+	OptionRegistry() {
+		this.shortOpts = new HashMap<Character, OptionHandler>();
+		this.longOpts = new TrieMap<OptionHandler>();
+		this.mainGroup = new ArrayList<OptionHandler>();
+		this.validators = new ArrayList<Validation.Binding>();
+		this.argumentsValidators = new ArrayList<ArgumentsValidator>();
+		this.defaults = new ArrayList<DefaultValue>();
+		this.commands = new LinkedHashMap<String, SubCommand>();
+		this.namespaces = new LinkedHashMap<String, Namespace>();
+	}
+	
+	/**
+	 * @return a modifiable copy of this registry
+	 */
+	OptionRegistry copy() {
+		OptionRegistry copy = new OptionRegistry();
+		copy.shortOpts.putAll(shortOpts);
+		copy.mainGroup.addAll(mainGroup);
+		copy.validators.addAll(validators);
+		copy.argumentsValidators.addAll(argumentsValidators);
+		copy.defaults.addAll(defaults);
+		copy.commands.putAll(commands);
+		copy.namespaces.putAll(namespaces);
+		// option strings may have been taken over by later options, so only copy those still mapped
+		for (OptionHandler opt : mainGroup) {
+			for (String optString : opt.getOptionStrings()) {
+				if (ArgumentParser.isLongOpt(optString)) {
+					String name = ArgumentParser.stripPrefix(optString);
+					if (longOpts.get(name) == opt)
+						copy.longOpts.put(name, opt);
+				}
+			}
+		}
+		return copy;
+	}
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A set of values for {@link ScopedOption}s that overlays their shared values.
+ * While code runs within a scope, e.g. via {@link #run(Runnable)}, setting a
+ * scoped option only affects the scope, and getting one returns the scope's
+ * value, if it has been set, or the shared value otherwise. This allows
+ * several runs of a program that keeps its options in static variables to
+ * execute concurrently in the same JVM:
+ * 
+ * <p><blockquote><pre>
+ * 	executor.submit(new Runnable() {
+ * 		public void run() {
+ * 			new OptionScope().run(new Runnable() {
+ * 				public void run() {
+ * 					Experiment.main(args);
+ * 				}
+ * 			});
+ * 		}
+ * 	});
+ * </pre></blockquote></p>
+ * 
+ * <p>Threads started within a scope inherit it. Tasks submitted to a pool whose
+ * threads were started elsewhere must enter the scope themselves.</p>
+ * 
+ * @see ScopedOption
+ */
+public class OptionScope {
+
+	private static final InheritableThreadLocal<OptionScope> current = new InheritableThreadLocal<OptionScope>();
+	
+	// stands in for null values, which the map does not permit
+	private static final Object NULL = new Object();
+	
+	private final ConcurrentMap<ScopedOption<?>, Object> values = new ConcurrentHashMap<ScopedOption<?>, Object>();
+	
+	/**
+	 * @return the scope of the current thread; null if it is not running within a scope
+	 */
+	public static OptionScope current() {
+		return current.get();
+	}
+	
+	/**
+	 * Runs the task within this scope, restoring the previous scope afterwards.
+	 * 
+	 * @param r the task to run
+	 */
+	public void run(Runnable r) {
+		OptionScope prev = enter();
+		try {
+			r.run();
+		} finally {
+			exit(prev);
+		}
+	}
+	
+	/**
+	 * Runs the task within this scope, restoring the previous scope afterwards.
+	 * 
+	 * @param c the task to run
+	 * @return the result of the task
+	 * @throws Exception if the task does
+	 */
+	public <V> V call(Callable<V> c) throws Exception {
+		OptionScope prev = enter();
+		try {
+			return c.call();
+		} finally {
+			exit(prev);
+		}
+	}
+	
+	/**
+	 * Runs the task within the scope, if there is one, e.g. a scope captured on
+	 * another thread; otherwise, runs it outside of any scope.
+	 */
+	static void run(OptionScope scope, Runnable r) {
+		if (scope == null) {
+			OptionScope prev = current.get();
+			current.remove();
+			try {
+				r.run();
+			} finally {
+				exit(prev);
+			}
+		} else {
+			scope.run(r);
+		}
+	}
+	
+	private OptionScope enter() {
+		OptionScope prev = current.get();
+		current.set(this);
+		return prev;
+	}
+	
+	private static void exit(OptionScope prev) {
+		if (prev == null)
+			current.remove();
+		else
+			current.set(prev);
+	}
+	
+	/**
+	 * @return true if the option has been set within this scope
+	 */
+	boolean contains(ScopedOption<?> opt) {
+		return values.containsKey(opt);
+	}
+	
+	Object get(ScopedOption<?> opt) {
+		Object value = values.get(opt);
+		return value == NULL ? null : value;
+	}
+	
+	void set(ScopedOption<?> opt, Object value) {
+		values.put(opt, value == null ? NULL : value);
+	}
+}
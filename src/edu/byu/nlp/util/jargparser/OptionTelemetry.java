@@ -0,0 +1,401 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Counts how options are used, for services that parse many command-lines and
+ * want to know which options are worth keeping. For each option, it counts how
+ * often the option was seen, how many successful parses left it at its default
+ * and how many of its arguments failed to convert.
+ * 
+ * <p>Counting is meant to be cheap enough to leave on. Each option string is given
+ * an id the first time a parser's set of options is counted, and its counters are
+ * striped by thread, so that threads parsing at the same time rarely write to the
+ * same cache line. Counters are allocated in chunks, as ids are handed out, and
+ * never per parse; once 65,536 option strings have ids, further
+ * options are not counted. A parse only touches the counters of the options it
+ * sees, marking them in a bit set that the thread's next parse reuses: how often an
+ * option kept its default is derived, when a snapshot is taken, from the number of
+ * parses of each set of options it belongs to and the number of those in which it
+ * was seen. Sets of options are only referred to weakly, so that counting keeps
+ * neither options nor the objects they store into alive.</p>
+ * 
+ * <p>A typical use may look like this:</p>
+ * 
+ * <p><blockquote><pre>
+ * 	OptionTelemetry telemetry = new OptionTelemetry();
+ * 	parser.setTelemetry(telemetry);
+ * 	telemetry.flushPeriodically(scheduler, new File("options.tsv"), 1, TimeUnit.MINUTES);
+ * </pre></blockquote></p>
+ * 
+ * <p>A telemetry object may be shared by several parsers.</p>
+ * 
+ * @see ArgumentParser#setTelemetry(OptionTelemetry)
+ */
+public class OptionTelemetry {
+	
+	private static final int SEEN = 0;
+	// the number of successful parses in which the option was seen at least once
+	private static final int SEEN_IN_PARSE = 1;
+	private static final int ERRORS = 2;
+	// the number of parses of sets of options that included the option and have since been collected
+	private static final int RETIRED_PARSES = 3;
+	private static final int NUM_KINDS = 4;
+	
+	// options per chunk of counters
+	private static final int CHUNK_SIZE = 64;
+	private static final int MAX_CHUNKS = 1024;
+	static final int MAX_OPTIONS = CHUNK_SIZE * MAX_CHUNKS;
+	// stands in for the id of an option once every id has been handed out
+	private static final int NOT_COUNTED = -1;
+	
+	private final int stripes;
+	private final AtomicReferenceArray<AtomicLongArray> chunks = new AtomicReferenceArray<AtomicLongArray>(MAX_CHUNKS);
+	private final AtomicLongArray parses;
+	
+	// ids by first option string, so that counting never keeps an option, or the object it stores into, alive
+	private final Map<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+	// the option strings by id
+	private final List<String> names = new ArrayList<String>();
+	private volatile int numIds;
+	// the sets of options parsed with that may still be in use
+	private final Set<Schema> schemas = Collections.newSetFromMap(new ConcurrentHashMap<Schema, Boolean>());
+	private final ReferenceQueue<OptionRegistry> unused = new ReferenceQueue<OptionRegistry>();
+	// a bit set of ids for the next parse on each thread, reused once a parse succeeds
+	private final ThreadLocal<long[]> spareSeen = new ThreadLocal<long[]>();
+	
+	/**
+	 * The ids of a set of options, along with the number of successful parses that used it.
+	 * The set is only referred to weakly; once it is collected, its parses are added to the
+	 * counters of its options.
+	 */
+	final class Schema extends WeakReference<OptionRegistry> {
+		// the ids of the options that store a value
+		final int[] valued;
+		final AtomicLongArray parses = new AtomicLongArray(stripes * 8);
+		
+		Schema(OptionRegistry registry) {
+			super(registry, unused);
+			int[] ids = new int[registry.mainGroup.size()];
+			int n = 0;
+			for (OptionHandler opt : registry.mainGroup) {
+				int id = idOf(opt);
+				if (id != NOT_COUNTED && opt.hasValue())
+					ids[n++] = id;
+			}
+			this.valued = Arrays.copyOf(ids, n);
+		}
+		
+		OptionTelemetry getTelemetry() {
+			return OptionTelemetry.this;
+		}
+	}
+	
+	public OptionTelemetry() {
+		int stripes = 1;
+		while (stripes < Runtime.getRuntime().availableProcessors() && stripes < 64)
+			stripes <<= 1;
+		this.stripes = stripes;
+		// stripes of the parse count are a cache line apart
+		this.parses = new AtomicLongArray(stripes * 8);
+	}
+	
+	/**
+	 * Records an occurrence of the option.
+	 * 
+	 * @return the id of the option; negative if there are too many options to count it
+	 */
+	int seen(OptionHandler opt) {
+		int id = idOf(opt);
+		increment(id, SEEN);
+		return id;
+	}
+	
+	/**
+	 * Records an argument of the option that failed to convert.
+	 */
+	void conversionFailed(OptionHandler opt) {
+		increment(idOf(opt), ERRORS);
+	}
+	
+	/**
+	 * Gets the ids of a set of options, handing out ids the first time the set is parsed with.
+	 */
+	Schema schema(OptionRegistry registry) {
+		Schema schema = registry.telemetrySchema;
+		if (schema != null && schema.getTelemetry() == this)
+			return schema;
+		retireUnused();
+		schema = new Schema(registry);
+		schemas.add(schema);
+		registry.telemetrySchema = schema;
+		return schema;
+	}
+	
+	/**
+	 * Gets a bit set to mark the ids of the options seen by a parse in, reusing
+	 * the one of the thread's last successful parse if it is large enough.
+	 */
+	long[] seenSet() {
+		int words = (numIds >>> 6) + 1;
+		long[] seen = spareSeen.get();
+		if (seen == null || seen.length < words)
+			return new long[words];
+		spareSeen.set(null);
+		return seen;
+	}
+	
+	/**
+	 * Records a successful parse, in which the options that store a value and are not
+	 * marked as seen kept their defaults. Only the options seen are visited. The bit
+	 * set is cleared and reused by the thread's next parse.
+	 * 
+	 * @param schema	the options of the parse
+	 * @param seen		the ids of the options seen during the parse
+	 */
+	void parsed(Schema schema, long[] seen) {
+		int stripe = stripe();
+		parses.getAndIncrement(stripe * 8);
+		schema.parses.getAndIncrement(stripe * 8);
+		for (int w = 0; w < seen.length; w++) {
+			for (long bits = seen[w]; bits != 0; bits &= bits - 1) {
+				increment((w << 6) + Long.numberOfTrailingZeros(bits), SEEN_IN_PARSE);
+			}
+			seen[w] = 0;
+		}
+		spareSeen.set(seen);
+	}
+	
+	private int idOf(OptionHandler opt) {
+		String name = opt.getOptionStrings().get(0);
+		Integer id = ids.get(name);
+		if (id != null)
+			return id;
+		synchronized (names) {
+			id = ids.get(name);
+			if (id == null) {
+				// telemetry must never fail a parse, so options beyond the limit are not counted
+				if (names.size() == MAX_OPTIONS)
+					return NOT_COUNTED;
+				id = names.size();
+				if (id % CHUNK_SIZE == 0)
+					chunks.set(id / CHUNK_SIZE, new AtomicLongArray(stripes * CHUNK_SIZE * NUM_KINDS));
+				names.add(name);
+				ids.put(name, id);
+				numIds = names.size();
+			}
+			return id;
+		}
+	}
+	
+	private void increment(int id, int kind) {
+		if (id != NOT_COUNTED)
+			add(id, kind, stripe(), 1);
+	}
+	
+	private void add(int id, int kind, int stripe, long delta) {
+		// each stripe holds the counters of every option in the chunk, so stripes are far apart
+		int index = (stripe * CHUNK_SIZE + id % CHUNK_SIZE) * NUM_KINDS + kind;
+		chunks.get(id / CHUNK_SIZE).getAndAdd(index, delta);
+	}
+	
+	private int stripe() {
+		return (int) Thread.currentThread().getId() & (stripes - 1);
+	}
+	
+	private long sum(int id, int kind) {
+		AtomicLongArray chunk = chunks.get(id / CHUNK_SIZE);
+		long total = 0;
+		for (int s = 0; s < stripes; s++) {
+			total += chunk.get((s * CHUNK_SIZE + id % CHUNK_SIZE) * NUM_KINDS + kind);
+		}
+		return total;
+	}
+	
+	/**
+	 * Adds the parses of the sets of options that have been collected to the counters
+	 * of their options, and forgets the sets.
+	 */
+	private void retireUnused() {
+		for (Reference<? extends OptionRegistry> ref; (ref = unused.poll()) != null; ) {
+			Schema schema = (Schema) ref;
+			if (schemas.remove(schema)) {
+				long n = sumStripes(schema.parses);
+				for (int id : schema.valued) {
+					add(id, RETIRED_PARSES, 0, n);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @return the number of successful parses counted
+	 */
+	public long getParses() {
+		return sumStripes(parses);
+	}
+	
+	private long sumStripes(AtomicLongArray counts) {
+		long total = 0;
+		for (int s = 0; s < stripes; s++) {
+			total += counts.get(s * 8);
+		}
+		return total;
+	}
+	
+	/**
+	 * Sums the counters of every option counted so far. Counts from parses
+	 * in progress may be partially included.
+	 * 
+	 * @return the counts of each option, by its first option string, in the order the options were first counted
+	 */
+	public Map<String, Counts> snapshot() {
+		retireUnused();
+		List<String> opts;
+		synchronized (names) {
+			opts = new ArrayList<String>(names);
+		}
+		// the number of parses that could have seen each option that stores a value
+		long[] parsesOf = new long[opts.size()];
+		for (int id = 0; id < parsesOf.length; id++) {
+			parsesOf[id] = sum(id, RETIRED_PARSES);
+		}
+		for (Schema schema : schemas) {
+			long n = sumStripes(schema.parses);
+			for (int id : schema.valued) {
+				if (id < parsesOf.length)
+					parsesOf[id] += n;
+			}
+		}
+		Map<String, Counts> snapshot = new LinkedHashMap<String, Counts>();
+		for (int id = 0; id < opts.size(); id++) {
+			// parses in progress may have been counted for the schema but not yet for the option, or vice versa
+			long defaulted = Math.max(parsesOf[id] - sum(id, SEEN_IN_PARSE), 0);
+			snapshot.put(opts.get(id), new Counts(sum(id, SEEN), defaulted, sum(id, ERRORS)));
+		}
+		return Collections.unmodifiableMap(snapshot);
+	}
+	
+	/**
+	 * Writes a snapshot to the file, replacing its contents. The first line holds
+	 * the number of parses; each further line holds an option string followed by
+	 * the number of times the option was seen, defaulted and failed to convert,
+	 * separated by tabs.
+	 * 
+	 * @param file the file to write
+	 */
+	public void flush(File file) throws IOException {
+		Map<String, Counts> snapshot = snapshot();
+		File tmp = new File(file.getPath() + ".tmp");
+		try (Writer out = new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+			out.write("parses\t" + getParses() + "\n");
+			for (Map.Entry<String, Counts> e : snapshot.entrySet()) {
+				Counts c = e.getValue();
+				out.write(e.getKey() + "\t" + c.seen + "\t" + c.defaulted + "\t" + c.errors + "\n");
+			}
+		}
+		if (!tmp.renameTo(file)) {
+			// some platforms cannot rename over an existing file
+			if (!file.delete() || !tmp.renameTo(file))
+				throw new IOException("Could not replace " + file);
+		}
+	}
+	
+	/**
+	 * Flushes a snapshot to the file at a fixed rate. Failures to write are
+	 * printed to standard error; the next flush tries again.
+	 * 
+	 * @return the scheduled task, which may be cancelled to stop flushing
+	 * 
+	 * @see #flush(File)
+	 */
+	public ScheduledFuture<?> flushPeriodically(ScheduledExecutorService scheduler, final File file, long period, TimeUnit unit) {
+		return scheduler.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					flush(file);
+				} catch (IOException e) {
+					System.err.println("Could not write option telemetry: " + e.getMessage());
+				}
+			}
+		}, period, period, unit);
+	}
+	
+	/**
+	 * The counts of a single option.
+	 */
+	public static class Counts {
+		private final long seen;
+		private final long defaulted;
+		private final long errors;
+		
+		Counts(long seen, long defaulted, long errors) {
+			this.seen = seen;
+			this.defaulted = defaulted;
+			this.errors = errors;
+		}
+		
+		/**
+		 * @return the number of times the option was seen
+		 */
+		public long getSeen() {
+			return seen;
+		}
+		
+		/**
+		 * @return the number of successful parses in which the option kept its default
+		 */
+		public long getDefaulted() {
+			return defaulted;
+		}
+		
+		/**
+		 * @return the number of the option's arguments that failed to convert
+		 */
+		public long getErrors() {
+			return errors;
+		}
+		
+		@Override
+		public String toString() {
+			return "seen=" + seen + ", defaulted=" + defaulted + ", errors=" + errors;
+		}
+	}
+}
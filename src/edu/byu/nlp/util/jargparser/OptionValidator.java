@@ -0,0 +1,37 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+/**
+ * Checks the values of an option once parsing has finished. Validators are
+ * registered by name with {@link ArgumentParser#putValidator(String, OptionValidator)}
+ * and referred to by the <code>validate</code> attribute of <code>@Option</code>.
+ * Validators may be called concurrently and must be thread-safe.
+ * 
+ * @see Validators
+ */
+public interface OptionValidator {
+	
+	/**
+	 * Checks a single value of an option. Each element of an array
+	 * or collection is checked separately. Null values are not checked.
+	 * 
+	 * @param value	the value to check
+	 * @param arg	the text following "=" in the validator's name, e.g. "1" for "min=1"; null if there is none
+	 * @return null if the value is valid; otherwise, a description of the problem
+	 */
+	String validate(Object value, String arg);
+}
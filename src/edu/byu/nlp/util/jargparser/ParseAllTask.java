@@ -0,0 +1,83 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parses a range of command-lines, splitting it in half
+ * until the ranges are small enough to parse sequentially.
+ * 
+ * @see ArgumentParser#parseAll(java.util.List, TargetFactory)
+ */
+class ParseAllTask<T> extends RecursiveAction {
+
+	private static final long serialVersionUID = 1L;
+	
+	// ranges of at most this many command-lines are not split further
+	private static final int THRESHOLD = 64;
+	
+	private final ArgumentParser parser;
+	private final String[][] argvs;
+	private final TargetFactory<T> targetFactory;
+	final ParseResult<T>[] results;
+	private final int from;
+	private final int to;
+	
+	ParseAllTask(ArgumentParser parser, String[][] argvs, TargetFactory<T> targetFactory) {
+		this(parser, argvs, targetFactory, ParseAllTask.<T>newResults(argvs.length), 0, argvs.length);
+	}
+	
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static <T> ParseResult<T>[] newResults(int length) {
+		return new ParseResult[length];
+	}
+	
+	private ParseAllTask(ArgumentParser parser, String[][] argvs, TargetFactory<T> targetFactory,
+			ParseResult<T>[] results, int from, int to) {
+		this.parser = parser;
+		this.argvs = argvs;
+		this.targetFactory = targetFactory;
+		this.results = results;
+		this.from = from;
+		this.to = to;
+	}
+
+	@Override
+	protected void compute() {
+		if (to - from <= THRESHOLD) {
+			for (int i = from; i < to; i++) {
+				results[i] = parse(argvs[i]);
+			}
+		} else {
+			int mid = (from + to) >>> 1;
+			invokeAll(new ParseAllTask<T>(parser, argvs, targetFactory, results, from, mid),
+					new ParseAllTask<T>(parser, argvs, targetFactory, results, mid, to));
+		}
+	}
+	
+	private ParseResult<T> parse(String[] args) {
+		// a target that cannot be created only fails its own command-line
+		try {
+			T target = targetFactory.newInstance();
+			ParserState s = new ParserState(parser, new String[0], target);
+			s.quiet = true;
+			return new ParseResult<T>(target, parser.parse(s, args));
+		} catch (RuntimeException e) {
+			return new ParseResult<T>(e.getMessage() == null ? e.toString() : e.getMessage());
+		}
+	}
+}
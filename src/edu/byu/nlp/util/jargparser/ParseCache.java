@@ -0,0 +1,203 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of parses, for programs that parse the same command-lines
+ * over and over, e.g. a scheduler re-running jobs. A parse is cached by its
+ * arguments and the exact set of options it was parsed with, so adding or
+ * removing an option invalidates every entry of that parser. What is cached
+ * is the outcome of tokenizing, looking up and converting the arguments: the
+ * actions to perform, with their converted arguments, and the positional
+ * arguments. A hit performs the actions on a new target, just as the original
+ * parse did, but skips everything else, including validation, which the
+ * cached parse already passed. The least recently used entry is evicted once
+ * the cache is full.
+ * 
+ * <p>Parses with sub-commands, parses that load primitive arrays from files,
+ * and parses that fail are not cached. Converted arguments are shared between
+ * hits, so neither are parses that convert an argument to anything but a
+ * string, a boxed primitive, an enum or a file.</p>
+ * 
+ * <p>A cache is thread-safe and may be shared by several parsers.</p>
+ * 
+ * @see ArgumentParser#setParseCache(ParseCache)
+ */
+public final class ParseCache {
+	
+	/**
+	 * An action performed by a cached parse.
+	 */
+	static final class Action {
+		final OptionHandler opt;
+		final String optName;
+		final Object[] args;	// converted; null if the option takes none
+		
+		Action(OptionHandler opt, String optName, Object[] args) {
+			this.opt = opt;
+			this.optName = optName;
+			this.args = args;
+		}
+	}
+	
+	/**
+	 * A cached parse.
+	 */
+	static final class Entry {
+		final Action[] actions;
+		final String[] posArgs;
+		
+		Entry(Action[] actions, String[] posArgs) {
+			this.actions = actions;
+			this.posArgs = posArgs;
+		}
+	}
+	
+	private static final class Key {
+		final OptionRegistry options;	// compared by identity: registries are never modified once published
+		final String[] args;
+		final int hash;
+		
+		Key(OptionRegistry options, String[] args) {
+			this.options = options;
+			this.args = args;
+			this.hash = 31 * System.identityHashCode(options) + Arrays.hashCode(args);
+		}
+		
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key))
+				return false;
+			Key other = (Key) obj;
+			return hash == other.hash && options == other.options && Arrays.equals(args, other.args);
+		}
+	}
+	
+	private final int capacity;
+	private final Map<Key, Entry> entries;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	
+	/**
+	 * @param capacity the maximum number of parses to cache
+	 */
+	public ParseCache(final int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("Capacity must be positive");
+		this.capacity = capacity;
+		this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, ParseCache.Entry> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+	
+	/**
+	 * @return the cached parse of the arguments; null if there is none
+	 */
+	Entry get(OptionRegistry options, String[] args) {
+		Entry entry;
+		synchronized (entries) {
+			entry = entries.get(new Key(options, args));
+		}
+		(entry == null ? misses : hits).incrementAndGet();
+		return entry;
+	}
+	
+	/**
+	 * Caches a successful parse of a copy of the arguments.
+	 */
+	void put(OptionRegistry options, String[] args, List<Action> actions, List<String> posArgs) {
+		Entry entry = new Entry(actions.toArray(new Action[actions.size()]), posArgs.toArray(new String[posArgs.size()]));
+		Key key = new Key(options, args.clone());
+		synchronized (entries) {
+			entries.put(key, entry);
+		}
+	}
+	
+	/**
+	 * @return true if every converted argument is known to be immutable, and so may be shared
+	 * between hits
+	 */
+	static boolean isImmutable(Object[] convertedArgs) {
+		if (convertedArgs == null)
+			return true;
+		for (Object arg : convertedArgs) {
+			if (arg == null || arg instanceof String || arg instanceof Enum || arg instanceof File
+					|| arg instanceof Boolean || arg instanceof Character)
+				continue;
+			Class<?> c = arg.getClass();
+			if (c != Integer.class && c != Long.class && c != Double.class && c != Float.class
+					&& c != Short.class && c != Byte.class)
+				return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Removes every cached parse.
+	 */
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+	
+	/**
+	 * @return the number of cached parses
+	 */
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+	
+	/**
+	 * @return the maximum number of cached parses
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+	
+	/**
+	 * @return the number of parses found in the cache
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+	
+	/**
+	 * @return the number of parses not found in the cache
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+}
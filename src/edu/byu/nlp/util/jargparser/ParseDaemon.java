@@ -0,0 +1,442 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps parsers for registered programs warm in a long-running JVM, so that
+ * short command-line tools pay for neither JVM startup nor building a parser
+ * on every invocation. A small client, such as {@link DaemonClient}, forwards
+ * its arguments, environment, working directory and standard streams; within
+ * a fresh {@link OptionScope}, the daemon parses the arguments into a new
+ * options object and runs the program's {@link DaemonMain}. Relative paths given
+ * to <code>File</code> options, or as references to primitive arrays, are resolved
+ * against the client's working directory; other arguments naming files should be
+ * resolved by the program, e.g. with {@link DaemonContext#resolve(String)}.
+ * 
+ * <p>Parsing never exits the daemon: requests for help or the version are
+ * written to the client's standard output, and errors to its standard error,
+ * with the exit status the program would have had.</p>
+ * 
+ * <p>The daemon listens on the loopback interface only. When started, it
+ * creates a file readable only by its owner and writes its port and a random
+ * token to it, and clients must present the token, so that only that user may
+ * run programs. A client that does not present the token promptly is dropped.
+ * The protocol, which a client in any language can speak, consists of the
+ * following; integers are 4 bytes, big-endian, and strings are a length
+ * followed by that many bytes of UTF-8:</p>
+ * 
+ * <ol>
+ * <li>The client sends the token, the program's name, the number of arguments
+ * and each argument, the number of environment variables and each name and
+ * value, and the working directory, all as strings.</li>
+ * <li>The client then sends its standard input as chunks, each a length
+ * followed by that many bytes, and a length of 0 at the end of input.</li>
+ * <li>Meanwhile, the daemon sends chunks of output, each a byte of 1 for
+ * standard output or 2 for standard error, followed by a length and that many
+ * bytes, and finally a byte of 3 followed by the exit status, after which it
+ * closes the connection.</li>
+ * </ol>
+ * 
+ * @see DaemonClient
+ */
+public class ParseDaemon implements Closeable {
+
+	static final int STDOUT = 1;
+	static final int STDERR = 2;
+	static final int EXIT = 3;
+	
+	// bounds on what a client may send
+	static final int MAX_STRING_LENGTH = 1 << 20;
+	static final int MAX_COUNT = 1 << 16;
+	
+	// the number of clients the default pool serves at once; others are turned away
+	static final int MAX_CLIENTS = 64;
+	// how long a client has to send the token, in milliseconds
+	static final int AUTH_TIMEOUT = 5000;
+	// how long the acceptor waits after failing to accept, e.g. when out of file descriptors
+	private static final long ACCEPT_BACKOFF = 100;
+	
+	private final Map<String, Program<?>> programs = new ConcurrentHashMap<String, Program<?>>();
+	private final ExecutorService executor;
+	private volatile ServerSocket server;
+	private byte[] token;
+	
+	/**
+	 * Creates a daemon that runs each client on its own thread, serving
+	 * at most {@value #MAX_CLIENTS} clients at once.
+	 */
+	public ParseDaemon() {
+		this(new ThreadPoolExecutor(0, MAX_CLIENTS, 60, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+				new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread t = new Thread(r, "jargparser-daemon");
+						t.setDaemon(true);
+						return t;
+					}
+				}));
+	}
+	
+	/**
+	 * @param executor runs the clients; a client occupies a thread until its program finishes.
+	 * 	Clients the executor rejects are disconnected.
+	 */
+	public ParseDaemon(ExecutorService executor) {
+		this.executor = executor;
+	}
+	
+	/**
+	 * Registers a program, building its parser right away. Each run parses
+	 * into a new instance of the options class, which therefore needs a
+	 * no-argument constructor.
+	 * 
+	 * @param name			the name clients use to run the program
+	 * @param optionsClass	the class declaring the program's options
+	 * @param main			the program's entry point
+	 * @return the program's parser, which may be configured further
+	 */
+	public <T> ArgumentParser register(String name, Class<T> optionsClass, DaemonMain<? super T> main) {
+		ArgumentParser parser = new ArgumentParser(optionsClass, new TargetFactories.ConstructorFactory<T>(optionsClass));
+		parser.setProg(name);
+		parser.setExitOnError(false);
+		programs.put(name, new Program<T>(parser, main));
+		return parser;
+	}
+	
+	/**
+	 * Starts listening on a free port of the loopback interface and writes
+	 * the port and token, separated by a space, to the file.
+	 * 
+	 * @param portFile the file clients read to find the daemon, which must not exist
+	 * @throws java.nio.file.FileAlreadyExistsException if the file exists
+	 * @throws IOException if the file cannot be created readable only by its owner
+	 */
+	public void start(File portFile) throws IOException {
+		if (server != null)
+			throw new IllegalStateException("The daemon has already been started");
+		byte[] bytes = new byte[16];
+		new SecureRandom().nextBytes(bytes);
+		StringBuilder hex = new StringBuilder();
+		for (byte b : bytes)
+			hex.append(String.format("%02x", b));
+		token = hex.toString().getBytes(StandardCharsets.UTF_8);
+		
+		// the file is restricted before the token is written to it
+		createPrivateFile(portFile.toPath());
+		final ServerSocket ss = new ServerSocket();
+		try {
+			ss.bind(new InetSocketAddress(InetAddress.getByName(null), 0));
+			try (Writer w = new OutputStreamWriter(new FileOutputStream(portFile), StandardCharsets.UTF_8)) {
+				w.write(ss.getLocalPort() + " " + hex + "\n");
+			}
+		} catch (IOException e) {
+			ss.close();
+			throw e;
+		}
+		server = ss;
+		
+		Thread acceptor = new Thread("jargparser-daemon-acceptor") {
+			@Override
+			public void run() {
+				while (!ss.isClosed()) {
+					final Socket socket;
+					try {
+						socket = ss.accept();
+					} catch (IOException e) {
+						if (ss.isClosed())
+							return;
+						try {
+							Thread.sleep(ACCEPT_BACKOFF);
+						} catch (InterruptedException ie) {
+							return;
+						}
+						continue;
+					}
+					try {
+						executor.execute(new Runnable() {
+							@Override
+							public void run() {
+								serve(socket);
+							}
+						});
+					} catch (RejectedExecutionException e) {
+						try {
+							socket.close();
+						} catch (IOException ce) {
+							// already gone
+						}
+					}
+				}
+			}
+		};
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+	
+	/**
+	 * Atomically creates a file that only its owner may read or write.
+	 */
+	private static void createPrivateFile(Path path) throws IOException {
+		try {
+			Files.createFile(path, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+		} catch (UnsupportedOperationException e) {
+			// not a POSIX file system
+			File file = Files.createFile(path).toFile();
+			if (!(file.setReadable(false, false) && file.setWritable(false, false)
+					&& file.setReadable(true, true) && file.setWritable(true, true))) {
+				file.delete();
+				throw new IOException("Could not restrict the permissions of " + file);
+			}
+		}
+	}
+	
+	/**
+	 * @return the port the daemon listens on; -1 if it has not been started
+	 */
+	public int getPort() {
+		ServerSocket ss = server;
+		return ss == null ? -1 : ss.getLocalPort();
+	}
+	
+	/**
+	 * Stops accepting clients. Programs already running are allowed to finish.
+	 */
+	@Override
+	public void close() throws IOException {
+		ServerSocket ss = server;
+		if (ss != null)
+			ss.close();
+		executor.shutdown();
+	}
+	
+	private void serve(Socket socket) {
+		try (Socket s = socket) {
+			DataInputStream in = new DataInputStream(s.getInputStream());
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+			
+			// nothing but the token is read from a client until it is verified
+			s.setSoTimeout(AUTH_TIMEOUT);
+			byte[] clientToken = readString(in, token.length).getBytes(StandardCharsets.UTF_8);
+			if (!MessageDigest.isEqual(token, clientToken))
+				return;
+			s.setSoTimeout(0);
+			String name = readString(in);
+			String[] args = new String[readCount(in)];
+			for (int i = 0; i < args.length; i++)
+				args[i] = readString(in);
+			Map<String, String> env = new HashMap<String, String>();
+			for (int i = readCount(in); i > 0; i--)
+				env.put(readString(in), readString(in));
+			File cwd = new File(readString(in));
+			
+			PrintStream stdout = new PrintStream(new BufferedOutputStream(new ChunkOutputStream(out, STDOUT)), false, "UTF-8");
+			PrintStream stderr = new PrintStream(new BufferedOutputStream(new ChunkOutputStream(out, STDERR)), false, "UTF-8");
+			DaemonContext context = new DaemonContext(new ChunkInputStream(in), stdout, stderr,
+					Collections.unmodifiableMap(env), cwd);
+			
+			int status;
+			Program<?> program = programs.get(name);
+			if (program == null) {
+				stderr.println("Unknown program: " + name);
+				status = -1;
+			} else {
+				status = program.run(args, context);
+			}
+			stdout.flush();
+			stderr.flush();
+			synchronized (out) {
+				out.writeByte(EXIT);
+				out.writeInt(status);
+				out.flush();
+			}
+		} catch (SocketException e) {
+			// the client went away
+		} catch (IOException e) {
+			// the client sent something unexpected or went away
+		}
+	}
+	
+	static String readString(DataInputStream in) throws IOException {
+		return readString(in, MAX_STRING_LENGTH);
+	}
+	
+	private static String readString(DataInputStream in, int maxLength) throws IOException {
+		int len = in.readInt();
+		if (len < 0 || len > maxLength)
+			throw new IOException("Bad string length: " + len);
+		byte[] bytes = new byte[len];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	static void writeString(DataOutputStream out, String s) throws IOException {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+	
+	private static int readCount(DataInputStream in) throws IOException {
+		int n = in.readInt();
+		if (n < 0 || n > MAX_COUNT)
+			throw new IOException("Bad count: " + n);
+		return n;
+	}
+	
+	private static class Program<T> {
+		final ArgumentParser parser;
+		final DaemonMain<? super T> main;
+		
+		Program(ArgumentParser parser, DaemonMain<? super T> main) {
+			this.parser = parser;
+			this.main = main;
+		}
+		
+		int run(final String[] args, final DaemonContext context) {
+			try {
+				// parse within the scope, so that scoped options are set for this run only
+				return new OptionScope().call(new Callable<Integer>() {
+					@Override
+					public Integer call() throws Exception {
+						ParseOutcome outcome = parser.tryParseArgs(args, context.getWorkingDirectory());
+						if (outcome.getKind() == ParseOutcome.Kind.ERROR) {
+							context.getErr().println(outcome.getText());
+							context.getErr().println(parser.getUsageString());
+							return outcome.getExitStatus();
+						} else if (!outcome.isParsed()) {
+							context.getOut().println(outcome.getText());
+							return outcome.getExitStatus();
+						}
+						ArgumentValues values = outcome.getValues();
+						T options = values.getTarget();
+						return main.run(options, values, context);
+					}
+				});
+			} catch (Exception e) {
+				e.printStackTrace(context.getErr());
+				return 1;
+			}
+		}
+	}
+	
+	/**
+	 * Reads the chunks of a client's standard input.
+	 */
+	private static class ChunkInputStream extends InputStream {
+		private final DataInputStream in;
+		private int remaining;
+		private boolean ended;
+		
+		ChunkInputStream(DataInputStream in) {
+			this.in = in;
+		}
+		
+		@Override
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+		}
+		
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0)
+				return 0;
+			while (remaining == 0) {
+				if (ended)
+					return -1;
+				try {
+					remaining = in.readInt();
+				} catch (EOFException e) {
+					remaining = 0;
+				}
+				if (remaining <= 0) {
+					remaining = 0;
+					ended = true;
+				}
+			}
+			int n = in.read(b, off, Math.min(len, remaining));
+			if (n < 0)
+				throw new EOFException();
+			remaining -= n;
+			return n;
+		}
+	}
+	
+	/**
+	 * Writes to one of a client's output streams, as chunks.
+	 */
+	private static class ChunkOutputStream extends OutputStream {
+		private final DataOutputStream out;
+		private final int stream;
+		
+		ChunkOutputStream(DataOutputStream out, int stream) {
+			this.out = out;
+			this.stream = stream;
+		}
+		
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] {(byte) b}, 0, 1);
+		}
+		
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (len == 0)
+				return;
+			synchronized (out) {
+				out.writeByte(stream);
+				out.writeInt(len);
+				out.write(b, off, len);
+				out.flush();
+			}
+		}
+	}
+}
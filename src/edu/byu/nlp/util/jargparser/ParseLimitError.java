@@ -0,0 +1,40 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+/**
+ * Error created when a parse exceeds one of its {@link ParseLimits}.
+ * The message is kept short and never echoes the offending input.
+ */
+public class ParseLimitError extends IllegalArgumentException {
+
+	private static final long serialVersionUID = 1L;
+	
+	private final int limit;
+
+	public ParseLimitError(String reason, int limit) {
+		super("error: " + reason + " (limit " + limit + ")");
+		this.limit = limit;
+	}
+
+	/**
+	 * @return the limit that was exceeded
+	 */
+	public int getLimit() {
+		return limit;
+	}
+	
+}
@@ -0,0 +1,153 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+/**
+ * Limits on the resources a single parse may use, for parsing command-lines
+ * from untrusted sources. Every limit is checked as early as possible, before
+ * memory is committed to the offending input, and a violation aborts the parse
+ * with a short {@link ParseLimitError} rather than the usual help message.
+ * By default, nothing is limited.
+ * 
+ * <p>For example:</p>
+ * <p><blockquote><pre>
+ * 	ParseLimits limits = new ParseLimits();
+ * 	limits.setMaxTokens(1000);
+ * 	limits.setMaxTokenLength(4096);
+ * 	limits.setMaxCollectionSize(100000);
+ * 	parser.setLimits(limits);
+ * </pre></blockquote></p>
+ * 
+ * @see ArgumentParser#setLimits(ParseLimits)
+ */
+public class ParseLimits {
+	
+	public static final int UNLIMITED = Integer.MAX_VALUE;
+	
+	private int maxTokens = UNLIMITED;
+	private int maxTokenLength = UNLIMITED;
+	private int maxPositionalArgs = UNLIMITED;
+	private int maxOccurrences = UNLIMITED;
+	private int maxCollectionSize = UNLIMITED;
+	
+	/**
+	 * @return the maximum number of arguments on the command-line
+	 */
+	public int getMaxTokens() {
+		return maxTokens;
+	}
+	
+	/**
+	 * @param maxTokens the maximum number of arguments on the command-line
+	 */
+	public void setMaxTokens(int maxTokens) {
+		this.maxTokens = checkPositive(maxTokens);
+	}
+	
+	/**
+	 * @return the maximum length of a single argument
+	 */
+	public int getMaxTokenLength() {
+		return maxTokenLength;
+	}
+	
+	/**
+	 * @param maxTokenLength the maximum length of a single argument
+	 */
+	public void setMaxTokenLength(int maxTokenLength) {
+		this.maxTokenLength = checkPositive(maxTokenLength);
+	}
+	
+	/**
+	 * @return the maximum number of positional arguments
+	 */
+	public int getMaxPositionalArgs() {
+		return maxPositionalArgs;
+	}
+	
+	/**
+	 * @param maxPositionalArgs the maximum number of positional arguments
+	 */
+	public void setMaxPositionalArgs(int maxPositionalArgs) {
+		this.maxPositionalArgs = checkPositive(maxPositionalArgs);
+	}
+	
+	/**
+	 * @return the maximum number of times any one option may appear
+	 */
+	public int getMaxOccurrences() {
+		return maxOccurrences;
+	}
+	
+	/**
+	 * @param maxOccurrences the maximum number of times any one option may appear
+	 */
+	public void setMaxOccurrences(int maxOccurrences) {
+		this.maxOccurrences = checkPositive(maxOccurrences);
+	}
+	
+	/**
+	 * @return the maximum number of elements in a collection or array option
+	 */
+	public int getMaxCollectionSize() {
+		return maxCollectionSize;
+	}
+	
+	/**
+	 * Limits the number of elements stored in a collection or array by the parser,
+	 * including elements of delimited lists and arrays loaded from files.
+	 * 
+	 * @param maxCollectionSize the maximum number of elements in a collection or array option
+	 */
+	public void setMaxCollectionSize(int maxCollectionSize) {
+		this.maxCollectionSize = checkPositive(maxCollectionSize);
+	}
+	
+	public void checkTokens(int numTokens) {
+		if (numTokens > maxTokens)
+			throw new ParseLimitError("too many arguments", maxTokens);
+	}
+	
+	public void checkTokenLength(int length) {
+		if (length > maxTokenLength)
+			throw new ParseLimitError("argument too long", maxTokenLength);
+	}
+	
+	public void checkPositionalArgs(int numPositionalArgs) {
+		if (numPositionalArgs > maxPositionalArgs)
+			throw new ParseLimitError("too many positional arguments", maxPositionalArgs);
+	}
+	
+	public void checkOccurrences(int occurrences) {
+		if (occurrences > maxOccurrences)
+			throw new ParseLimitError("option repeated too many times", maxOccurrences);
+	}
+	
+	public void checkCollectionSize(long size) {
+		checkCollectionSize(size, maxCollectionSize);
+	}
+	
+	static void checkCollectionSize(long size, int maxCollectionSize) {
+		if (size > maxCollectionSize)
+			throw new ParseLimitError("too many values", maxCollectionSize);
+	}
+	
+	private static int checkPositive(int limit) {
+		if (limit < 1)
+			throw new IllegalArgumentException("Limits must be positive");
+		return limit;
+	}
+}
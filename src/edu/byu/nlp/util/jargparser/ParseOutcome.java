@@ -0,0 +1,131 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+/**
+ * How a parse that must not exit ended: with the arguments parsed, with help or
+ * the version requested, with a shell completion query answered, or with an
+ * error. Help and version text are only rendered when asked for.
+ * 
+ * <p>A typical use may look like this:</p>
+ * 
+ * <p><blockquote><pre>
+ * 	ParseOutcome outcome = parser.tryParseArgs(args);
+ * 	if (!outcome.isParsed()) {
+ * 		(outcome.getKind() == ParseOutcome.Kind.ERROR ? err : out).println(outcome.getText());
+ * 		return outcome.getExitStatus();
+ * 	}
+ * 	ArgumentValues values = outcome.getValues();
+ * </pre></blockquote></p>
+ * 
+ * @see ArgumentParser#tryParseArgs(String...)
+ */
+public class ParseOutcome {
+
+	public enum Kind { PARSED, HELP, VERSION, COMPLETION, ERROR }
+	
+	private final Kind kind;
+	private final ArgumentParser parser;
+	private final ArgumentValues values;
+	private final IllegalArgumentException error;
+	
+	private ParseOutcome(Kind kind, ArgumentParser parser, ArgumentValues values, IllegalArgumentException error) {
+		this.kind = kind;
+		this.parser = parser;
+		this.values = values;
+		this.error = error;
+	}
+	
+	static ParseOutcome parsed(ArgumentParser parser, ArgumentValues values) {
+		return new ParseOutcome(Kind.PARSED, parser, values, null);
+	}
+	
+	static ParseOutcome failed(ArgumentParser parser, IllegalArgumentException e) {
+		Kind kind = Kind.ERROR;
+		if (e instanceof ExitRequestedError)
+			kind = ((ExitRequestedError) e).getKind();
+		return new ParseOutcome(kind, parser, null, e);
+	}
+	
+	/**
+	 * @return how the parse ended
+	 */
+	public Kind getKind() {
+		return kind;
+	}
+	
+	/**
+	 * @return true if the arguments were parsed
+	 */
+	public boolean isParsed() {
+		return kind == Kind.PARSED;
+	}
+	
+	/**
+	 * @return the results of parsing; null unless the arguments were parsed
+	 */
+	public ArgumentValues getValues() {
+		return values;
+	}
+	
+	/**
+	 * @return the error, e.g. a {@link ValidationError}; null unless there was one
+	 */
+	public IllegalArgumentException getError() {
+		return kind == Kind.ERROR ? error : null;
+	}
+	
+	/**
+	 * Renders the text the parser would have printed: the help message or
+	 * version string if either was requested, the completion candidates, one
+	 * per line, if completion was, or the error message.
+	 * 
+	 * @return the text; null if the arguments were parsed
+	 */
+	public String getText() {
+		switch (kind) {
+		case HELP:
+		case VERSION:
+		case COMPLETION:
+			return ((ExitRequestedError) error).getText();
+		case ERROR:
+			return error.getMessage();
+		default:
+			return null;
+		}
+	}
+	
+	/**
+	 * Renders the parser's help message, e.g. to accompany an error.
+	 * 
+	 * @return the help message
+	 */
+	public String getHelp() {
+		return parser.helpString();
+	}
+	
+	/**
+	 * @return the status the program would have exited with: 0 unless there was an error
+	 */
+	public int getExitStatus() {
+		return kind == Kind.ERROR ? -1 : 0;
+	}
+	
+	@Override
+	public String toString() {
+		return kind == Kind.PARSED ? "parsed" : kind.name().toLowerCase() + ": " + error.getMessage();
+	}
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+/**
+ * The outcome of parsing one of many command-lines: either the
+ * target and the results of parsing, or the error that occurred.
+ * 
+ * @param <T> the type of the target
+ * 
+ * @see ArgumentParser#parseAll(java.util.List, TargetFactory)
+ */
+public class ParseResult<T> {
+
+	private final T target;
+	private final ArgumentValues values;
+	private final String error;
+	
+	ParseResult(T target, ArgumentValues values) {
+		this.target = target;
+		this.values = values;
+		this.error = null;
+	}
+	
+	ParseResult(String error) {
+		this.target = null;
+		this.values = null;
+		this.error = error;
+	}
+	
+	/**
+	 * @return true if the command-line was parsed without error
+	 */
+	public boolean isSuccess() {
+		return error == null;
+	}
+	
+	/**
+	 * @return the object the options were stored into; null if there was an error
+	 */
+	public T getTarget() {
+		return target;
+	}
+	
+	/**
+	 * @return the results of parsing; null if there was an error
+	 */
+	public ArgumentValues getValues() {
+		return values;
+	}
+	
+	/**
+	 * @return the positional args found by the parser; null if there was an error
+	 */
+	public String[] getPositionalArgs() {
+		return values == null ? null : values.getPositionalArgs();
+	}
+	
+	/**
+	 * @return the error message, without the help message; null if there was no error
+	 */
+	public String getError() {
+		return error;
+	}
+	
+	@Override
+	public String toString() {
+		return isSuccess() ? "ParseResult[" + target + "]" : "ParseResult[error: " + error + "]";
+	}
+}
@@ -0,0 +1,143 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded pool of parsers, each bound to its own target, for services that
+ * parse many command-lines and would rather not build a parser for each one.
+ * Parsers are created as needed, up to the capacity of the pool, and reset to
+ * their defaults when they are returned. The pool is thread-safe; a parser
+ * may only be used by the thread that acquired it.
+ * 
+ * <p>A typical use may look like this:</p>
+ * 
+ * <p><blockquote><pre>
+ * 	try (PooledParser&lt;Options&gt; p = pool.acquire()) {
+ * 		p.parseArgs(args);
+ * 		run(p.getTarget());
+ * 	}
+ * </pre></blockquote></p>
+ * 
+ * <p>To configure the parsers, e.g. with <code>setExitOnError(false)</code>,
+ * override {@link #configure(ArgumentParser)}.</p>
+ * 
+ * @param <T> the type of the targets
+ * 
+ * @see ArgumentParser#reset()
+ */
+public class ParserPool<T> {
+
+	private final int capacity;
+	private final TargetFactory<? extends T> targetFactory;
+	private final Semaphore available;
+	private final Queue<PooledParser<T>> idle = new ConcurrentLinkedQueue<PooledParser<T>>();
+	private final AtomicInteger size = new AtomicInteger();
+	
+	/**
+	 * @param capacity		the maximum number of parsers
+	 * @param targetFactory	creates the target of each parser
+	 */
+	public ParserPool(int capacity, TargetFactory<? extends T> targetFactory) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("Capacity must be positive");
+		this.capacity = capacity;
+		this.targetFactory = targetFactory;
+		this.available = new Semaphore(capacity);
+	}
+	
+	/**
+	 * Takes a parser from the pool, waiting until one is available.
+	 * 
+	 * @return the parser, which must be closed to return it to the pool
+	 */
+	public PooledParser<T> acquire() throws InterruptedException {
+		available.acquire();
+		return take();
+	}
+	
+	/**
+	 * Takes a parser from the pool, waiting at most the specified time for one to be available.
+	 * 
+	 * @return the parser, which must be closed to return it to the pool; null if none became available
+	 */
+	public PooledParser<T> tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+		if (!available.tryAcquire(timeout, unit))
+			return null;
+		return take();
+	}
+	
+	private PooledParser<T> take() {
+		PooledParser<T> p = idle.poll();
+		if (p == null) {
+			try {
+				T target = targetFactory.newInstance();
+				ArgumentParser parser = new ArgumentParser(target);
+				configure(parser);
+				p = new PooledParser<T>(this, parser, target);
+				size.incrementAndGet();
+			} catch (RuntimeException e) {
+				available.release();
+				throw e;
+			}
+		}
+		p.lease();
+		return p;
+	}
+	
+	/**
+	 * Resets the parser and makes it available again. A parser
+	 * that cannot be reset is discarded.
+	 */
+	void release(PooledParser<T> p) {
+		try {
+			p.getParser().reset();
+			idle.offer(p);
+		} catch (RuntimeException e) {
+			size.decrementAndGet();
+			throw e;
+		} finally {
+			available.release();
+		}
+	}
+	
+	/**
+	 * Configures a newly created parser. Does nothing by default.
+	 * 
+	 * @param parser the parser to configure
+	 */
+	protected void configure(ArgumentParser parser) {
+	}
+	
+	/**
+	 * @return the maximum number of parsers
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+	
+	/**
+	 * @return the number of parsers created so far, whether idle or in use
+	 */
+	public int size() {
+		return size.get();
+	}
+}
@@ -0,0 +1,256 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+/**
+ * An incremental parse, for arguments that arrive over time rather than
+ * as a single array. Arguments are pushed with one of the <code>feed</code>
+ * methods and parsed as soon as possible; errors, e.g. unknown options,
+ * are reported by the <code>feed</code> call that makes them detectable.
+ * An option is held back only until all of its arguments have arrived.
+ * Once all arguments have been fed, {@link #finish()} returns the results.
+ *
+ * <p>A typical use may look like this:</p>
+ *
+ * <p><blockquote><pre>
+ * 	ParserSession session = parser.newSession();
+ * 	while ((token = in.readToken()) != null)
+ * 		session.feed(token);
+ * 	ArgumentValues ov = session.finish();
+ * </pre></blockquote></p>
+ *
+ * <p>Callbacks that inspect <code>ParserState.remainingArgs</code> only see the
+ * arguments that have been fed so far. A session is not thread-safe.</p>
+ *
+ * @see ArgumentParser#newSession()
+ */
+public class ParserSession {
+
+	private final ArgumentParser parser;
+	private final ParserState state;
+
+	// the part of a token split across two chunks
+	private final StringBuilder partial;
+	private int numTokens;
+	private boolean closed;
+
+	ParserSession(ArgumentParser parser) {
+		this(parser, false);
+	}
+	
+	/**
+	 * @param quiet if true, errors are thrown without being printed or exiting
+	 */
+	ParserSession(ArgumentParser parser, boolean quiet) {
+		this.parser = parser;
+		this.state = new ParserState(parser, new String[0], parser.newTarget());
+		this.state.quiet = quiet;
+		this.partial = new StringBuilder();
+	}
+
+	/**
+	 * Adds a single, complete argument, as it would appear in the <code>args</code>
+	 * array of <code>main</code>. Any token left incomplete by
+	 * {@link #feed(CharSequence)} is terminated first.
+	 *
+	 * @param token the argument
+	 * @return this session
+	 */
+	public ParserSession feed(String token) {
+		checkOpen();
+		flushPartial();
+		checkToken(token.length());
+		state.remainingArgs.addLast(token);
+		parse(false);
+		return this;
+	}
+
+	/**
+	 * Adds a chunk of a command line. Arguments are separated by whitespace
+	 * and may be split across chunks; the last argument of a chunk is only
+	 * complete once whitespace, another argument or {@link #finish()} follows it.
+	 *
+	 * @param chunk the next part of the command line
+	 * @return this session
+	 */
+	public ParserSession feed(CharSequence chunk) {
+		checkOpen();
+		int start = -1;	// start of the current token within the chunk
+		for (int i = 0; i < chunk.length(); i++) {
+			if (Character.isWhitespace(chunk.charAt(i))) {
+				if (start >= 0 && partial.length() == 0) {
+					// the token lies entirely within this chunk
+					checkToken(i - start);
+					state.remainingArgs.addLast(chunk.subSequence(start, i).toString());
+				} else {
+					if (start >= 0)
+						appendPartial(chunk, start, i);
+					flushPartial();
+				}
+				start = -1;
+			} else if (start < 0) {
+				start = i;
+			}
+		}
+		if (start >= 0)
+			appendPartial(chunk, start, chunk.length());
+		parse(false);
+		return this;
+	}
+
+	/**
+	 * Adds the arguments of a line typed at a shell, tokenized much as a POSIX
+	 * shell would: arguments are separated by whitespace, single quotes preserve
+	 * everything up to the next single quote, double quotes preserve everything
+	 * but backslash-escaped <code>"</code> and <code>\</code>, a backslash
+	 * outside of quotes escapes the next character, and an unquoted <code>#</code>
+	 * at the start of an argument begins a comment. Arguments go straight to the
+	 * parser, without an intermediate array. Any token left incomplete by
+	 * {@link #feed(CharSequence)} is terminated first.
+	 * 
+	 * @param line the line, which must not end within quotes
+	 * @return this session
+	 */
+	public ParserSession feedLine(CharSequence line) {
+		checkOpen();
+		flushPartial();
+		StringBuilder token = new StringBuilder();
+		boolean inToken = false;
+		char quote = 0;
+		int len = line.length();
+		for (int i = 0; i < len; i++) {
+			char c = line.charAt(i);
+			if (quote == '\'') {
+				if (c == '\'')
+					quote = 0;
+				else
+					append(token, c);
+			} else if (quote == '"') {
+				if (c == '"')
+					quote = 0;
+				else if (c == '\\' && i + 1 < len && (line.charAt(i + 1) == '"' || line.charAt(i + 1) == '\\'))
+					append(token, line.charAt(++i));
+				else
+					append(token, c);
+			} else if (Character.isWhitespace(c)) {
+				if (inToken) {
+					addToken(token);
+					inToken = false;
+				}
+			} else if (c == '#' && !inToken) {
+				break;
+			} else {
+				inToken = true;
+				if (c == '\'' || c == '"')
+					quote = c;
+				else if (c == '\\') {
+					if (i + 1 < len)
+						append(token, line.charAt(++i));
+				} else
+					append(token, c);
+			}
+		}
+		if (quote != 0) {
+			closed = true;
+			throw new IllegalArgumentException("Unterminated quote: " + quote);
+		}
+		if (inToken)
+			addToken(token);
+		parse(false);
+		return this;
+	}
+	
+	private void append(StringBuilder token, char c) {
+		checkTokenLength(token.length() + 1);
+		token.append(c);
+	}
+	
+	private void addToken(StringBuilder token) {
+		checkToken(token.length());
+		state.remainingArgs.addLast(token.toString());
+		token.setLength(0);
+	}
+	
+	/**
+	 * Signals that there are no more arguments, parses whatever remains
+	 * and returns the results. The session may not be used afterwards.
+	 *
+	 * @return the results of parsing
+	 */
+	public ArgumentValues finish() {
+		checkOpen();
+		flushPartial();
+		parse(true);
+		closed = true;
+		return parser.complete(state);
+	}
+
+	/**
+	 * @return the state of the parser, including the positional arguments found so far
+	 */
+	public ParserState getState() {
+		return state;
+	}
+
+	private void parse(boolean finished) {
+		try {
+			parser.parseAvailable(state, finished);
+		} catch (RuntimeException e) {
+			closed = true;
+			throw e;
+		}
+	}
+
+	private void appendPartial(CharSequence chunk, int start, int end) {
+		checkTokenLength(partial.length() + end - start);
+		partial.append(chunk, start, end);
+	}
+
+	private void flushPartial() {
+		if (partial.length() > 0) {
+			checkToken(partial.length());
+			state.remainingArgs.addLast(partial.toString());
+			partial.setLength(0);
+		}
+	}
+
+	/**
+	 * Enforces the parser's limits before another argument is added.
+	 */
+	private void checkToken(int length) {
+		checkTokenLength(length);
+		try {
+			parser.getLimits().checkTokens(++numTokens);
+		} catch (ParseLimitError e) {
+			closed = true;
+			parser.limitExceeded(state, e);
+		}
+	}
+
+	private void checkTokenLength(int length) {
+		try {
+			parser.getLimits().checkTokenLength(length);
+		} catch (ParseLimitError e) {
+			closed = true;
+			parser.limitExceeded(state, e);
+		}
+	}
+
+	private void checkOpen() {
+		if (closed)
+			throw new IllegalStateException("The session has already finished");
+	}
+}
@@ -0,0 +1,175 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An interactive shell that parses each line read from the user with an
+ * <code>ArgumentParser</code> and hands the results to a {@link LineHandler}.
+ * Lines are tokenized as by {@link ParserSession#feedLine(CharSequence)},
+ * straight into the parser, and the options registered with the parser are
+ * reused from line to line. Before each line, variables that were added as
+ * options are restored to their defaults (see {@link ArgumentParser#reset()}),
+ * so that nothing carries over from the previous line; state that should
+ * persist belongs in the shell's {@link #getAttributes() attributes}.
+ * 
+ * <p>A typical use may look like this:</p>
+ * 
+ * <p><blockquote><pre>
+ * 	ArgumentParser parser = new ArgumentParser(Query.class, factory);
+ * 	new ParserShell(parser, new ParserShell.LineHandler() {
+ * 		public void handle(ArgumentValues values, ParserShell shell) {
+ * 			Query q = (Query) values.getTarget();
+ * 			...
+ * 		}
+ * 	}).run(new BufferedReader(new InputStreamReader(System.in)), System.out, System.err);
+ * </pre></blockquote></p>
+ * 
+ * <p>Errors, help and version requests are printed and the shell carries on
+ * with the next line; the program is never exited. A shell is not thread-safe.</p>
+ */
+public class ParserShell {
+	
+	/**
+	 * Acts upon the results of parsing one line.
+	 */
+	public interface LineHandler {
+		/**
+		 * @param values	the results of parsing the line
+		 * @param shell		the shell that read the line
+		 * @throws Exception if the line could not be handled; the message is printed
+		 */
+		void handle(ArgumentValues values, ParserShell shell) throws Exception;
+	}
+	
+	private final ArgumentParser parser;
+	private final LineHandler handler;
+	private final Map<String, Object> attributes;
+	private String prompt;
+	private String help;
+	private boolean stopped;
+	
+	/**
+	 * @param parser	parses each line; its options must not change while the shell runs
+	 * @param handler	acts upon each line that is parsed successfully
+	 */
+	public ParserShell(ArgumentParser parser, LineHandler handler) {
+		this.parser = parser;
+		this.handler = handler;
+		this.attributes = new HashMap<String, Object>();
+		this.prompt = "> ";
+	}
+	
+	/**
+	 * Parses a single line. Errors, including requests for help or the version,
+	 * are reported in the outcome rather than printed.
+	 * 
+	 * @param line	the line
+	 * @return the outcome of parsing the line
+	 */
+	public ParseOutcome parseLine(CharSequence line) {
+		parser.reset();
+		try {
+			return ParseOutcome.parsed(parser, new ParserSession(parser, true).feedLine(line).finish());
+		} catch (IllegalArgumentException e) {
+			return ParseOutcome.failed(parser, e);
+		}
+	}
+	
+	/**
+	 * Reads, parses and handles lines until the end of the input or until
+	 * {@link #stop()} is called. Blank lines and comments are skipped.
+	 * 
+	 * @param in	the lines to parse
+	 * @param out	where the prompt, help and version are printed
+	 * @param err	where errors are printed
+	 * @throws IOException if the lines cannot be read
+	 */
+	public void run(BufferedReader in, PrintStream out, PrintStream err) throws IOException {
+		stopped = false;
+		String line;
+		while (!stopped) {
+			out.print(prompt);
+			out.flush();
+			if ((line = in.readLine()) == null)
+				break;
+			String trimmed = line.trim();
+			if (trimmed.isEmpty() || trimmed.startsWith("#"))
+				continue;
+			ParseOutcome outcome = parseLine(line);
+			switch (outcome.getKind()) {
+			case PARSED:
+				try {
+					handler.handle(outcome.getValues(), this);
+				} catch (Exception e) {
+					err.println(e.getMessage() == null ? e.toString() : e.getMessage());
+				}
+				break;
+			case HELP:
+				// the options cannot change, so neither can the help
+				if (help == null)
+					help = outcome.getText();
+				out.print(help);
+				break;
+			case VERSION:
+				out.println(outcome.getText());
+				break;
+			default:
+				err.println(outcome.getText());
+			}
+		}
+	}
+	
+	/**
+	 * Ends {@link #run(BufferedReader, PrintStream, PrintStream)} once the current line has been handled.
+	 */
+	public void stop() {
+		stopped = true;
+	}
+	
+	/**
+	 * @return state that persists from one line to the next, for use by the handler
+	 */
+	public Map<String, Object> getAttributes() {
+		return attributes;
+	}
+	
+	/**
+	 * @return the prompt printed before each line
+	 */
+	public String getPrompt() {
+		return prompt;
+	}
+	
+	/**
+	 * @param prompt	the prompt printed before each line
+	 */
+	public void setPrompt(String prompt) {
+		this.prompt = prompt;
+	}
+	
+	/**
+	 * @return the parser that parses each line
+	 */
+	public ArgumentParser getParser() {
+		return parser;
+	}
+}
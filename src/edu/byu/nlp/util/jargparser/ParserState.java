@@ -15,11 +15,15 @@
  */
 package edu.byu.nlp.util.jargparser;
 
+import java.io.File;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Deque;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * This object contains most of the state of the parser.
@@ -49,10 +53,151 @@ public class ParserState {
 	
 	private final ArgumentParser optionParser;
 	
+	// the options as they were when the parse started
+	final OptionRegistry options;
+	
+	// the object options are stored into; null if each option uses the object it was added with
+	private final Object target;
+	
+	/**
+	 * True if errors should be thrown without being printed or exiting,
+	 * e.g. when parsing many command-lines at once.
+	 */
+	boolean quiet;
+	
+	/**
+	 * True once the parser has stopped looking for options, e.g. after "--",
+	 * at which point all remaining arguments are positional.
+	 */
+	boolean optionsEnded;
+	
+	// actions to run once parsing finishes; only used when the parser has a callback executor
+	DeferredActions deferred;
+	
+	// values to store once parsing succeeds; only used when the parser is transactional
+	final StagedValues staged;
+	
+	// counts how options are used, if the parser had telemetry when the parse started
+	final OptionTelemetry telemetry;
+	
+	// the ids of the options seen, as a bit set reused from an earlier parse; only tracked with telemetry
+	long[] seenOptions;
+	final OptionTelemetry.Schema schema;
+	
+	// the sub-command, once found, along with its arguments and, once parsed, its results
+	SubCommand command;
+	List<String> commandArgs;
+	ArgumentValues commandValues;
+	// the sub-command's parser and state, until the sub-command is committed along with this parse
+	ArgumentParser commandParser;
+	ParserState commandState;
+	
+	// true if the results are committed by the parent of a sub-command, once it succeeds
+	boolean held;
+	
+	// the unknown arguments; only recorded by parseKnownArgs, which otherwise are errors
+	KnownArgs known;
+	
+	// the actions performed, to be cached; null if the parse is not cached or cannot be
+	List<ParseCache.Action> recorded;
+	
+	// true if the actions were replayed from a cached parse, which has already been validated
+	boolean fromCache;
+	
+	// the directory relative files are resolved against; null for the JVM's working directory
+	File workingDirectory;
+	
+	// the scope the parse started in, which validators and deferred actions run in; null if none
+	final OptionScope scope;
+	
+	// number of times each option has been seen; only tracked when limited
+	private Map<OptionHandler, int[]> occurrences;
+	
 	public ParserState(ArgumentParser optionParser, String[] args) {
+		this(optionParser, args, null);
+	}
+	
+	ParserState(ArgumentParser optionParser, String[] args, Object target) {
 		this.optionParser = optionParser;
+		this.options = optionParser.currentOptions();
 		this.posArgs = new ArrayList<String>();
 		this.remainingArgs = new ArrayDeque<String>(Arrays.asList(args));
+		this.target = target;
+		this.staged = optionParser.isTransactional() ? new StagedValues() : null;
+		this.telemetry = optionParser.getTelemetry();
+		this.schema = telemetry == null ? null : telemetry.schema(options);
+		this.seenOptions = schema == null ? null : telemetry.seenSet();
+		this.scope = OptionScope.current();
+	}
+	
+	/**
+	 * Gets the object into which this parse stores option values. Options
+	 * added from an object of the same class store into the target instead.
+	 * 
+	 * @return the target of this parse; null if each option stores into the object it was added with
+	 * 
+	 * @see ArgumentParser#parseAll(List, TargetFactory)
+	 */
+	public Object getTarget() {
+		return target;
+	}
+	
+	/**
+	 * Gets the values that this parse will store once it succeeds. Option handlers
+	 * record their values here, rather than in the target, when it is not null.
+	 * 
+	 * @return the staged values; null unless the parser is transactional
+	 * 
+	 * @see ArgumentParser#setTransactional(boolean)
+	 */
+	public StagedValues getStagedValues() {
+		return staged;
+	}
+	
+	/**
+	 * Reads the value of an option, including any values yet to be committed.
+	 */
+	Object valueOf(OptionHandler opt) {
+		if (staged != null)
+			return staged.valueOf(opt, target);
+		return ArgumentValues.valueOf(opt, target);
+	}
+	
+	/**
+	 * @return the size of the option's collection, including any values yet to be committed; -1 if it is not a collection
+	 */
+	public int collectionSize(OptionHandler opt) {
+		if (staged != null)
+			return staged.collectionSize(opt, target);
+		Object value = ArgumentValues.valueOf(opt, target);
+		return value instanceof Collection<?> ? ((Collection<?>) value).size() : -1;
+	}
+	
+	/**
+	 * Marks the option with the given telemetry id as seen.
+	 */
+	void markSeen(int id) {
+		if (id < 0)	// not counted
+			return;
+		if ((id >>> 6) >= seenOptions.length)	// an option counted for the first time since the parse started
+			seenOptions = Arrays.copyOf(seenOptions, (id >>> 6) + 1);
+		seenOptions[id >>> 6] |= 1L << id;
+	}
+	
+	/**
+	 * Records another occurrence of the option.
+	 * 
+	 * @return the number of times the option has been seen, including this one
+	 */
+	int countOccurrence(OptionHandler opt) {
+		if (occurrences == null)
+			occurrences = new IdentityHashMap<OptionHandler, int[]>();
+		int[] count = occurrences.get(opt);
+		if (count == null) {
+			count = new int[1];
+			occurrences.put(opt, count);
+		}
+		return ++count[0];
 	}
 	
 	/**
@@ -70,7 +215,7 @@ public class ParserState {
 			throw new IllegalArgumentException("Could not find option for " + name);
 		if (!opt.hasValue())
 			throw new IllegalArgumentException(name + " is not a stored value");
-		return (T) opt.getValue();
+		return (T) valueOf(opt);
 	}
 	
 
@@ -0,0 +1,133 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.MirroredTypeException;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import edu.byu.nlp.util.jargparser.annotations.Plugin;
+
+/**
+ * Generates the index of the plugins in a project at build time, so that
+ * parsers can find a plugin by its action or type without loading or
+ * instantiating any of the others. Every class annotated with {@link Plugin}
+ * is written to <code>META-INF/jargparser/plugins.index</code>. To use it,
+ * compile the plugins with <code>-processor edu.byu.nlp.util.jargparser.PluginIndexProcessor</code>
+ * and this library on the processor path.
+ * 
+ * <p>The index only lists the plugins compiled together, so a project's
+ * plugins should be compiled in one pass.</p>
+ */
+@SupportedAnnotationTypes("edu.byu.nlp.util.jargparser.annotations.Plugin")
+public class PluginIndexProcessor extends AbstractProcessor {
+	
+	// keys and plugin classes, as in the index
+	private final Map<String, String> entries = new TreeMap<String, String>();
+	
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+	
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		if (roundEnv.processingOver()) {
+			if (!entries.isEmpty())
+				writeIndex();
+			return false;
+		}
+		for (Element e : roundEnv.getElementsAnnotatedWith(Plugin.class)) {
+			if (e.getKind() != ElementKind.CLASS) {
+				error(e, "@Plugin only applies to classes");
+				continue;
+			}
+			TypeElement cls = (TypeElement) e;
+			Plugin plugin = cls.getAnnotation(Plugin.class);
+			String type = typeName(plugin);
+			if (plugin.action().isEmpty() == type.equals(Void.class.getName())) {
+				error(e, "@Plugin requires exactly one of action and type");
+				continue;
+			}
+			if (!plugin.action().isEmpty())
+				add(cls, Plugins.ACTION, plugin.action(), OptionHandlerFactory.class);
+			else
+				add(cls, Plugins.TYPE, type, OptionArgumentParser.class);
+		}
+		return false;
+	}
+	
+	private void add(TypeElement cls, String kind, String name, Class<?> iface) {
+		TypeMirror ifaceType = processingEnv.getTypeUtils().erasure(
+				processingEnv.getElementUtils().getTypeElement(iface.getCanonicalName()).asType());
+		if (!processingEnv.getTypeUtils().isAssignable(processingEnv.getTypeUtils().erasure(cls.asType()), ifaceType)) {
+			error(cls, "A plugin with @Plugin(" + kind + "=...) must implement " + iface.getSimpleName());
+			return;
+		}
+		String className = processingEnv.getElementUtils().getBinaryName(cls).toString();
+		String prev = entries.put(kind + "\t" + name, className);
+		if (prev != null && !prev.equals(className))
+			error(cls, "Both " + prev + " and " + className + " are plugins for " + kind + " " + name);
+	}
+	
+	/**
+	 * @return the binary name of the type of a converter; the class cannot be loaded while compiling
+	 */
+	private String typeName(Plugin plugin) {
+		try {
+			return plugin.type().getName();
+		} catch (MirroredTypeException e) {
+			Element type = processingEnv.getTypeUtils().asElement(e.getTypeMirror());
+			if (type instanceof TypeElement)
+				return processingEnv.getElementUtils().getBinaryName((TypeElement) type).toString();
+			return e.getTypeMirror().toString();	// a primitive type
+		}
+	}
+	
+	private void writeIndex() {
+		try {
+			FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", Plugins.INDEX);
+			try (Writer writer = file.openWriter()) {
+				writer.write("# generated by " + PluginIndexProcessor.class.getName() + "\n");
+				for (Entry<String, String> e : entries.entrySet()) {
+					writer.write(e.getKey() + "\t" + e.getValue() + "\n");
+				}
+			}
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Could not write " + Plugins.INDEX + ": " + e);
+		}
+	}
+	
+	private void error(Element e, String msg) {
+		processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, msg, e);
+	}
+}
@@ -0,0 +1,248 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import edu.byu.nlp.util.jargparser.annotations.Plugin;
+
+/**
+ * The actions and converters that a class loader provides as plugins. The
+ * index generated at build time is read the first time a parser misses an
+ * action or type, and each plugin is only loaded and instantiated when a
+ * parser first needs it. Only if the index has no entry are the
+ * <code>ServiceLoader</code> providers that are not in the index searched,
+ * by reading their <code>Plugin</code> annotations without instantiating them.
+ * Parsers keep the plugins they find. What has been looked up is kept for as
+ * long as the class loader is alive, by class name only, so that a class
+ * loader that is discarded is not kept from being collected.
+ * 
+ * @see Plugin
+ * @see PluginIndexProcessor
+ */
+final class Plugins {
+	
+	static final String INDEX = "META-INF/jargparser/plugins.index";
+	static final String SERVICES = "META-INF/services/";
+	static final String ACTION = "action";
+	static final String TYPE = "type";
+	
+	private static final String NONE = "";
+	// the plugins hold nothing loaded by the loader they are keyed on, so they may be held strongly
+	private static final Map<ClassLoader, Plugins> byLoader =
+			Collections.synchronizedMap(new WeakHashMap<ClassLoader, Plugins>());
+	
+	private final WeakReference<ClassLoader> loader;
+	// the class of each plugin already looked up, by key; NONE if there is none
+	private final ConcurrentHashMap<String, String> resolved;
+	// the class of each plugin in the index; read on first use
+	private Map<String, String> index;
+	// the class of each plugin found by ServiceLoader but not in the index; only searched on a miss in the index
+	private Map<String, String> services;
+	
+	Plugins(ClassLoader loader) {
+		this.loader = new WeakReference<ClassLoader>(loader);
+		this.resolved = new ConcurrentHashMap<String, String>();
+	}
+	
+	/**
+	 * @return the plugins of the current thread's context class loader or, if none, of the class loader of this library
+	 */
+	static Plugins get() {
+		ClassLoader loader = Thread.currentThread().getContextClassLoader();
+		if (loader == null)
+			loader = ArgumentParser.class.getClassLoader();
+		synchronized (byLoader) {
+			Plugins plugins = byLoader.get(loader);
+			if (plugins == null) {
+				plugins = new Plugins(loader);
+				byLoader.put(loader, plugins);
+			}
+			return plugins;
+		}
+	}
+	
+	/**
+	 * @param name the name of the action
+	 * @return a new factory that implements the action; null if there is none
+	 */
+	OptionHandlerFactory action(String name) {
+		return (OptionHandlerFactory) lookup(ACTION + "\t" + name, OptionHandlerFactory.class);
+	}
+	
+	/**
+	 * @param type the type of the arguments
+	 * @return a new parser that produces the type; null if there is none
+	 */
+	@SuppressWarnings("unchecked")
+	<T> OptionArgumentParser<T> converter(Class<T> type) {
+		return (OptionArgumentParser<T>) lookup(TYPE + "\t" + type.getName(), OptionArgumentParser.class);
+	}
+	
+	private Object lookup(String key, Class<?> iface) {
+		String className = resolved.get(key);
+		if (className == null) {
+			className = find(key);
+			if (className == null)
+				className = NONE;
+			String prev = resolved.putIfAbsent(key, className);
+			if (prev != null)
+				className = prev;
+		}
+		return className.isEmpty() ? null : instantiate(className, iface);
+	}
+	
+	private synchronized String find(String key) {
+		if (index == null)
+			index = readIndex();
+		String className = index.get(key);
+		if (className != null)
+			return className;
+		if (services == null)
+			services = readServices();
+		return services.get(key);
+	}
+	
+	private ClassLoader loader() {
+		ClassLoader cl = loader.get();
+		if (cl == null)	// cannot happen while a parser looks up plugins through the loader
+			throw new IllegalStateException("The class loader of the plugins has been collected");
+		return cl;
+	}
+	
+	private Object instantiate(String className, Class<?> iface) {
+		Class<?> cls;
+		try {
+			cls = Class.forName(className, true, loader());
+		} catch (ClassNotFoundException e) {
+			throw new IllegalArgumentException("Could not load the plugin " + className, e);
+		}
+		if (!iface.isAssignableFrom(cls))
+			throw new IllegalArgumentException("The plugin " + className + " is not an " + iface.getSimpleName());
+		return new TargetFactories.ConstructorFactory<Object>(cls).newInstance();
+	}
+	
+	/**
+	 * Reads and merges every index visible to the class loader. The first entry for a key wins.
+	 */
+	private Map<String, String> readIndex() {
+		Map<String, String> entries = new HashMap<String, String>();
+		URL url = null;
+		try {
+			Enumeration<URL> urls = loader().getResources(INDEX);
+			while (urls.hasMoreElements()) {
+				url = urls.nextElement();
+				try (InputStream in = url.openStream()) {
+					readIndex(in, entries);
+				}
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not read the plugin index " + (url == null ? INDEX : url), e);
+		}
+		return entries;
+	}
+	
+	/**
+	 * Reads an index, whose lines are of the form <code>action &lt;tab&gt; name &lt;tab&gt; class</code>
+	 * or <code>type &lt;tab&gt; type &lt;tab&gt; class</code>. Blank lines and lines starting with # are ignored.
+	 */
+	static void readIndex(InputStream in, Map<String, String> entries) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+		String line;
+		while ((line = reader.readLine()) != null) {
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#"))
+				continue;
+			String[] fields = line.split("\t");
+			if (fields.length != 3 || !(fields[0].equals(ACTION) || fields[0].equals(TYPE)))
+				throw new IOException("Malformed plugin index entry: " + line);
+			String key = fields[0] + "\t" + fields[1];
+			if (!entries.containsKey(key))
+				entries.put(key, fields[2]);
+		}
+	}
+	
+	/**
+	 * Reads the <code>ServiceLoader</code> provider files of both interfaces, and the
+	 * <code>Plugin</code> annotation of each provider that is not in the index. Providers
+	 * are loaded but neither initialized nor instantiated; those that are not annotated
+	 * are ignored.
+	 */
+	private Map<String, String> readServices() {
+		Collection<String> indexed = index.values();
+		Map<String, String> found = new HashMap<String, String>();
+		for (Class<?> iface : new Class<?>[] {OptionHandlerFactory.class, OptionArgumentParser.class}) {
+			for (String className : readProviders(iface)) {
+				if (indexed.contains(className))
+					continue;
+				Class<?> cls;
+				try {
+					cls = Class.forName(className, false, loader());
+				} catch (ClassNotFoundException e) {
+					throw new IllegalArgumentException("Could not load the plugin " + className, e);
+				}
+				Plugin plugin = cls.getAnnotation(Plugin.class);
+				if (plugin == null)
+					continue;
+				String key = iface == OptionHandlerFactory.class ? ACTION + "\t" + plugin.action() : TYPE + "\t" + plugin.type().getName();
+				if (!found.containsKey(key))
+					found.put(key, className);
+			}
+		}
+		return found;
+	}
+	
+	/**
+	 * @return the class names listed by every provider file of the interface, in order
+	 */
+	private Set<String> readProviders(Class<?> iface) {
+		Set<String> classNames = new LinkedHashSet<String>();
+		URL url = null;
+		try {
+			Enumeration<URL> urls = loader().getResources(SERVICES + iface.getName());
+			while (urls.hasMoreElements()) {
+				url = urls.nextElement();
+				try (BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream(), StandardCharsets.UTF_8))) {
+					String line;
+					while ((line = reader.readLine()) != null) {
+						int comment = line.indexOf('#');
+						line = (comment < 0 ? line : line.substring(0, comment)).trim();
+						if (!line.isEmpty())
+							classNames.add(line);
+					}
+				}
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not read the providers " + (url == null ? SERVICES + iface.getName() : url), e);
+		}
+		return classNames;
+	}
+}
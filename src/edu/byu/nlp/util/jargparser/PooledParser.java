@@ -0,0 +1,82 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A parser and its target, taken from a {@link ParserPool}.
+ * Closing it returns it to the pool.
+ * 
+ * @param <T> the type of the target
+ */
+public class PooledParser<T> implements AutoCloseable {
+
+	private final ParserPool<T> pool;
+	private final ArgumentParser parser;
+	private final T target;
+	private final AtomicBoolean leased = new AtomicBoolean();
+	
+	PooledParser(ParserPool<T> pool, ArgumentParser parser, T target) {
+		this.pool = pool;
+		this.parser = parser;
+		this.target = target;
+	}
+	
+	void lease() {
+		leased.set(true);
+	}
+	
+	/**
+	 * Parses the arguments into the target.
+	 * 
+	 * @param args the arguments to parse
+	 * @return the results of parsing
+	 */
+	public ArgumentValues parseArgs(String... args) {
+		checkLeased();
+		return parser.parseArgs(args);
+	}
+	
+	/**
+	 * @return the parser
+	 */
+	public ArgumentParser getParser() {
+		return parser;
+	}
+	
+	/**
+	 * @return the object the parser stores into
+	 */
+	public T getTarget() {
+		return target;
+	}
+	
+	/**
+	 * Returns the parser to the pool, after which neither it nor its target may be used.
+	 */
+	@Override
+	public void close() {
+		if (!leased.compareAndSet(true, false))
+			throw new IllegalStateException("The parser has already been returned to the pool");
+		pool.release(this);
+	}
+	
+	private void checkLeased() {
+		if (!leased.get())
+			throw new IllegalStateException("The parser has been returned to the pool");
+	}
+}
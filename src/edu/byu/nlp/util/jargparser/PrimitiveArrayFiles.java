@@ -0,0 +1,256 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Loads large arrays of primitives referenced by an option argument
+ * instead of passing every value on the command-line.
+ * The file is memory-mapped and read in bulk without tokenizing it into strings.
+ * Two kinds of references are supported:
+ * <ul>
+ * <li><code>@file:PATH</code> a raw, little-endian binary file containing nothing but the values,
+ * e.g. <code>--weights=@file:weights.bin</code></li>
+ * <li><code>@lines:PATH</code> a text file with one decimal value per line; blank lines are ignored,
+ * e.g. <code>--ids=@lines:ids.txt</code></li>
+ * </ul>
+ * 
+ * <p>References are recognized for <code>int[]</code>, <code>long[]</code>, <code>float[]</code>
+ * and <code>double[]</code> variables with the <code>store</code> action and a single argument.</p>
+ * 
+ * @see PrimitiveArrayOptionHandler
+ */
+public class PrimitiveArrayFiles {
+	
+	public static final String FILE_PREFIX = "@file:";
+	public static final String LINES_PREFIX = "@lines:";
+	
+	private PrimitiveArrayFiles() {
+	}
+	
+	/**
+	 * @param arg an argument to an option
+	 * @return true if the argument refers to a file of values
+	 */
+	public static boolean isReference(String arg) {
+		return arg.startsWith(FILE_PREFIX) || arg.startsWith(LINES_PREFIX);
+	}
+	
+	/**
+	 * Loads the values of the referenced file.
+	 * 
+	 * @param ref			the reference, e.g. <code>@file:weights.bin</code>
+	 * @param componentType	one of <code>int.class</code>, <code>long.class</code>, <code>float.class</code> or <code>double.class</code>
+	 * @return an array of <code>componentType</code> 
+	 */
+	public static Object load(String ref, Class<?> componentType) {
+		return load(ref, componentType, ParseLimits.UNLIMITED);
+	}
+	
+	/**
+	 * Loads the values of the referenced file, failing before the array
+	 * is allocated if it would hold more than <code>maxElements</code> values.
+	 * 
+	 * @param ref			the reference, e.g. <code>@file:weights.bin</code>
+	 * @param componentType	one of <code>int.class</code>, <code>long.class</code>, <code>float.class</code> or <code>double.class</code>
+	 * @param maxElements	the maximum number of values
+	 * @return an array of <code>componentType</code> 
+	 */
+	public static Object load(String ref, Class<?> componentType, int maxElements) {
+		return load(ref, componentType, maxElements, null);
+	}
+	
+	/**
+	 * Loads the values of the referenced file, resolving a relative path against
+	 * <code>dir</code>, or the working directory if it is null.
+	 */
+	static Object load(String ref, Class<?> componentType, int maxElements, File dir) {
+		boolean binary = ref.startsWith(FILE_PREFIX);
+		if (!binary && !ref.startsWith(LINES_PREFIX))
+			throw new IllegalArgumentException(ref + " is not a file reference");
+		File file = new File(ref.substring(binary ? FILE_PREFIX.length() : LINES_PREFIX.length()));
+		if (dir != null && !file.isAbsolute())
+			file = new File(dir, file.getPath());
+		
+		ByteBuffer buf = map(file);
+		if (binary)
+			return readBinary(buf, componentType, file, maxElements);
+		return readLines(buf, componentType, file, maxElements);
+	}
+	
+	private static ByteBuffer map(File file) {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			FileChannel channel = raf.getChannel();
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new IllegalArgumentException("File " + file + " is too large");
+			// the mapping remains valid after the channel is closed
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Could not read " + file + ": " + e.getMessage(), e);
+		}
+	}
+	
+	private static Object readBinary(ByteBuffer buf, Class<?> componentType, File file, int maxElements) {
+		buf.order(ByteOrder.LITTLE_ENDIAN);
+		int width = (componentType == Integer.TYPE || componentType == Float.TYPE) ? 4 : 8;
+		if (buf.remaining() % width != 0)
+			throw new IllegalArgumentException("The size of " + file + " is not a multiple of " + width + " bytes");
+		int n = buf.remaining() / width;
+		ParseLimits.checkCollectionSize(n, maxElements);
+		
+		if (componentType == Integer.TYPE) {
+			int[] values = new int[n];
+			buf.asIntBuffer().get(values);
+			return values;
+		} else if (componentType == Long.TYPE) {
+			long[] values = new long[n];
+			buf.asLongBuffer().get(values);
+			return values;
+		} else if (componentType == Float.TYPE) {
+			float[] values = new float[n];
+			buf.asFloatBuffer().get(values);
+			return values;
+		} else if (componentType == Double.TYPE) {
+			double[] values = new double[n];
+			buf.asDoubleBuffer().get(values);
+			return values;
+		}
+		throw new IllegalArgumentException("Cannot load arrays of " + componentType + " from a file");
+	}
+	
+	private static Object readLines(ByteBuffer buf, Class<?> componentType, File file, int maxElements) {
+		// Count first so the array is allocated exactly once
+		int n = 0;
+		Lines lines = new Lines(buf);
+		while (lines.next())
+			ParseLimits.checkCollectionSize(++n, maxElements);
+		
+		int[] ints = null;
+		long[] longs = null;
+		float[] floats = null;
+		double[] doubles = null;
+		Object values;
+		if (componentType == Integer.TYPE) {
+			values = ints = new int[n];
+		} else if (componentType == Long.TYPE) {
+			values = longs = new long[n];
+		} else if (componentType == Float.TYPE) {
+			values = floats = new float[n];
+		} else if (componentType == Double.TYPE) {
+			values = doubles = new double[n];
+		} else {
+			throw new IllegalArgumentException("Cannot load arrays of " + componentType + " from a file");
+		}
+		
+		byte[] scratch = new byte[32];
+		lines = new Lines(buf);
+		for (int i = 0; lines.next(); i++) {
+			try {
+				if (ints != null) {
+					ints[i] = (int) parseLong(buf, lines.start, lines.end, Integer.MIN_VALUE, Integer.MAX_VALUE);
+				} else if (longs != null) {
+					longs[i] = parseLong(buf, lines.start, lines.end, Long.MIN_VALUE, Long.MAX_VALUE);
+				} else {
+					// there is no allocation-free floating point parser, so decode just this line
+					int len = lines.end - lines.start;
+					if (len > scratch.length)
+						scratch = new byte[len];
+					for (int j = 0; j < len; j++)
+						scratch[j] = buf.get(lines.start + j);
+					String value = new String(scratch, 0, len, StandardCharsets.ISO_8859_1);
+					if (floats != null)
+						floats[i] = Float.parseFloat(value);
+					else
+						doubles[i] = Double.parseDouble(value);
+				}
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid value on line " + lines.lineNumber + " of " + file);
+			}
+		}
+		return values;
+	}
+	
+	/**
+	 * Parses a decimal integer in <code>[start, end)</code> without creating a string.
+	 * Accumulates negatively, as <code>Long.parseLong</code> does, so that <code>min</code> can be represented.
+	 */
+	private static long parseLong(ByteBuffer buf, int start, int end, long min, long max) {
+		int i = start;
+		boolean negative = false;
+		byte first = buf.get(i);
+		if (first == '-' || first == '+') {
+			negative = first == '-';
+			i++;
+		}
+		if (i == end)
+			throw new NumberFormatException();
+		
+		long limit = negative ? min : -max;
+		long multmin = limit / 10;
+		long result = 0;
+		for (; i < end; i++) {
+			int digit = buf.get(i) - '0';
+			if (digit < 0 || digit > 9 || result < multmin)
+				throw new NumberFormatException();
+			result *= 10;
+			if (result < limit + digit)
+				throw new NumberFormatException();
+			result -= digit;
+		}
+		return negative ? result : -result;
+	}
+	
+	/**
+	 * Iterates over the non-blank lines of a buffer, trimming surrounding whitespace
+	 * (including the '\r' of Windows line endings).
+	 */
+	private static class Lines {
+		private final ByteBuffer buf;
+		private int pos;
+		int start;
+		int end;
+		int lineNumber;
+		
+		Lines(ByteBuffer buf) {
+			this.buf = buf;
+		}
+		
+		boolean next() {
+			int limit = buf.limit();
+			while (pos < limit) {
+				start = pos;
+				while (pos < limit && buf.get(pos) != '\n')
+					pos++;
+				end = pos++;
+				lineNumber++;
+				while (start < end && (buf.get(start) & 0xFF) <= ' ')
+					start++;
+				while (end > start && (buf.get(end - 1) & 0xFF) <= ' ')
+					end--;
+				if (start < end)
+					return true;
+			}
+			return false;
+		}
+	}
+}
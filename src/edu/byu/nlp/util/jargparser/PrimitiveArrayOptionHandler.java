@@ -0,0 +1,39 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+/**
+ * An option handler that stores an array of primitives and can therefore
+ * accept the whole array at once, e.g. when it is loaded from a file
+ * rather than converted from individual arguments.
+ * 
+ * @see PrimitiveArrayFiles
+ */
+public interface PrimitiveArrayOptionHandler extends OptionHandler {
+	
+	/**
+	 * @return the primitive component type of the stored array, e.g. <code>int.class</code>
+	 */
+	Class<?> getComponentType();
+	
+	/**
+	 * Stores the array as the value of this option.
+	 * 
+	 * @param array an array whose component type is {@link #getComponentType()}
+	 * @param state the state of the parser
+	 */
+	void storeArray(Object array, ParserState state);
+}
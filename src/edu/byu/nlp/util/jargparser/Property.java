@@ -31,15 +31,14 @@ public class Property implements ReflectiveVariable {
 	public Property(Method getter, Method setter) {
 		this.getter = getter;
 		this.setter = setter;
+		// made accessible once, rather than around each access, so that parses may run concurrently
+		getter.setAccessible(true);
+		setter.setAccessible(true);
 	}
 
 	@Override
 	public Object get(Object obj) throws IllegalAccessException, IllegalArgumentException, InvocationTargetException {
-		boolean b = getter.isAccessible();
-		getter.setAccessible(true);
-		Object ret = getter.invoke(obj, (Object[])null);
-		getter.setAccessible(b);
-		return ret;
+		return getter.invoke(obj, (Object[])null);
 	}
 
 	private transient String name = null;
@@ -65,10 +64,7 @@ public class Property implements ReflectiveVariable {
 
 	@Override
 	public void set(Object obj, Object value) throws IllegalAccessException, IllegalArgumentException, InvocationTargetException {
-		boolean b = setter.isAccessible();
-		setter.setAccessible(true);
 		setter.invoke(obj, new Object[]{value});
-		setter.setAccessible(b);
 	}
 
 	@Override
@@ -0,0 +1,85 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+/**
+ * Holds the value of an option that may differ between concurrent runs of a
+ * program in the same JVM. Declare it as a static variable in place of
+ * the value itself; the parser stores into the holder:
+ * 
+ * <p><blockquote><pre>
+ * 	@Option("write report to FILE")
+ * 	static final ScopedOption&lt;String&gt; file = new ScopedOption&lt;String&gt;("out.txt");
+ * </pre></blockquote></p>
+ * 
+ * <p>Outside of any {@link OptionScope}, the holder behaves like a shared variable.
+ * Within a scope, its value is that of the scope, falling back to the shared value
+ * if it hasn't been set in the scope.</p>
+ * 
+ * <p>Since the shared value is visible to every scope, it should not be a mutable
+ * collection when the option appends to it; leave it null instead.</p>
+ * 
+ * @param <T> the type of the option
+ * 
+ * @see OptionScope
+ */
+public class ScopedOption<T> {
+
+	private volatile T value;
+	
+	/**
+	 * Creates a holder whose shared value is null.
+	 */
+	public ScopedOption() {
+		this(null);
+	}
+	
+	/**
+	 * @param defaultValue the shared value, used by scopes that don't set their own
+	 */
+	public ScopedOption(T defaultValue) {
+		this.value = defaultValue;
+	}
+	
+	/**
+	 * @return the value within the current scope
+	 */
+	@SuppressWarnings("unchecked")
+	public T get() {
+		OptionScope scope = OptionScope.current();
+		if (scope != null && scope.contains(this))
+			return (T) scope.get(this);
+		return value;
+	}
+	
+	/**
+	 * Sets the value within the current scope, or the shared value if there is no current scope.
+	 * 
+	 * @param value the new value
+	 */
+	public void set(T value) {
+		OptionScope scope = OptionScope.current();
+		if (scope != null)
+			scope.set(this, value);
+		else
+			this.value = value;
+	}
+	
+	@Override
+	public String toString() {
+		return String.valueOf(get());
+	}
+}
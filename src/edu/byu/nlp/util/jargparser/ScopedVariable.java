@@ -0,0 +1,87 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+
+/**
+ * Wrapper around a variable holding a {@link ScopedOption}. The value
+ * is stored in the holder; the variable itself is never assigned.
+ */
+public class ScopedVariable implements ReflectiveVariable {
+
+	private final Field f;
+	private final Type genericType;
+	private final Class<?> type;
+	
+	public ScopedVariable(Field f) {
+		this.f = f;
+		f.setAccessible(true);
+		
+		Type holderType = f.getGenericType();
+		if (!(holderType instanceof ParameterizedType))
+			throw new IllegalArgumentException("The type of the ScopedOption " + f.getName() + " must be specified");
+		this.genericType = ((ParameterizedType) holderType).getActualTypeArguments()[0];
+		if (genericType instanceof Class<?>) {
+			this.type = (Class<?>) genericType;
+		} else if (genericType instanceof ParameterizedType) {
+			this.type = (Class<?>) ((ParameterizedType) genericType).getRawType();
+		} else {
+			throw new IllegalArgumentException("Unsupported type for the ScopedOption " + f.getName() + ": " + genericType);
+		}
+	}
+
+	@Override
+	public Object get(Object obj) throws IllegalAccessException {
+		return holder(obj).get();
+	}
+
+	@Override
+	public void set(Object obj, Object value) throws IllegalAccessException {
+		holder(obj).set(value);
+	}
+	
+	@SuppressWarnings("unchecked")
+	private ScopedOption<Object> holder(Object obj) throws IllegalAccessException {
+		ScopedOption<Object> holder = (ScopedOption<Object>) f.get(obj);
+		if (holder == null)
+			throw new IllegalStateException("The ScopedOption " + f.getName() + " has not been initialized");
+		return holder;
+	}
+
+	@Override
+	public boolean hasValue() {
+		return true;
+	}
+
+	@Override
+	public Class<?> getType() {
+		return type;
+	}
+
+	@Override
+	public String getName() {
+		return f.getName();
+	}
+
+	@Override
+	public Type getGenericType() {
+		return genericType;
+	}
+
+}
@@ -0,0 +1,463 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import edu.byu.nlp.util.jargparser.arghandlers.StoreChoicesOption;
+
+/**
+ * Completes command-lines in bash, zsh and fish. The shell scripts returned
+ * by {@link #script(Shell, String)} run the program with {@link #COMPLETE_OPTION}
+ * followed by the words typed so far, and the program answers with the
+ * candidates for the last word, one per line: the matching option strings,
+ * the valid choices of an option's argument, or the names of sub-commands.
+ * Arguments of <code>File</code> and <code>Path</code> options are completed
+ * by the shell as paths.
+ * 
+ * <p>The option strings are kept sorted, so that a query is a binary search
+ * rather than a scan of every option. A query need not wait for the parser
+ * at all: the index can be written to a file at build time with
+ * {@link #write(OutputStream)}, shipped alongside the program, and read back
+ * with {@link #read(InputStream)} before any options are added:</p>
+ * 
+ * <p><blockquote><pre>
+ * 	public static void main(String[] args) throws IOException {
+ * 		if (ShellCompletion.isQuery(args)) {
+ * 			ShellCompletion.read(Main.class.getResourceAsStream("main.completion")).answer(args, System.out);
+ * 			return;
+ * 		}
+ * 		...
+ * </pre></blockquote></p>
+ * 
+ * <p>Alternatively, {@link ArgumentParser#setCompletionEnabled(boolean)} makes
+ * <code>parseArgs</code> answer queries itself. The indexes of sub-commands are
+ * only built when a command-line reaches the command.</p>
+ */
+public final class ShellCompletion {
+	
+	/**
+	 * The first argument of a completion query.
+	 */
+	public static final String COMPLETE_OPTION = "--__complete";
+	
+	/**
+	 * The sole candidate when the word is a path, to be completed by the shell.
+	 */
+	public static final String FILES = ":files";
+	
+	/**
+	 * The shells for which scripts can be generated.
+	 */
+	public enum Shell { BASH, ZSH, FISH }
+	
+	private static final String HEADER = "jargparser-completion 1";
+	private static final String END = ".";
+	
+	private static final class Entry {
+		final int numArgs;
+		final boolean files;
+		final String[] choices;
+		
+		Entry(int numArgs, boolean files, String[] choices) {
+			this.numArgs = numArgs;
+			this.files = files;
+			this.choices = choices;
+		}
+	}
+	
+	// builds the indexes of sub-commands; null if the index was read from a file
+	private final ArgumentParser parser;
+	// option strings, sorted, and the corresponding entries
+	private final String[] names;
+	private final Entry[] entries;
+	// sub-commands, sorted, and their indexes once built
+	private final String[] commands;
+	private final ShellCompletion[] commandIndexes;
+	
+	/**
+	 * Builds the index of the options currently added to a parser, including
+	 * those of its namespaces, e.g. <code>--encoder.layers</code>.
+	 * 
+	 * @param parser the parser
+	 */
+	public ShellCompletion(ArgumentParser parser) {
+		this.parser = parser;
+		OptionRegistry options = parser.currentOptions();
+		Map<String, Entry> sorted = new TreeMap<String, Entry>();
+		index(options, null, sorted);
+		this.names = sorted.keySet().toArray(new String[sorted.size()]);
+		this.entries = sorted.values().toArray(new Entry[sorted.size()]);
+		this.commands = options.commands.keySet().toArray(new String[options.commands.size()]);
+		Arrays.sort(commands);
+		this.commandIndexes = new ShellCompletion[commands.length];
+	}
+	
+	/**
+	 * Adds the options of a registry, and of its namespaces, to the index.
+	 * 
+	 * @param namespace	the names of the namespaces leading to the registry, each followed by "."; null for the parser's own
+	 */
+	private static void index(OptionRegistry options, String namespace, Map<String, Entry> sorted) {
+		for (OptionHandler opt : options.mainGroup) {
+			Entry entry = new Entry(opt.getNumArgs(), isPath(opt.getType()), choicesOf(opt));
+			for (String optString : opt.getOptionStrings()) {
+				// option strings may have been taken over by later options
+				String name = ArgumentParser.stripPrefix(optString);
+				OptionHandler mapped = ArgumentParser.isLongOpt(optString) ? options.longOpts.get(name) : options.shortOpts.get(name.charAt(0));
+				if (mapped == opt)
+					sorted.put(namespace == null ? optString : "--" + namespace + name, entry);
+			}
+		}
+		for (Namespace ns : options.namespaces.values()) {
+			index(ns.options(), (namespace == null ? "" : namespace) + ns.name + ".", sorted);
+		}
+	}
+	
+	private ShellCompletion(String[] names, Entry[] entries, String[] commands, ShellCompletion[] commandIndexes) {
+		this.parser = null;
+		this.names = names;
+		this.entries = entries;
+		this.commands = commands;
+		this.commandIndexes = commandIndexes;
+	}
+	
+	private static boolean isPath(Class<?> type) {
+		return type == File.class || type == Path.class;
+	}
+	
+	private static String[] choicesOf(OptionHandler opt) {
+		if (opt instanceof StoreChoicesOption) {
+			List<String> choices = ((StoreChoicesOption) opt).getChoices();
+			return choices.toArray(new String[choices.size()]);
+		}
+		Class<?> type = opt.getType();
+		if (type != null && type.isEnum()) {
+			Object[] constants = type.getEnumConstants();
+			String[] choices = new String[constants.length];
+			for (int i = 0; i < constants.length; i++) {
+				choices[i] = ((Enum<?>) constants[i]).name();
+			}
+			return choices;
+		}
+		return null;
+	}
+	
+	/**
+	 * @param args the arguments the program was run with
+	 * @return true if the arguments are a completion query
+	 */
+	public static boolean isQuery(String[] args) {
+		return args.length > 0 && args[0].equals(COMPLETE_OPTION);
+	}
+	
+	/**
+	 * Answers a completion query by printing the candidates, one per line.
+	 * 
+	 * @param args	the arguments the program was run with
+	 * @param out	where the candidates are printed
+	 * @return false, having printed nothing, if the arguments are not a completion query
+	 * 
+	 * @see #isQuery(String[])
+	 */
+	public boolean answer(String[] args, PrintStream out) {
+		if (!isQuery(args))
+			return false;
+		for (String candidate : candidates(args)) {
+			out.println(candidate);
+		}
+		out.flush();
+		return true;
+	}
+	
+	/**
+	 * @return the candidates answering a completion query
+	 */
+	List<String> candidates(String[] args) {
+		List<String> words = Arrays.asList(args).subList(1, args.length);
+		return complete(words.isEmpty() ? Collections.singletonList("") : words);
+	}
+	
+	/**
+	 * Completes the last of the words typed after the program name.
+	 * 
+	 * @param words the words, the last of which is being completed and may be empty
+	 * @return the candidates for the last word, or {@link #FILES} alone if it is a path
+	 */
+	public List<String> complete(List<String> words) {
+		String current = words.get(words.size() - 1);
+		Entry pending = null;		// the option whose arguments are being typed
+		int argsNeeded = 0;
+		boolean optionsEnded = false;
+		for (int i = 0; i < words.size() - 1; i++) {
+			String word = words.get(i);
+			if (argsNeeded > 0) {
+				argsNeeded--;
+			} else if (!optionsEnded && word.equals("--")) {
+				optionsEnded = true;
+			} else if (!optionsEnded && word.startsWith("-") && word.length() > 1) {
+				pending = null;
+				if (ArgumentParser.isLongOpt(word)) {
+					int pos = word.indexOf('=');
+					Entry entry = longOption(pos > -1 ? word.substring(0, pos) : word);
+					if (entry != null && entry.numArgs > 0) {
+						pending = entry;
+						argsNeeded = pos > -1 ? entry.numArgs - 1 : entry.numArgs;
+					}
+				} else {
+					for (int charIndex = 1; charIndex < word.length(); charIndex++) {
+						Entry entry = option("-" + word.charAt(charIndex));
+						if (entry == null)
+							break;
+						if (entry.numArgs > 0) {	// the rest of the word, if any, is the first argument
+							pending = entry;
+							argsNeeded = charIndex + 1 < word.length() ? entry.numArgs - 1 : entry.numArgs;
+							break;
+						}
+					}
+				}
+			} else if (commands.length > 0) {
+				ShellCompletion command = command(word);
+				if (command == null)
+					return Collections.emptyList();
+				return command.complete(words.subList(i + 1, words.size()));
+			}
+		}
+		
+		if (argsNeeded > 0)
+			return arguments(pending, "", current);
+		if (!optionsEnded && current.startsWith("-")) {
+			int pos = current.indexOf('=');
+			if (ArgumentParser.isLongOpt(current) && pos > -1) {
+				Entry entry = longOption(current.substring(0, pos));
+				if (entry == null || entry.numArgs == 0)
+					return Collections.emptyList();
+				return arguments(entry, current.substring(0, pos + 1), current.substring(pos + 1));
+			}
+			return withPrefix(names, "", current);
+		}
+		if (commands.length > 0)
+			return withPrefix(commands, "", current);
+		return Collections.singletonList(FILES);
+	}
+	
+	private List<String> arguments(Entry entry, String prefix, String current) {
+		if (entry.files)
+			return Collections.singletonList(FILES);
+		if (entry.choices == null)
+			return Collections.emptyList();
+		List<String> candidates = new ArrayList<String>();
+		for (String choice : entry.choices) {
+			if (choice.startsWith(current))
+				candidates.add(prefix + choice);
+		}
+		return candidates;
+	}
+	
+	/**
+	 * @return the candidates in the sorted array that start with <code>current</code>, each preceded by <code>prefix</code>
+	 */
+	private static List<String> withPrefix(String[] sorted, String prefix, String current) {
+		List<String> candidates = new ArrayList<String>();
+		for (int i = lowerBound(sorted, current); i < sorted.length && sorted[i].startsWith(current); i++) {
+			candidates.add(prefix + sorted[i]);
+		}
+		return candidates;
+	}
+	
+	private static int lowerBound(String[] sorted, String key) {
+		int i = Arrays.binarySearch(sorted, key);
+		return i < 0 ? -i - 1 : i;
+	}
+	
+	private Entry option(String optString) {
+		int i = Arrays.binarySearch(names, optString);
+		return i < 0 ? null : entries[i];
+	}
+	
+	/**
+	 * Finds a long option by its name or, as the parser does, by an unambiguous prefix of it.
+	 */
+	private Entry longOption(String optString) {
+		int i = lowerBound(names, optString);
+		if (i == names.length || !names[i].startsWith(optString))
+			return null;
+		if (names[i].equals(optString) || i + 1 == names.length || !names[i + 1].startsWith(optString))
+			return entries[i];
+		return null;
+	}
+	
+	private ShellCompletion command(String name) {
+		int i = Arrays.binarySearch(commands, name);
+		if (i < 0)
+			return null;
+		if (commandIndexes[i] == null && parser != null)
+			commandIndexes[i] = new ShellCompletion(parser.getCommand(name));
+		return commandIndexes[i];
+	}
+	
+	/**
+	 * Writes the index, including those of every sub-command, so that it can
+	 * be read back with {@link #read(InputStream)}. Sub-commands are loaded
+	 * as necessary. The stream is not closed.
+	 * 
+	 * @param out where the index is written
+	 * @throws IOException if the index cannot be written
+	 */
+	public void write(OutputStream out) throws IOException {
+		Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+		writer.write(HEADER);
+		writer.write('\n');
+		write(writer);
+		writer.flush();
+	}
+	
+	private void write(Writer writer) throws IOException {
+		for (int i = 0; i < names.length; i++) {
+			writer.write("o\t" + names[i] + "\t" + entries[i].numArgs + "\t" + (entries[i].files ? "f" : "-"));
+			if (entries[i].choices != null) {
+				for (String choice : entries[i].choices) {
+					writer.write("\t" + choice);
+				}
+			}
+			writer.write('\n');
+		}
+		for (String name : commands) {
+			writer.write("c\t" + name + "\n");
+			ShellCompletion command = command(name);
+			if (command != null)
+				command.write(writer);
+			writer.write(END + "\n");
+		}
+	}
+	
+	/**
+	 * Reads an index written by {@link #write(OutputStream)}. The stream is not closed.
+	 * 
+	 * @param in the index
+	 * @return the index
+	 * @throws IOException if the index cannot be read or is not an index
+	 */
+	public static ShellCompletion read(InputStream in) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+		if (!HEADER.equals(reader.readLine()))
+			throw new IOException("Not a completion index");
+		return read(reader);
+	}
+	
+	private static ShellCompletion read(BufferedReader reader) throws IOException {
+		List<String> names = new ArrayList<String>();
+		List<Entry> entries = new ArrayList<Entry>();
+		List<String> commands = new ArrayList<String>();
+		List<ShellCompletion> commandIndexes = new ArrayList<ShellCompletion>();
+		String line;
+		while ((line = reader.readLine()) != null && !line.equals(END)) {
+			String[] fields = line.split("\t", -1);
+			if (fields[0].equals("o") && fields.length >= 4) {
+				names.add(fields[1]);
+				String[] choices = fields.length > 4 ? Arrays.copyOfRange(fields, 4, fields.length) : null;
+				entries.add(new Entry(Integer.parseInt(fields[2]), fields[3].equals("f"), choices));
+			} else if (fields[0].equals("c") && fields.length == 2) {
+				commands.add(fields[1]);
+				commandIndexes.add(read(reader));
+			} else {
+				throw new IOException("Malformed completion index: " + line);
+			}
+		}
+		return new ShellCompletion(names.toArray(new String[names.size()]), entries.toArray(new Entry[entries.size()]),
+				commands.toArray(new String[commands.size()]), commandIndexes.toArray(new ShellCompletion[commandIndexes.size()]));
+	}
+	
+	/**
+	 * Generates a completion script, which is typically sourced from the shell's
+	 * start-up file or installed in its completions directory.
+	 * 
+	 * @param shell	the shell
+	 * @param prog	the name of the program as typed in the shell
+	 * @return the script
+	 */
+	public static String script(Shell shell, String prog) {
+		String fn = "_" + prog.replaceAll("[^A-Za-z0-9_]", "_") + "_complete";
+		StringBuilder sb = new StringBuilder();
+		switch (shell) {
+		case BASH:
+			sb.append("# bash completion for ").append(prog).append('\n');
+			sb.append(fn).append("() {\n");
+			// COMP_WORDS splits "--opt=value" at "=", so the words are taken from the line instead
+			sb.append("\tlocal IFS=$' \\t\\n'\n");
+			sb.append("\tlocal -a words out\n");
+			sb.append("\tread -ra words <<< \"${COMP_LINE:0:COMP_POINT}\"\n");
+			sb.append("\t[[ \"${COMP_LINE:0:COMP_POINT}\" == *[[:space:]] ]] && words+=(\"\")\n");
+			// the shell replaces only the part of the word after the last "="
+			sb.append("\tlocal cur=\"${words[${#words[@]}-1]}\" prefix=\"\"\n");
+			sb.append("\t[[ \"$cur\" == *=* && \"$COMP_WORDBREAKS\" == *=* ]] && prefix=\"${cur%=*}=\"\n");
+			sb.append("\tIFS=$'\\n'\n");
+			sb.append("\tout=($(").append(prog).append(' ').append(COMPLETE_OPTION).append(" \"${words[@]:1}\" 2>/dev/null))\n");
+			sb.append("\tif [ \"${out[0]}\" = \"").append(FILES).append("\" ]; then\n");
+			sb.append("\t\tCOMPREPLY=($(compgen -f -- \"${cur#\"$prefix\"}\"))\n");
+			sb.append("\telse\n");
+			sb.append("\t\tCOMPREPLY=(\"${out[@]#\"$prefix\"}\")\n");
+			sb.append("\tfi\n");
+			sb.append("}\n");
+			sb.append("complete -o filenames -F ").append(fn).append(' ').append(prog).append('\n');
+			break;
+		case ZSH:
+			sb.append("#compdef ").append(prog).append('\n');
+			sb.append(fn).append("() {\n");
+			sb.append("\tlocal -a out\n");
+			sb.append("\tout=(\"${(@f)$(").append(prog).append(' ').append(COMPLETE_OPTION).append(" \"${(@)words[2,CURRENT]}\" 2>/dev/null)}\")\n");
+			sb.append("\tif [[ \"$out[1]\" == \"").append(FILES).append("\" ]]; then\n");
+			sb.append("\t\t_files\n");
+			sb.append("\telse\n");
+			sb.append("\t\tcompadd -- $out\n");
+			sb.append("\tfi\n");
+			sb.append("}\n");
+			sb.append("compdef ").append(fn).append(' ').append(prog).append('\n');
+			break;
+		case FISH:
+			sb.append("# fish completion for ").append(prog).append('\n');
+			sb.append("function ").append(fn).append('\n');
+			sb.append("\tset -l words (commandline -opc)\n");
+			sb.append("\tset -l cur (commandline -ct)\n");
+			sb.append("\tset -l out (").append(prog).append(' ').append(COMPLETE_OPTION).append(" $words[2..-1] \"$cur\" 2>/dev/null)\n");
+			sb.append("\tif test \"$out[1]\" = \"").append(FILES).append("\"\n");
+			sb.append("\t\t__fish_complete_path \"$cur\"\n");
+			sb.append("\telse\n");
+			sb.append("\t\tprintf '%s\\n' $out\n");
+			sb.append("\tend\n");
+			sb.append("end\n");
+			sb.append("complete -c ").append(prog).append(" -f -a '(").append(fn).append(")'\n");
+			break;
+		}
+		return sb.toString();
+	}
+}
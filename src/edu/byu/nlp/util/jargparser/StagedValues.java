@@ -0,0 +1,226 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The values of a transactional parse, held back until the parse succeeds. Option
+ * handlers record each occurrence here rather than in the target; repeated
+ * occurrences of a <code>count</code> option only increment a counter and those of
+ * a collection option only add to a list, so that the target is read and written
+ * once per option, when the values are committed.
+ * 
+ * <p>Values are committed in the order their options were last seen, so that when
+ * several options share a variable the last one wins, as it would otherwise.</p>
+ * 
+ * @see ArgumentParser#setTransactional(boolean)
+ * @see ParserState#getStagedValues()
+ */
+public final class StagedValues {
+	
+	private final Map<OptionHandler, Entry> entries = new LinkedHashMap<OptionHandler, Entry>();
+	
+	StagedValues() {
+	}
+	
+	/**
+	 * Stages a value that replaces the variable's current value.
+	 */
+	public void set(OptionHandler opt, ReflectiveVariable var, Object target, Object value) {
+		Value e = (Value) touch(opt);
+		if (e == null)
+			e = (Value) put(opt, new Value(var, target));
+		e.value = value;
+	}
+	
+	/**
+	 * Stages another increment of an <code>int</code> or <code>Integer</code> variable.
+	 */
+	public void increment(OptionHandler opt, ReflectiveVariable var, Object target) throws Exception {
+		Counter e = (Counter) touch(opt);
+		if (e == null)
+			e = (Counter) put(opt, new Counter(var, target));
+		e.count++;
+	}
+	
+	/**
+	 * Stages elements to be added to a collection, which is created if the variable is null.
+	 */
+	public void addAll(OptionHandler opt, ReflectiveVariable var, Object target,
+			CollectionFactory<Object> factory, Collection<?> elements) throws Exception {
+		Builder e = (Builder) touch(opt);
+		if (e == null)
+			e = (Builder) put(opt, new Builder(var, target, factory));
+		e.elements.addAll(elements);
+	}
+	
+	/**
+	 * Moves the option's entry, if any, to the end of the commit order.
+	 */
+	private Entry touch(OptionHandler opt) {
+		Entry e = entries.remove(opt);
+		if (e != null)
+			entries.put(opt, e);
+		return e;
+	}
+	
+	private Entry put(OptionHandler opt, Entry e) {
+		entries.put(opt, e);
+		return e;
+	}
+	
+	/**
+	 * Returns the value the option will have once committed, without changing the target.
+	 */
+	Object valueOf(OptionHandler opt, Object target) {
+		Entry e = entries.get(opt);
+		if (e == null)
+			return ArgumentValues.valueOf(opt, target);
+		try {
+			return e.preview();
+		} catch (RuntimeException ex) {
+			throw ex;
+		} catch (Exception ex) {
+			throw new RuntimeException(ex);
+		}
+	}
+	
+	/**
+	 * Returns the size the option's collection will have once committed.
+	 * 
+	 * @return the size; -1 if the option's value is not a collection
+	 */
+	int collectionSize(OptionHandler opt, Object target) {
+		Entry e = entries.get(opt);
+		if (e instanceof Builder)
+			return ((Builder) e).size();
+		Object value = valueOf(opt, target);
+		return value instanceof Collection<?> ? ((Collection<?>) value).size() : -1;
+	}
+	
+	/**
+	 * Writes every staged value into its target in a single pass. Like a parse
+	 * that is not transactional, this publishes nothing to other threads; a target
+	 * shared with them must be handed over safely, e.g. through a concurrent queue.
+	 */
+	void commit() {
+		try {
+			for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+				it.next().commit();
+				it.remove();
+			}
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+	
+	private static abstract class Entry {
+		final ReflectiveVariable var;
+		final Object target;
+		
+		Entry(ReflectiveVariable var, Object target) {
+			this.var = var;
+			this.target = target;
+		}
+		
+		abstract Object preview() throws Exception;
+		abstract void commit() throws Exception;
+	}
+	
+	private static class Value extends Entry {
+		Object value;
+		
+		Value(ReflectiveVariable var, Object target) {
+			super(var, target);
+		}
+		
+		@Override
+		Object preview() {
+			return value;
+		}
+		
+		@Override
+		void commit() throws Exception {
+			var.set(target, value);
+		}
+	}
+	
+	private static class Counter extends Entry {
+		// the value when the option was first seen
+		final Integer initial;
+		int count;
+		
+		Counter(ReflectiveVariable var, Object target) throws Exception {
+			super(var, target);
+			this.initial = (Integer) var.get(target);
+		}
+		
+		@Override
+		Object preview() {
+			return initial == null ? count : initial + count;
+		}
+		
+		@Override
+		void commit() throws Exception {
+			Integer cur = (Integer) var.get(target);
+			var.set(target, cur == null ? count : cur + count);
+		}
+	}
+	
+	private static class Builder extends Entry {
+		final CollectionFactory<Object> factory;
+		// the collection when the option was first seen
+		final Collection<?> initial;
+		final List<Object> elements = new ArrayList<Object>();
+		
+		Builder(ReflectiveVariable var, Object target, CollectionFactory<Object> factory) throws Exception {
+			super(var, target);
+			this.factory = factory;
+			this.initial = (Collection<?>) var.get(target);
+		}
+		
+		int size() {
+			return (initial == null ? 0 : initial.size()) + elements.size();
+		}
+		
+		@Override
+		Object preview() {
+			Collection<Object> coll = factory.newInstance();
+			if (initial != null)
+				coll.addAll(initial);
+			coll.addAll(elements);
+			return coll;
+		}
+		
+		@SuppressWarnings("unchecked")
+		@Override
+		void commit() throws Exception {
+			Collection<Object> coll = (Collection<Object>) var.get(target);
+			if (coll == null)
+				coll = factory.newInstance();
+			coll.addAll(elements);
+			var.set(target, coll);
+		}
+	}
+}
@@ -27,6 +27,8 @@ import edu.byu.nlp.util.jargparser.arghandlers.StoreBooleanArrayFieldOption;
 import edu.byu.nlp.util.jargparser.arghandlers.StoreByteArrayFieldOption;
 import edu.byu.nlp.util.jargparser.arghandlers.StoreChoicesOption;
 import edu.byu.nlp.util.jargparser.arghandlers.StoreCollectionOption;
+import edu.byu.nlp.util.jargparser.arghandlers.StoreDelimitedArrayOption;
+import edu.byu.nlp.util.jargparser.arghandlers.StoreDelimitedCollectionOption;
 import edu.byu.nlp.util.jargparser.arghandlers.StoreDoubleArrayFieldOption;
 import edu.byu.nlp.util.jargparser.arghandlers.StoreFieldOption;
 import edu.byu.nlp.util.jargparser.arghandlers.StoreFloatArrayFieldOption;
@@ -47,8 +49,14 @@ class Store implements OptionHandlerFactory {
 		if ( !opt.choices()[0].equals("") && numArgs != 1 ) 
 			throw new IllegalArgumentException("Choices only work with exactly one argument");
 		
+		boolean delimited = !opt.separator().equals("");
+		if ( delimited && (numArgs != 1 || !opt.choices()[0].equals("")) )
+			throw new IllegalArgumentException("A delimited list requires exactly one argument and no choices");
+		
 		if (var.getType().isArray()) {
-			if (var.getType().getComponentType().isPrimitive()) {
+			if (delimited) {
+				return new StoreDelimitedArrayOption(var, opt, optObject, optStrings, var.getType().getComponentType());
+			} else if (var.getType().getComponentType().isPrimitive()) {
 				if (var.getType().getComponentType() == Boolean.TYPE) {
 					return new StoreBooleanArrayFieldOption(var, opt, optObject, optStrings, Boolean.class, numArgs);
 				} else if (var.getType().getComponentType() == Byte.TYPE) {
@@ -72,11 +80,14 @@ class Store implements OptionHandlerFactory {
 				var.getType() == List.class ||
 				var.getType() == ArrayList.class ||
 				var.getType() == LinkedList.class ||
-				var.getType() == Set.class) {
+				var.getType() == Set.class ||
+				var.getType() == CompactStringList.class) {
 
 			// get a factory
 			CollectionFactory<Object> factory;
-			if (var.getType().isInstance(Set.class)) {
+			if (var.getType() == CompactStringList.class) {
+				factory = new CollectionFactories.CompactStringListFactory<Object>();
+			} else if (var.getType().isInstance(Set.class)) {
 				factory = new CollectionFactories.HashSetFactory<Object>();
 			} else if (var.getType().isInstance(LinkedList.class)){
 				factory = new CollectionFactories.LinkedListFactory<Object>();
@@ -85,10 +96,19 @@ class Store implements OptionHandlerFactory {
 			}
 
 			// Get the inner type
-			Class<?> innerType = (Class<?>) ((ParameterizedType) var.getGenericType()).getActualTypeArguments()[0];
+			Class<?> innerType;
+			if (var.getType() == CompactStringList.class)
+				innerType = String.class;
+			else
+				innerType = (Class<?>) ((ParameterizedType) var.getGenericType()).getActualTypeArguments()[0];
 			
+			if (delimited)
+				return new StoreDelimitedCollectionOption(var, opt, optObject, optStrings, factory, innerType);
 			return new StoreCollectionOption(var, opt, optObject, optStrings, factory, innerType, numArgs);
 		} else {
+			if (delimited)
+				throw new IllegalArgumentException("A delimited list requires an array or a collection");
+			
 			Class<?> type = ArgumentParser.toWrapper(var.getType());
 
 			if (!opt.choices()[0].equals("")) 
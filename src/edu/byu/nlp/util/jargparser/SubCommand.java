@@ -0,0 +1,82 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+/**
+ * A sub-command registered by name, whose options class is only loaded and
+ * inspected the first time the command is used.
+ * 
+ * @see ArgumentParser#addCommand(String, String)
+ * @see ArgumentParser#addCommand(String, TargetFactory)
+ */
+final class SubCommand {
+
+	final String name;
+	private final String className;
+	private final TargetFactory<?> targetFactory;
+	private volatile ArgumentParser parser;
+	
+	SubCommand(String name, String className, TargetFactory<?> targetFactory) {
+		this.name = name;
+		this.className = className;
+		this.targetFactory = targetFactory;
+	}
+	
+	/**
+	 * @return true once the command's parser has been built
+	 */
+	boolean isLoaded() {
+		return parser != null;
+	}
+	
+	/**
+	 * Gets the command's parser, building it on first use.
+	 * 
+	 * @param parent the parser the command was added to, whose settings the command's parser inherits
+	 */
+	ArgumentParser getParser(ArgumentParser parent) {
+		ArgumentParser p = parser;
+		if (p == null) {
+			synchronized (this) {
+				p = parser;
+				if (p == null) {
+					p = newParser();
+					p.setProg(parent.getProg() + " " + name);
+					p.setExitOnError(parent.isExitOnError());
+					p.setLimits(parent.getLimits());
+					p.setTransactional(parent.isTransactional());
+					p.setTelemetry(parent.getTelemetry());
+					parser = p;
+				}
+			}
+		}
+		return p;
+	}
+	
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private ArgumentParser newParser() {
+		if (targetFactory != null)
+			return new ArgumentParser(targetFactory);
+		Class<?> cls;
+		try {
+			ClassLoader loader = Thread.currentThread().getContextClassLoader();
+			cls = Class.forName(className, true, loader == null ? ArgumentParser.class.getClassLoader() : loader);
+		} catch (ClassNotFoundException e) {
+			throw new IllegalArgumentException("Could not load the options of command " + name + ": " + className, e);
+		}
+		return new ArgumentParser((Class) cls, new TargetFactories.ConstructorFactory(cls));
+	}
+}
@@ -0,0 +1,54 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Standard ways of creating the target of each parse.
+ */
+public class TargetFactories {
+	
+	/**
+	 * Creates targets using the no-argument constructor of a class,
+	 * which need not be public. The class must not be a non-static inner class.
+	 */
+	public static class ConstructorFactory<T> implements TargetFactory<T> {
+		private final Constructor<? extends T> constructor;
+		
+		public ConstructorFactory(Class<? extends T> cls) {
+			try {
+				this.constructor = cls.getDeclaredConstructor();
+			} catch (NoSuchMethodException e) {
+				throw new IllegalArgumentException(cls.getName() + " does not have a no-argument constructor");
+			}
+			// made accessible once so that targets may be created concurrently
+			constructor.setAccessible(true);
+		}
+
+		@Override
+		public T newInstance() {
+			try {
+				return constructor.newInstance();
+			} catch (InvocationTargetException e) {
+				throw new RuntimeException(e.getCause());
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,32 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+/**
+ * Creates the objects that option values are stored into,
+ * one for each command-line that is parsed.
+ * 
+ * @param <T> the type of the objects
+ * 
+ * @see ArgumentParser#parseAll(java.util.List, TargetFactory)
+ */
+public interface TargetFactory<T> {
+	
+	/**
+	 * @return a new object, not shared with any other parse
+	 */
+	T newInstance();
+}
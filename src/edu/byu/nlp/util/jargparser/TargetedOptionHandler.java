@@ -0,0 +1,34 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+/**
+ * An option handler whose value is kept in an object that may differ
+ * from one parse to the next, e.g. when each parse has its own target.
+ * 
+ * @see ParserState#getTarget()
+ */
+public interface TargetedOptionHandler extends OptionHandler {
+	
+	/**
+	 * Gets the value of this option as stored in the specified target.
+	 * 
+	 * @param target the target of a parse; if null, or not a target of this option,
+	 * 		the value is that of {@link #getValue()}
+	 * @return the value of this option
+	 */
+	Object getValue(Object target);
+}
@@ -0,0 +1,149 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The validation of a single parse. Every check, i.e. each element of each
+ * validated option and each arguments validator, is a separate task so that
+ * slow checks, such as those of files on networked storage, overlap.
+ */
+class Validation {
+	
+	/**
+	 * A validator named by an option.
+	 */
+	static class Binding {
+		final OptionHandler opt;
+		final OptionValidator validator;
+		final String arg;
+		
+		Binding(OptionHandler opt, OptionValidator validator, String arg) {
+			this.opt = opt;
+			this.validator = validator;
+			this.arg = arg;
+		}
+	}
+	
+	private static class Check extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		
+		private final Binding binding;
+		private final Object value;
+		private final ArgumentsValidator argsValidator;
+		private final ArgumentValues values;
+		private final OptionScope scope;
+		String failure;
+		
+		Check(Binding binding, Object value, OptionScope scope) {
+			this.binding = binding;
+			this.value = value;
+			this.argsValidator = null;
+			this.values = null;
+			this.scope = scope;
+		}
+		
+		Check(ArgumentsValidator argsValidator, ArgumentValues values, OptionScope scope) {
+			this.binding = null;
+			this.value = null;
+			this.argsValidator = argsValidator;
+			this.values = values;
+			this.scope = scope;
+		}
+
+		@Override
+		protected void compute() {
+			// checks run on the pool's threads, which are not in the parse's scope
+			OptionScope.run(scope, new Runnable() {
+				@Override
+				public void run() {
+					check();
+				}
+			});
+		}
+		
+		private void check() {
+			try {
+				if (binding != null) {
+					String msg = binding.validator.validate(value, binding.arg);
+					if (msg != null)
+						failure = "option " + binding.opt.getOptionStrings().get(0) + ": " + msg;
+				} else {
+					failure = argsValidator.validate(values);
+				}
+			} catch (RuntimeException e) {
+				String msg = e.getMessage() == null ? e.toString() : e.getMessage();
+				failure = binding == null ? msg : "option " + binding.opt.getOptionStrings().get(0) + ": " + msg;
+			}
+		}
+	}
+	
+	/**
+	 * Runs all of the checks, waiting for them to finish.
+	 * 
+	 * @param scope	the scope of the parse, which the checks run in; null if none
+	 * @throws ValidationError if any check fails
+	 */
+	static void validate(OptionRegistry options, ArgumentValues values, ForkJoinPool pool, OptionScope scope) {
+		final List<Check> checks = new ArrayList<Check>();
+		for (Binding b : options.validators) {
+			Object value = values.valueOf(b.opt);
+			if (value == null) {
+				continue;
+			} else if (value.getClass().isArray()) {
+				for (int i = 0; i < Array.getLength(value); i++) {
+					checks.add(new Check(b, Array.get(value, i), scope));
+				}
+			} else if (value instanceof Collection<?>) {
+				for (Object element : (Collection<?>) value) {
+					checks.add(new Check(b, element, scope));
+				}
+			} else {
+				checks.add(new Check(b, value, scope));
+			}
+		}
+		for (ArgumentsValidator v : options.argumentsValidators) {
+			checks.add(new Check(v, values, scope));
+		}
+		
+		if (checks.size() == 1) {
+			checks.get(0).compute();
+		} else if (checks.size() > 1) {
+			pool.invoke(new RecursiveAction() {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void compute() {
+					invokeAll(checks);
+				}
+			});
+		}
+		
+		List<String> failures = new ArrayList<String>();
+		for (Check c : checks) {
+			if (c.failure != null)
+				failures.add(c.failure);
+		}
+		if (!failures.isEmpty())
+			throw new ValidationError(failures);
+	}
+}
@@ -0,0 +1,48 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+import java.util.Collections;
+import java.util.List;
+
+import edu.byu.nlp.util.Strings;
+
+/**
+ * Error created when parsed values fail validation.
+ * Contains every failure, rather than only the first.
+ * 
+ * @see OptionValidator
+ * @see ArgumentsValidator
+ */
+public class ValidationError extends IllegalArgumentException {
+
+	private static final long serialVersionUID = 1L;
+	
+	private final List<String> failures;
+
+	public ValidationError(List<String> failures) {
+		super("error: " + Strings.join(failures, "\nerror: "));
+		this.failures = Collections.unmodifiableList(failures);
+	}
+
+	/**
+	 * @return the description of each failure
+	 */
+	public List<String> getFailures() {
+		return failures;
+	}
+	
+}
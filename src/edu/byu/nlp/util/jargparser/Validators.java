@@ -0,0 +1,111 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+import java.io.File;
+
+/**
+ * The validators available to every parser. Values are checked as files
+ * by converting them to a <code>File</code>, if they aren't one already.
+ */
+public class Validators {
+	
+	// Names of the standard validators
+	public static final String EXISTS = "exists";
+	public static final String FILE = "file";
+	public static final String DIRECTORY = "directory";
+	public static final String READABLE = "readable";
+	public static final String WRITABLE = "writable";
+	public static final String MIN = "min";
+	public static final String MAX = "max";
+	
+	/**
+	 * Checks the argument given to one of the standard validators.
+	 * 
+	 * @return null if the argument is valid; otherwise, a description of the problem
+	 */
+	static String checkArgument(OptionValidator validator, String arg) {
+		if (!(validator instanceof Min || validator instanceof Max))
+			return null;
+		if (arg == null)
+			return "requires a number";
+		try {
+			Double.parseDouble(arg);
+			return null;
+		} catch (NumberFormatException e) {
+			return "requires a number, not " + arg;
+		}
+	}
+	
+	private static File toFile(Object value) {
+		return value instanceof File ? (File) value : new File(value.toString());
+	}
+	
+	public static class Exists implements OptionValidator {
+		@Override
+		public String validate(Object value, String arg) {
+			return toFile(value).exists() ? null : value + " does not exist";
+		}
+	}
+	
+	public static class IsFile implements OptionValidator {
+		@Override
+		public String validate(Object value, String arg) {
+			return toFile(value).isFile() ? null : value + " is not a file";
+		}
+	}
+	
+	public static class IsDirectory implements OptionValidator {
+		@Override
+		public String validate(Object value, String arg) {
+			return toFile(value).isDirectory() ? null : value + " is not a directory";
+		}
+	}
+	
+	public static class Readable implements OptionValidator {
+		@Override
+		public String validate(Object value, String arg) {
+			return toFile(value).canRead() ? null : value + " is not readable";
+		}
+	}
+	
+	public static class Writable implements OptionValidator {
+		@Override
+		public String validate(Object value, String arg) {
+			return toFile(value).canWrite() ? null : value + " is not writable";
+		}
+	}
+	
+	/**
+	 * Requires numbers to be at least the argument, e.g. "min=1".
+	 */
+	public static class Min implements OptionValidator {
+		@Override
+		public String validate(Object value, String arg) {
+			return ((Number) value).doubleValue() >= Double.parseDouble(arg) ? null : value + " is less than " + arg;
+		}
+	}
+	
+	/**
+	 * Requires numbers to be at most the argument, e.g. "max=100".
+	 */
+	public static class Max implements OptionValidator {
+		@Override
+		public String validate(Object value, String arg) {
+			return ((Number) value).doubleValue() <= Double.parseDouble(arg) ? null : value + " is greater than " + arg;
+		}
+	}
+}
@@ -78,7 +78,9 @@ public class VersionOptionHandler implements OptionHandler {
 	 */
 	@Override
 	public void performAction(String optName, Object[] optArgs, ArgumentParser p, ParserState state) {
-		System.out.println(versionString);
+		if (state.quiet)
+			throw ExitRequestedError.version(p, versionString);
+		System.out.println(versionString.replaceAll("%prog", p.getProg()));
 		System.exit(0);
 	}
 
@@ -0,0 +1,57 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a field that holds a component with options of its own, which are
+ * given on the command-line under the component's namespace, e.g.
+ * <code>--encoder.layers</code> for the option <code>layers</code> of the
+ * component in the field <code>encoder</code>. Components may be nested,
+ * e.g. <code>--encoder.attention.heads</code>.
+ * 
+ * <p>A component is only inspected for options, and created with its class's
+ * no-argument constructor if the field is null, once one of its options
+ * is given or looked up.</p>
+ * 
+ * <p><pre><blockquote>
+ * 		@Component Encoder encoder;
+ * 		@Component("dec") Decoder decoder = new Decoder(512);
+ * </blockquote></pre></p>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+@Inherited
+public @interface Component {
+	
+	/**
+	 * The namespace of the component's options. Defaults to the name
+	 * of the field, converted as for option strings.
+	 * 
+	 * @return the namespace
+	 */
+	String value() default "";
+	
+	/**
+	 * @return the message to display alongside the namespace in the help message
+	 */
+	String help() default "";
+}
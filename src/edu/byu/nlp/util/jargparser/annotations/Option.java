@@ -91,6 +91,42 @@ public @interface Option {
 	 */
 	String[] choices() default "";
 	
+	/**
+	 * If specified, the single argument to the option is a list of values
+	 * delimited by this separator, e.g. <code>--layers=512,256,128</code>
+	 * with <code>separator=","</code>. Works with the <code>store</code> action
+	 * for <code>int</code>, <code>long</code>, <code>float</code> and <code>double</code>
+	 * arrays and for collections. Integral elements may be ranges, e.g. <code>1-100:5</code>.
+	 * 
+	 * @return the separator between values
+	 * 
+	 * @see edu.byu.nlp.util.jargparser.DelimitedValues
+	 */
+	String separator() default "";
+	
+	/**
+	 * For callback methods, the names of options (the option strings, less the
+	 * leading dashes) whose callbacks must finish before this one starts
+	 * when callbacks run asynchronously.
+	 * 
+	 * @return the names of the options this callback depends on
+	 * 
+	 * @see edu.byu.nlp.util.jargparser.ArgumentParser#setCallbackExecutor(java.util.concurrent.Executor)
+	 */
+	String[] after() default {};
+	
+	/**
+	 * The names of the validators that check the values of this option once
+	 * parsing has finished, optionally followed by "=" and an argument, e.g.
+	 * <code>validate={"min=1", "max=64"}</code> or <code>validate="readable"</code>.
+	 * 
+	 * @return the validators of this option
+	 * 
+	 * @see edu.byu.nlp.util.jargparser.Validators
+	 * @see edu.byu.nlp.util.jargparser.ArgumentParser#putValidator(String, edu.byu.nlp.util.jargparser.OptionValidator)
+	 */
+	String[] validate() default {};
+	
 	/**
 	 * @return the number of arguments needed by this option
 	 */
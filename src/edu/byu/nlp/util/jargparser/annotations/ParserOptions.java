@@ -50,4 +50,14 @@ public @interface ParserOptions {
 	 */
 	boolean allowInterspersedArgs() default ArgumentParser.DEFAULT_ALLOW_INTERSPERSED_ARGS;
 	
+	/**
+	 * Specifies whether a parser created from the class stores into a new
+	 * instance of the class for each parse, rather than into static variables.
+	 * 
+	 * @return true if each parse should create a new instance
+	 * 
+	 * @see ArgumentParser#ArgumentParser(Class)
+	 */
+	boolean newTargetPerParse() default false;
+	
 }
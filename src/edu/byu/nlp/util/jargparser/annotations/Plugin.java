@@ -0,0 +1,55 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an <code>OptionHandlerFactory</code> or <code>OptionArgumentParser</code>
+ * that parsers discover on the classpath rather than having it registered on
+ * each parser. A factory names the action it implements; a converter names
+ * the type it produces:
+ * 
+ * <p><pre><blockquote>
+ * 		@Plugin(action="store_scaled")
+ * 		public class StoreScaled implements OptionHandlerFactory { ... }
+ * 
+ * 		@Plugin(type=Duration.class)
+ * 		public class DurationParser implements OptionArgumentParser&lt;Duration&gt; { ... }
+ * </blockquote></pre></p>
+ * 
+ * <p>Plugins must have a no-argument constructor and be listed either in
+ * <code>META-INF/jargparser/plugins.index</code>, which
+ * <code>PluginIndexProcessor</code> generates at build time, or as
+ * <code>java.util.ServiceLoader</code> providers.</p>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Plugin {
+	
+	/**
+	 * @return the action implemented by an <code>OptionHandlerFactory</code>
+	 */
+	String action() default "";
+	
+	/**
+	 * @return the type produced by an <code>OptionArgumentParser</code>
+	 */
+	Class<?> type() default Void.class;
+}
@@ -15,7 +15,7 @@
  */
 package edu.byu.nlp.util.jargparser.arghandlers;
 
-import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import edu.byu.nlp.util.jargparser.CollectionFactory;
@@ -39,19 +39,11 @@ public class AppendCollectionOption extends BaseReflectiveVariableOption {
 		this.factory = factory;
 	}
 
-	@SuppressWarnings("unchecked")
 	@Override
 	public void performAction(String optName, Object[] optArgs, ArgumentParser p, ParserState state) {
 		try {
-			Collection<Object> coll = (Collection<Object>) f.get(optObject);
-			if (coll == null) {
-				coll = factory.newInstance();
-				f.set(optObject, coll);
-			}
-			if (getNumArgs() == 1)
-				coll.add(optArgs[0]);
-			if (getNumArgs() > 1)
-				coll.add(optArgs);
+			// multiple arguments are appended together, as an array
+			addAll(state, factory, Collections.singletonList(getNumArgs() == 1 ? optArgs[0] : optArgs));
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		}
@@ -15,7 +15,7 @@
  */
 package edu.byu.nlp.util.jargparser.arghandlers;
 
-import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import edu.byu.nlp.util.jargparser.CollectionFactory;
@@ -40,16 +40,10 @@ public class AppendConstCollectionOption extends BaseReflectiveVariableOption {
 		this.factory = factory;
 	}
 
-	@SuppressWarnings("unchecked")
 	@Override
 	public void performAction(String optName, Object[] optArgs, ArgumentParser p, ParserState state) {
 		try {
-			Collection<Object> coll = (Collection<Object>) f.get(optObject);
-			if (coll == null) {
-				coll = factory.newInstance();
-				f.set(optObject, coll);
-			}
-			coll.add(constant);
+			addAll(state, factory, Collections.singletonList(constant));
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		}
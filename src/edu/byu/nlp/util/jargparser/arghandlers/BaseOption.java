@@ -17,8 +17,10 @@ package edu.byu.nlp.util.jargparser.arghandlers;
 
 import java.util.List;
 
+import edu.byu.nlp.util.jargparser.ComponentScope;
 import edu.byu.nlp.util.jargparser.OptionHandler;
 import edu.byu.nlp.util.jargparser.ArgumentParser;
+import edu.byu.nlp.util.jargparser.ParserState;
 import edu.byu.nlp.util.jargparser.annotations.Option;
 
 public abstract class BaseOption implements OptionHandler {
@@ -28,6 +30,8 @@ public abstract class BaseOption implements OptionHandler {
 	protected final Object optObject;
 	protected final Class<?> cls;
 	protected final int numArgs;
+	// locates the component this option belongs to in each target; null if it is not part of a component
+	private volatile ComponentScope scope;
 
 	public BaseOption(Option opt, Object optObject, List<String> optStrings, Class<?> cls, int numArgs) {
 		this.opt = opt;
@@ -37,6 +41,44 @@ public abstract class BaseOption implements OptionHandler {
 		this.numArgs = numArgs;		
 	}
 
+	/**
+	 * Returns the object that this option stores into during the specified parse.
+	 * 
+	 * @param state the state of the parser
+	 * @return the parse's target, if it has one, and the object this option was added with otherwise
+	 * 
+	 * @see ParserState#getTarget()
+	 */
+	protected Object getTarget(ParserState state) {
+		return resolveTarget(state == null ? null : state.getTarget());
+	}
+
+	/**
+	 * Makes this option store into the component of each parse's target rather
+	 * than into the object it was added with.
+	 * 
+	 * @param scope locates the component within a target
+	 */
+	public void setScope(ComponentScope scope) {
+		this.scope = scope;
+	}
+
+	/**
+	 * Chooses between a parse's target and the object this option was added with.
+	 * The target is only used if it is an instance of the same class, so that options
+	 * added from other objects keep storing into those objects. Options of a
+	 * component use the target's component instead.
+	 * Static members ignore the object altogether.
+	 */
+	protected Object resolveTarget(Object target) {
+		ComponentScope s = scope;
+		if (target != null && s != null)
+			return s.getComponent(target);
+		if (target != null && (optObject == null || optObject.getClass().isInstance(target)))
+			return target;
+		return optObject;
+	}
+
 	@Override
 	public String getHelp() {
 		if (!opt.value().equals(""))
@@ -15,10 +15,15 @@
  */
 package edu.byu.nlp.util.jargparser.arghandlers;
 
+import java.util.Collection;
 import java.util.List;
 
+import edu.byu.nlp.util.jargparser.CollectionFactory;
 import edu.byu.nlp.util.jargparser.OptionHandler;
+import edu.byu.nlp.util.jargparser.ParserState;
 import edu.byu.nlp.util.jargparser.ReflectiveVariable;
+import edu.byu.nlp.util.jargparser.StagedValues;
+import edu.byu.nlp.util.jargparser.TargetedOptionHandler;
 import edu.byu.nlp.util.jargparser.annotations.Option;
 
 
@@ -26,7 +31,7 @@ import edu.byu.nlp.util.jargparser.annotations.Option;
  * @author rah67
  *
  */
-public abstract class BaseReflectiveVariableOption extends BaseOption implements OptionHandler {
+public abstract class BaseReflectiveVariableOption extends BaseOption implements OptionHandler, TargetedOptionHandler {
 
 	protected final ReflectiveVariable f;
 	
@@ -36,8 +41,12 @@ public abstract class BaseReflectiveVariableOption extends BaseOption implements
 	}
 
 	public Object getValue() {
+		return getValue(null);
+	}
+
+	public Object getValue(Object target) {
 		try {
-			return f.get(optObject);
+			return f.get(resolveTarget(target));
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		}
@@ -46,5 +55,36 @@ public abstract class BaseReflectiveVariableOption extends BaseOption implements
 	public boolean hasValue() {
 		return f.hasValue();
 	}
+	
+	/**
+	 * Stores the value of this option into the parse's target or,
+	 * if the parse is transactional, stages it.
+	 */
+	protected void store(ParserState state, Object value) throws Exception {
+		StagedValues staged = state == null ? null : state.getStagedValues();
+		if (staged != null)
+			staged.set(this, f, getTarget(state), value);
+		else
+			f.set(getTarget(state), value);
+	}
+	
+	/**
+	 * Adds the elements to the collection of this option, creating it if necessary,
+	 * or, if the parse is transactional, stages them.
+	 */
+	@SuppressWarnings("unchecked")
+	protected void addAll(ParserState state, CollectionFactory<Object> factory, Collection<?> elements) throws Exception {
+		Object target = getTarget(state);
+		StagedValues staged = state == null ? null : state.getStagedValues();
+		if (staged != null) {
+			staged.addAll(this, f, target, factory, elements);
+			return;
+		}
+		Collection<Object> coll = (Collection<Object>) f.get(target);
+		if (coll == null)
+			coll = factory.newInstance();
+		coll.addAll(elements);
+		f.set(target, coll);
+	}
 
 }
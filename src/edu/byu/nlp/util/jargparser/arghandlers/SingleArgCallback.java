@@ -19,6 +19,7 @@ import java.lang.reflect.Method;
 import java.util.List;
 
 import edu.byu.nlp.util.jargparser.ArgumentParser;
+import edu.byu.nlp.util.jargparser.DeferrableOptionHandler;
 import edu.byu.nlp.util.jargparser.ParserState;
 import edu.byu.nlp.util.jargparser.annotations.Option;
 
@@ -26,29 +27,31 @@ import edu.byu.nlp.util.jargparser.annotations.Option;
  * @author rah67
  *
  */
-public class SingleArgCallback extends BaseValuelessOption {
+public class SingleArgCallback extends BaseValuelessOption implements DeferrableOptionHandler {
 
 	private final Method m;
 	
 	public SingleArgCallback(Option opt, Object optObject, List<String> optStrings, Method m, int numArgs) {
 		super(opt, optObject, optStrings, ArgumentParser.toWrapper(m.getParameterTypes()[0]), numArgs);
 		this.m = m;
+		m.setAccessible(true);
 	}
 
 	@Override
 	public void performAction(String optName, Object[] optArgs, ArgumentParser p, ParserState state) {
-		boolean b = m.isAccessible();
-		m.setAccessible(true);
 		try {
 			if (getNumArgs() == 1)
-				m.invoke(optObject, optArgs[0]);
+				m.invoke(getTarget(state), optArgs[0]);
 			else
-				m.invoke(optObject, optArgs);
+				m.invoke(getTarget(state), optArgs);
 		} catch (Exception e) {
 			throw new RuntimeException(e);
-		} finally {
-			m.setAccessible(b);
 		}
 	}
 
+	@Override
+	public String[] getDependencies() {
+		return opt.after();
+	}
+
 }
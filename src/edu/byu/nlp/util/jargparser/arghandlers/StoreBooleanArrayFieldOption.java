@@ -41,7 +41,7 @@ public class StoreBooleanArrayFieldOption extends BaseReflectiveVariableOption
 			boolArgs[i] = (Boolean)optArgs[i];
 		}
 		try {
-			f.set(optObject, boolArgs);
+			store(state, boolArgs);
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		}
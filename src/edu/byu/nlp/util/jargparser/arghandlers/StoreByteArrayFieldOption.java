@@ -41,7 +41,7 @@ public class StoreByteArrayFieldOption extends BaseReflectiveVariableOption
 			byteArgs[i] = (Byte)optArgs[i];
 		}
 		try {
-			f.set(optObject, byteArgs);
+			store(state, byteArgs);
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		}
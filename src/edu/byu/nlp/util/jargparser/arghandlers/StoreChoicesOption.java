@@ -16,6 +16,7 @@
 package edu.byu.nlp.util.jargparser.arghandlers;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
@@ -32,10 +33,19 @@ import edu.byu.nlp.util.jargparser.annotations.Option;
 public class StoreChoicesOption extends BaseReflectiveVariableOption {
 
 	private Set<Object> choices;
+	private List<String> choiceStrings;
 	
 	public StoreChoicesOption(ArgumentParser p, ReflectiveVariable f, Option opt, Object optObject, List<String> optStrings, Class<?> cls, int numArgs) {
 		super(opt, optObject, optStrings, cls, numArgs, f);
 		this.choices = new LinkedHashSet<Object>(Arrays.asList(p.convert(getType(), opt.choices())));
+		this.choiceStrings = Collections.unmodifiableList(Arrays.asList(opt.choices()));
+	}
+	
+	/**
+	 * @return the valid choices, as they would appear on the command-line
+	 */
+	public List<String> getChoices() {
+		return choiceStrings;
 	}
 
 	@Override
@@ -43,7 +53,7 @@ public class StoreChoicesOption extends BaseReflectiveVariableOption {
 		if (!choices.contains(optArgs[0]))
 			throw new IllegalArgumentException("Not a valid choice for option " + optName + "; choose from: " + choices);
 		try {
-			f.set(optObject, optArgs[0]);
+			store(state, optArgs[0]);
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		}
@@ -16,7 +16,6 @@
 package edu.byu.nlp.util.jargparser.arghandlers;
 
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.List;
 
 import edu.byu.nlp.util.jargparser.CollectionFactory;
@@ -40,17 +39,10 @@ public class StoreCollectionOption extends BaseReflectiveVariableOption {
 		this.factory = factory;
 	}
 
-	@SuppressWarnings("unchecked")	// necessary for reflective get call since we cast to Collection<Object>
 	@Override
 	public void performAction(String optName, Object[] optArgs, ArgumentParser p, ParserState state) {
-		Collection<Object> coll;
 		try {
-			coll = (Collection<Object>) f.get(optObject);
-			if (coll == null) {
-				coll = factory.newInstance();
-			}
-			coll.addAll(Arrays.asList(optArgs));
-			f.set(optObject, coll);
+			addAll(state, factory, Arrays.asList(optArgs));
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		}
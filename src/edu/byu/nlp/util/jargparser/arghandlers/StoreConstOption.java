@@ -38,7 +38,7 @@ public class StoreConstOption extends BaseReflectiveVariableOption {
 	@Override
 	public void performAction(String optName, Object[] optArgs, ArgumentParser p, ParserState state) {
 		try {
-			f.set(optObject, constant);
+			store(state, constant);
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		}
@@ -0,0 +1,63 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser.arghandlers;
+
+import java.util.List;
+
+import edu.byu.nlp.util.jargparser.ArgumentParser;
+import edu.byu.nlp.util.jargparser.DelimitedValues;
+import edu.byu.nlp.util.jargparser.ParserState;
+import edu.byu.nlp.util.jargparser.PrimitiveArrayOptionHandler;
+import edu.byu.nlp.util.jargparser.ReflectiveVariable;
+import edu.byu.nlp.util.jargparser.annotations.Option;
+
+/**
+ * Stores a delimited list of values, given as a single argument,
+ * into an array of primitives.
+ */
+public class StoreDelimitedArrayOption extends BaseReflectiveVariableOption implements PrimitiveArrayOptionHandler {
+
+	private final String separator;
+	private final Class<?> componentType;
+
+	public StoreDelimitedArrayOption(ReflectiveVariable f, Option opt, Object optObject, List<String> optStrings, Class<?> componentType) {
+		super(opt, optObject, optStrings, String.class, 1, f);
+		if (!DelimitedValues.isSupportedArrayType(componentType))
+			throw new IllegalArgumentException("Delimited lists of " + componentType + " are not supported");
+		this.separator = opt.separator();
+		this.componentType = componentType;
+	}
+
+	@Override
+	public void performAction(String optName, Object[] optArgs, ArgumentParser p, ParserState state) {
+		storeArray(DelimitedValues.parseArray((String) optArgs[0], separator, componentType, p.getLimits().getMaxCollectionSize()), state);
+	}
+
+	@Override
+	public Class<?> getComponentType() {
+		return componentType;
+	}
+
+	@Override
+	public void storeArray(Object array, ParserState state) {
+		try {
+			store(state, array);
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+}
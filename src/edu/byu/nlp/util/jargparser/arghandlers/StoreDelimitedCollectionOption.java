@@ -0,0 +1,72 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser.arghandlers;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import edu.byu.nlp.util.jargparser.ArgumentParser;
+import edu.byu.nlp.util.jargparser.CollectionFactory;
+import edu.byu.nlp.util.jargparser.DelimitedValues;
+import edu.byu.nlp.util.jargparser.ParserState;
+import edu.byu.nlp.util.jargparser.ReflectiveVariable;
+import edu.byu.nlp.util.jargparser.annotations.Option;
+
+/**
+ * Adds a delimited list of values, given as a single argument,
+ * to a collection.
+ */
+public class StoreDelimitedCollectionOption extends BaseReflectiveVariableOption {
+
+	private final CollectionFactory<Object> factory;
+	private final Class<?> innerType;
+	private final String separator;
+
+	public StoreDelimitedCollectionOption(ReflectiveVariable f, Option opt, Object optObject,
+			List<String> optStrings, CollectionFactory<Object> factory, Class<?> innerType) {
+		super(opt, optObject, optStrings, String.class, 1, f);
+		
+		this.factory = factory;
+		this.innerType = innerType;
+		this.separator = opt.separator();
+	}
+
+	@SuppressWarnings("unchecked")	// necessary for reflective get call since we cast to Collection<Object>
+	@Override
+	public void performAction(String optName, Object[] optArgs, ArgumentParser p, ParserState state) {
+		try {
+			if (state != null && state.getStagedValues() != null) {
+				List<Object> values = new ArrayList<Object>();
+				DelimitedValues.addAll(values, Math.max(state.collectionSize(this), 0), (String) optArgs[0], separator, innerType, p);
+				addAll(state, factory, values);
+				return;
+			}
+			Object target = getTarget(state);
+			Collection<Object> coll = (Collection<Object>) f.get(target);
+			if (coll == null) {
+				coll = factory.newInstance();
+			}
+			DelimitedValues.addAll(coll, (String) optArgs[0], separator, innerType, p);
+			f.set(target, coll);
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+}
@@ -35,7 +35,7 @@ public class StoreFieldOption extends BaseReflectiveVariableOption {
 	@Override
 	public void performAction(String optName, Object[] optArgs, ArgumentParser p, ParserState state) {
 		try {
-			f.set(optObject, optArgs[0]);
+			store(state, optArgs[0]);
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		}
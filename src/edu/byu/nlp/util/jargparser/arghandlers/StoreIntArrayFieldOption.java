@@ -20,6 +20,7 @@ import java.util.List;
 import edu.byu.nlp.util.jargparser.OptionHandler;
 import edu.byu.nlp.util.jargparser.ArgumentParser;
 import edu.byu.nlp.util.jargparser.ParserState;
+import edu.byu.nlp.util.jargparser.PrimitiveArrayOptionHandler;
 import edu.byu.nlp.util.jargparser.ReflectiveVariable;
 import edu.byu.nlp.util.jargparser.annotations.Option;
 
@@ -28,7 +29,7 @@ import edu.byu.nlp.util.jargparser.annotations.Option;
  *
  */
 public class StoreIntArrayFieldOption extends BaseReflectiveVariableOption
-		implements OptionHandler {
+		implements OptionHandler, PrimitiveArrayOptionHandler {
 
 	public StoreIntArrayFieldOption(ReflectiveVariable f, Option opt, Object optObject, List<String> optStrings, Class<?> cls, int numArgs) {
 		super(opt, optObject, optStrings, cls, numArgs, f);
@@ -41,7 +42,21 @@ public class StoreIntArrayFieldOption extends BaseReflectiveVariableOption
 			intArgs[i] = (Integer)optArgs[i];
 		}
 		try {
-			f.set(optObject, intArgs);
+			store(state, intArgs);
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public Class<?> getComponentType() {
+		return Integer.TYPE;
+	}
+
+	@Override
+	public void storeArray(Object array, ParserState state) {
+		try {
+			store(state, array);
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		}
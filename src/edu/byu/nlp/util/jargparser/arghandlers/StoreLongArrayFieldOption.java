@@ -20,6 +20,7 @@ import java.util.List;
 import edu.byu.nlp.util.jargparser.OptionHandler;
 import edu.byu.nlp.util.jargparser.ArgumentParser;
 import edu.byu.nlp.util.jargparser.ParserState;
+import edu.byu.nlp.util.jargparser.PrimitiveArrayOptionHandler;
 import edu.byu.nlp.util.jargparser.ReflectiveVariable;
 import edu.byu.nlp.util.jargparser.annotations.Option;
 
@@ -28,7 +29,7 @@ import edu.byu.nlp.util.jargparser.annotations.Option;
  *
  */
 public class StoreLongArrayFieldOption extends BaseReflectiveVariableOption
-		implements OptionHandler {
+		implements OptionHandler, PrimitiveArrayOptionHandler {
 
 	public StoreLongArrayFieldOption(ReflectiveVariable f, Option opt, Object optObject, List<String> optStrings, Class<?> cls, int numArgs) {
 		super(opt, optObject, optStrings, cls, numArgs, f);
@@ -41,7 +42,21 @@ public class StoreLongArrayFieldOption extends BaseReflectiveVariableOption
 			longArgs[i] = (Long)optArgs[i];
 		}
 		try {
-			f.set(optObject, longArgs);
+			store(state, longArgs);
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public Class<?> getComponentType() {
+		return Long.TYPE;
+	}
+
+	@Override
+	public void storeArray(Object array, ParserState state) {
+		try {
+			store(state, array);
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		}
@@ -19,6 +19,7 @@ import java.lang.reflect.Method;
 import java.util.List;
 
 import edu.byu.nlp.util.jargparser.ArgumentParser;
+import edu.byu.nlp.util.jargparser.DeferrableOptionHandler;
 import edu.byu.nlp.util.jargparser.ParserState;
 import edu.byu.nlp.util.jargparser.annotations.Option;
 
@@ -27,26 +28,28 @@ import edu.byu.nlp.util.jargparser.annotations.Option;
  * @author rah67
  *
  */
-public class ZeroArgCallback extends BaseValuelessOption {
+public class ZeroArgCallback extends BaseValuelessOption implements DeferrableOptionHandler {
 
 	private final Method m;
 
 	public ZeroArgCallback(Option opt, Object optObject, List<String> optStrings, Method m) {
 		super(opt, optObject, optStrings, null, 0);
 		this.m = m;
+		m.setAccessible(true);
 	}
 
 	@Override
 	public void performAction(String optName, Object[] optArgs, ArgumentParser p, ParserState state) {
-		boolean b = m.isAccessible();
-		m.setAccessible(true);
 		try {
-			m.invoke(optObject, (Object[])null);
+			m.invoke(getTarget(state), (Object[])null);
 		} catch (Exception e) {
 			throw new RuntimeException(e);
-		} finally {
-			m.setAccessible(b);
 		}
 	}
 
+	@Override
+	public String[] getDependencies() {
+		return opt.after();
+	}
+
 }
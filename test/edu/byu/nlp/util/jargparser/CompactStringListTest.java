@@ -0,0 +1,90 @@
+/**
+ * Copyright 2014 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import edu.byu.nlp.util.jargparser.annotations.Option;
+
+/**
+ * Tests of {@link CompactStringList}.
+ */
+public class CompactStringListTest {
+
+	@Test
+	public void testList() {
+		for (boolean direct : new boolean[]{false, true}) {
+			// tiny arenas so that values spill across several of them
+			CompactStringList list = new CompactStringList(direct, 8);
+			list.add("abc");
+			list.add("caf\u00e9");
+			list.add("\u65e5\u672c\u8a9e");
+			list.add("");
+			list.add("longer than one arena");
+
+			assertEquals(5, list.size());
+			assertEquals(Arrays.asList("abc", "caf\u00e9", "\u65e5\u672c\u8a9e", "", "longer than one arena"), list);
+			assertEquals(3 + 4 + 9 + 0 + 21, list.bytesUsed());
+		}
+	}
+
+	@Test
+	public void testReadOnly() {
+		CompactStringList list = new CompactStringList();
+		list.add("a");
+		try {
+			list.set(0, "b");
+			fail("set should not be supported");
+		} catch (UnsupportedOperationException e) {
+			// good
+		}
+		try {
+			list.remove(0);
+			fail("remove should not be supported");
+		} catch (UnsupportedOperationException e) {
+			// good
+		}
+		assertEquals("a", list.get(0));
+		list.clear();
+		assertEquals(0, list.size());
+		assertEquals(0, list.bytesUsed());
+		list.add("b");
+		assertEquals(Arrays.asList("b"), list);
+	}
+
+	@Test
+	public void testAppendOption() {
+		final ArgumentParser parser = new ArgumentParser();
+		parser.setExitOnError(false);
+		Object opts = new Object() {
+			@Option(action=Option.APPEND) CompactStringList t = new CompactStringList(true);
+			@Option(nargs=2) CompactStringList s;
+		};
+		parser.addArguments(opts);
+		ArgumentValues args = parser.parseArgs("-t", "x", "-t", "y", "-s", "a", "b", "-t", "z");
+		CompactStringList t = args.getValue("t");
+		assertTrue(t.isDirect());
+		assertEquals(Arrays.asList("x", "y", "z"), t);
+		assertEquals(Arrays.asList("a", "b"), args.getValue("s"));
+	}
+
+}
@@ -17,18 +17,49 @@ package edu.byu.nlp.util.jargparser;
 
 import static org.junit.Assert.*;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
 
 import edu.byu.nlp.util.jargparser.ArgumentParser;
 import edu.byu.nlp.util.jargparser.ArgumentValues;
 import edu.byu.nlp.util.jargparser.ParserState;
+import edu.byu.nlp.util.jargparser.annotations.Component;
 import edu.byu.nlp.util.jargparser.annotations.Description;
 import edu.byu.nlp.util.jargparser.annotations.Option;
 import edu.byu.nlp.util.jargparser.annotations.Options;
+import edu.byu.nlp.util.jargparser.annotations.Plugin;
 import edu.byu.nlp.util.jargparser.annotations.ParserOptions;
 import edu.byu.nlp.util.jargparser.annotations.Usage;
 import edu.byu.nlp.util.jargparser.annotations.Version;
@@ -269,6 +300,1383 @@ public class OptionParserTest {
 		});
 	}
 
+	@Test
+	public void testParserSession() {
+		final ArgumentParser parser = new ArgumentParser();
+		parser.setExitOnError(false); // throw exception we can catch so we can test errors
+		OptionsTest options = new OptionsTest();
+		parser.addArguments(options);
+		
+		ParserSession session = parser.newSession();
+		session.feed("-n");
+		assertEquals(1, options.n);							// still waiting for the argument
+		session.feed("5");
+		assertEquals(5, options.n);
+		session.feed(new StringBuilder("pos1 --na")).feed(new StringBuilder("me=Te"));
+		session.feed(new StringBuilder("st -- --this-is-a-test"));
+		assertEquals("Test", options.getName());
+		ArgumentValues args = session.finish();
+		assertEquals(Arrays.asList("pos1", "--this-is-a-test"), Arrays.asList(args.getPositionalArgs()));
+		
+		final ParserSession failing = parser.newSession();
+		assertFail(new Runnable() {
+			@Override
+			public void run() {
+				failing.feed("--unknown");
+			}
+		});
+	}
+	@Test
+	public void testParseArgsFromFiles() throws IOException {
+		final ArgumentParser parser = new ArgumentParser();
+		parser.setExitOnError(false); // throw exception we can catch so we can test errors
+		Object opts = new Object(){
+			@Option int[] ids;
+			@Option long[] seeds;
+			@Option double[] weights;
+			@Option float[] scales;
+		};
+		parser.addArguments(opts);
+		
+		ByteBuffer bytes = ByteBuffer.allocate(24).order(ByteOrder.LITTLE_ENDIAN);
+		bytes.putDouble(0.5).putDouble(-1.25).putDouble(3);
+		File bin = writeTempFile(bytes.array());
+		File ids = writeTempFile("3\n-17\n\n 2147483647\r\n".getBytes(StandardCharsets.US_ASCII));
+		File floats = writeTempFile("1.5\n2e3\n".getBytes(StandardCharsets.US_ASCII));
+		
+		ArgumentValues args = parser.parseArgs("--weights=@file:" + bin, "--ids", "@lines:" + ids,
+				"--seeds=@lines:" + ids, "--scales=@lines:" + floats);
+		assertTrue(Arrays.equals(new double[]{0.5, -1.25, 3}, (double[])args.getValue("weights")));
+		assertTrue(Arrays.equals(new int[]{3, -17, Integer.MAX_VALUE}, (int[])args.getValue("ids")));
+		assertTrue(Arrays.equals(new long[]{3, -17, Integer.MAX_VALUE}, (long[])args.getValue("seeds")));
+		assertTrue(Arrays.equals(new float[]{1.5f, 2000f}, (float[])args.getValue("scales")));
+		
+		final File bad = writeTempFile("1\nx\n".getBytes(StandardCharsets.US_ASCII));
+		assertFail(new Runnable() {
+			@Override
+			public void run() {
+				parser.parseArgs("--ids=@lines:" + bad);
+			}
+		});
+	}
+	
+	@Test
+	public void testParseDelimitedArgs() {
+		final ArgumentParser parser = new ArgumentParser();
+		parser.setExitOnError(false); // throw exception we can catch so we can test errors
+		parser.addArguments(new Object(){
+			@Option(separator=",") int[] layers;
+			@Option(separator=",") long[] ids;
+			@Option(separator=":") double[] rates;
+			@Option(separator=",") List<Integer> seeds;
+			@Option(separator=", ") List<String> names;
+		});
+		ArgumentValues args = parser.parseArgs("--layers=512,256, 128", "--ids=1-10:4,-3--5,7",
+				"--rates=0.1:2.5e-3:-4", "--seeds=1,2", "--seeds=3-4", "--names=a, b c");
+		assertTrue(Arrays.equals(new int[]{512, 256, 128}, (int[])args.getValue("layers")));
+		assertTrue(Arrays.equals(new long[]{1, 5, 9, -3, -4, -5, 7}, (long[])args.getValue("ids")));
+		assertTrue(Arrays.equals(new double[]{0.1, 2.5e-3, -4}, (double[])args.getValue("rates")));
+		assertEquals(Arrays.asList(1, 2, 3, 4), args.getValue("seeds"));
+		assertEquals(Arrays.asList("a", "b c"), args.getValue("names"));
+		
+		assertFail(new Runnable() {
+			@Override
+			public void run() {
+				parser.parseArgs("--layers=1,,2");
+			}
+		});
+		assertFail(new Runnable() {
+			@Override
+			public void run() {
+				parser.parseArgs("--layers=1-5:0");
+			}
+		});
+	}
+	
+	@Test
+	public void testParseLimits() {
+		final ArgumentParser parser = new ArgumentParser();
+		parser.setExitOnError(false); // throw exception we can catch so we can test errors
+		parser.addArguments(new Object(){
+			@Option(action=Option.APPEND) List<String> t;
+			@Option(separator=",") int[] ids;
+		});
+		ParseLimits limits = new ParseLimits();
+		limits.setMaxTokens(6);
+		limits.setMaxTokenLength(20);
+		limits.setMaxPositionalArgs(1);
+		limits.setMaxOccurrences(2);
+		limits.setMaxCollectionSize(10);
+		parser.setLimits(limits);
+		
+		parser.parseArgs("-t", "a", "-t", "b", "--ids=1-10", "pos");
+		assertLimitExceeded(parser, "1", "2", "3", "4", "5", "6", "7");
+		assertLimitExceeded(parser, "--ids=1-9,10,11");
+		assertLimitExceeded(parser, "--ids=1-11");
+		assertLimitExceeded(parser, "-t", "a", "-t", "b", "-t", "c");
+		assertLimitExceeded(parser, "pos1", "pos2");
+		
+		final ParserSession session = parser.newSession();
+		session.feed(new StringBuilder("--ids=1,2,3,4,5,6,7,"));
+		try {
+			session.feed(new StringBuilder("8"));
+			fail("program was expected to fail");
+		} catch (ParseLimitError e) {
+			assertEquals(20, e.getLimit());
+		}
+		// the limit applies as quoted text is read, before the quote is closed
+		try {
+			parser.newSession().feedLine("-t '" + new String(new char[1000]).replace('\0', 'x'));
+			fail("program was expected to fail");
+		} catch (ParseLimitError e) {
+			assertEquals(20, e.getLimit());
+		}
+	}
+	
+	public static class BatchOpts {
+		@Option int n;
+		@Option(action=Option.APPEND) List<String> t;
+	}
+	
+	@Test
+	public void testParseAll() {
+		BatchOpts prototype = new BatchOpts();
+		ArgumentParser parser = new ArgumentParser(prototype);
+		List<String[]> argvs = new ArrayList<String[]>();
+		for (int i = 0; i < 1000; i++) {
+			argvs.add(new String[]{"-n", Integer.toString(i), "-t", "a" + i, "pos" + i});
+		}
+		argvs.add(new String[]{"--bogus"});
+		argvs.add(new String[]{"-n", "x"});
+		argvs.add(new String[]{"--help"});
+		
+		List<ParseResult<BatchOpts>> results = parser.parseAll(argvs, new TargetFactory<BatchOpts>() {
+			@Override
+			public BatchOpts newInstance() {
+				return new BatchOpts();
+			}
+		});
+		assertEquals(argvs.size(), results.size());
+		for (int i = 0; i < 1000; i++) {
+			ParseResult<BatchOpts> result = results.get(i);
+			assertTrue(result.isSuccess());
+			assertEquals(i, result.getTarget().n);
+			assertEquals(Arrays.asList("a" + i), result.getTarget().t);
+			assertEquals(Arrays.asList("a" + i), result.getValues().getValue("t"));
+			assertArrayEquals(new String[]{"pos" + i}, result.getPositionalArgs());
+		}
+		for (int i = 1000; i < argvs.size(); i++) {
+			assertFalse(results.get(i).isSuccess());
+			assertNotNull(results.get(i).getError());
+		}
+		// the object the parser was built with is left alone
+		assertEquals(0, prototype.n);
+		assertNull(prototype.t);
+		
+		// a target that cannot be created only fails its own command-line
+		final AtomicInteger created = new AtomicInteger();
+		results = parser.parseAll(argvs.subList(0, 3), new TargetFactory<BatchOpts>() {
+			@Override
+			public BatchOpts newInstance() {
+				if (created.getAndIncrement() == 1)
+					throw new IllegalStateException("no target");
+				return new BatchOpts();
+			}
+		});
+		assertTrue(results.get(0).isSuccess());
+		assertEquals("no target", results.get(1).getError());
+		assertTrue(results.get(2).isSuccess());
+	}
+	
+	@ParserOptions(newTargetPerParse=true)
+	private static class FreshOpts {
+		@Option int count = 1;
+		@Option(action=Option.APPEND) List<String> t;
+	}
+	
+	@Test
+	public void testNewTargetPerParse() {
+		ArgumentParser parser = new ArgumentParser(FreshOpts.class);
+		parser.setExitOnError(false);
+		ArgumentValues first = parser.parseArgs("--count", "5", "-t", "a");
+		ArgumentValues second = parser.parseArgs("-t", "b");
+		FreshOpts firstOpts = first.getTarget();
+		FreshOpts secondOpts = second.getTarget();
+		assertNotSame(firstOpts, secondOpts);
+		assertEquals(5, firstOpts.count);
+		assertEquals(Arrays.asList("a"), firstOpts.t);
+		assertEquals(1, secondOpts.count);
+		assertEquals(Arrays.asList("b"), secondOpts.t);
+		assertEquals(Integer.valueOf(5), first.getValue("count"));
+		assertEquals(Arrays.asList("b"), second.getValue("t"));
+		
+		// options added after a parse are not part of its values
+		parser.addArguments(new Object() {
+			@Option String u = "late";
+		});
+		assertEquals(Integer.valueOf(5), first.optionsMap().get("count"));
+		assertFalse(first.optionsMap().containsKey("u"));
+		assertNull(first.properties().getProperty("u"));
+		
+		final FreshOpts[] created = new FreshOpts[1];
+		parser = new ArgumentParser(FreshOpts.class, new TargetFactory<FreshOpts>() {
+			@Override
+			public FreshOpts newInstance() {
+				created[0] = new FreshOpts();
+				created[0].count = 7;
+				return created[0];
+			}
+		});
+		ArgumentValues ov = parser.newSession().feed("-t").feed("c").finish();
+		assertSame(created[0], ov.getTarget());
+		assertEquals(Integer.valueOf(7), ov.getValue("count"));
+		assertEquals(Arrays.asList("c"), created[0].t);
+	}
+	
+	private static class ScopedOpts {
+		@Option static final ScopedOption<String> name = new ScopedOption<String>("none");
+		@Option(action=Option.APPEND) static final ScopedOption<List<Integer>> t = new ScopedOption<List<Integer>>();
+	}
+	
+	@Test
+	public void testScopedOptions() throws Exception {
+		final ArgumentParser parser = new ArgumentParser(ScopedOpts.class);
+		parser.setExitOnError(false);
+		final CyclicBarrier barrier = new CyclicBarrier(2);
+		final List<String> names = Collections.synchronizedList(new ArrayList<String>());
+		final List<Object> ts = Collections.synchronizedList(new ArrayList<Object>());
+		Thread[] threads = new Thread[2];
+		for (int i = 0; i < threads.length; i++) {
+			final String id = Integer.toString(i);
+			threads[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					new OptionScope().run(new Runnable() {
+						@Override
+						public void run() {
+							parser.parseArgs("--name", "run" + id, "-t", id);
+							try {
+								barrier.await();	// both runs have parsed before either reads
+							} catch (Exception e) {
+								throw new RuntimeException(e);
+							}
+							names.add(ScopedOpts.name.get());
+							ts.add(ScopedOpts.t.get());
+						}
+					});
+				}
+			});
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		Collections.sort(names);
+		assertEquals(Arrays.asList("run0", "run1"), names);
+		assertTrue(ts.contains(Arrays.asList(0)));
+		assertTrue(ts.contains(Arrays.asList(1)));
+		
+		// outside of a scope, the shared values are untouched
+		assertEquals("none", ScopedOpts.name.get());
+		assertNull(ScopedOpts.t.get());
+	}
+	
+	private static class ScopedModeOpts {
+		@Option static final ScopedOption<String> mode = new ScopedOption<String>("none");
+	}
+	
+	@Test
+	public void testValidatorsAndCallbacksInScope() throws Exception {
+		final ArgumentParser parser = new ArgumentParser();
+		parser.setExitOnError(false);
+		parser.putValidator("strict", new OptionValidator() {
+			@Override
+			public String validate(Object value, String arg) {
+				return "strict".equals(ScopedModeOpts.mode.get()) ? null : "not strict";
+			}
+		});
+		final List<String> modes = Collections.synchronizedList(new ArrayList<String>());
+		parser.addOptions(ScopedModeOpts.class);
+		parser.addArguments(new Object() {
+			// two checks, so that they run on the pool rather than the parsing thread
+			@Option(validate={"strict", "strict"}) int n;
+			@Option void report() {
+				modes.add(ScopedModeOpts.mode.get());
+			}
+		});
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			parser.setCallbackExecutor(executor);
+			new OptionScope().call(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					parser.parseArgs("--mode", "strict", "-n", "1", "--report").get(10, TimeUnit.SECONDS);
+					return null;
+				}
+			});
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(Arrays.asList("strict"), modes);
+		assertEquals("none", ScopedModeOpts.mode.get());
+	}
+	
+	@Test
+	public void testAsyncCallbacks() throws Exception {
+		final CountDownLatch parsed = new CountDownLatch(1);
+		final List<String> calls = Collections.synchronizedList(new ArrayList<String>());
+		ArgumentParser parser = new ArgumentParser();
+		parser.setExitOnError(false);
+		parser.addArguments(new Object() {
+			@Option void load() throws InterruptedException {
+				parsed.await();	// only finishes once parsing has returned
+				calls.add("load");
+			}
+			@Option(after="load") void index(String name) {
+				calls.add("index " + name);
+			}
+			@Option void fail() {
+				throw new IllegalStateException("failed");
+			}
+			@Option(after="fail") void skipped() {
+				calls.add("skipped");
+			}
+		});
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			parser.setCallbackExecutor(executor);
+			ArgumentValues ov = parser.parseArgs("--index", "a", "--load", "--index", "b", "pos");
+			assertArrayEquals(new String[]{"pos"}, ov.getPositionalArgs());
+			assertTrue(calls.isEmpty());
+			parsed.countDown();
+			assertSame(ov, ov.get());
+			assertTrue(ov.isDone());
+			assertEquals(Arrays.asList("load", "index a", "index b"), calls);
+			
+			calls.clear();
+			ov = parser.parseArgs("--skipped", "--fail");
+			try {
+				ov.get(10, TimeUnit.SECONDS);
+				fail("callback was expected to fail");
+			} catch (ExecutionException e) {
+				// good
+			}
+			assertTrue(calls.isEmpty());
+		} finally {
+			executor.shutdown();
+		}
+		
+		// bad dependencies are reported when the options are added, and the options are not added
+		final ArgumentParser bad = new ArgumentParser();
+		bad.setExitOnError(false);
+		assertFail(new Runnable() {
+			@Override
+			public void run() {
+				bad.addArguments(new Object() {
+					@Option(after="missing") void first() {
+					}
+				});
+			}
+		});
+		assertFail(new Runnable() {
+			@Override
+			public void run() {
+				bad.addArguments(new Object() {
+					@Option(after="second") void first() {
+					}
+					@Option(after="first") void second() {
+					}
+				});
+			}
+		});
+		assertFalse(bad.hasOption("--first"));
+		
+		// dependencies are those of the options the parse started with, even if they have since been removed
+		final ArgumentParser removing = new ArgumentParser();
+		removing.setExitOnError(false);
+		final List<String> ordered = Collections.synchronizedList(new ArrayList<String>());
+		removing.addArguments(new Object() {
+			@Option void load() {
+				ordered.add("load");
+			}
+			@Option(after="load") void index() {
+				ordered.add("index");
+			}
+		});
+		removing.addValidator(new ArgumentsValidator() {
+			@Override
+			public String validate(ArgumentValues values) {
+				removing.remove(removing.getOption("--index"));
+				removing.remove(removing.getOption("--load"));
+				return null;
+			}
+		});
+		executor = Executors.newSingleThreadExecutor();
+		try {
+			removing.setCallbackExecutor(executor);
+			removing.parseArgs("--index", "--load").get(10, TimeUnit.SECONDS);
+			assertEquals(Arrays.asList("load", "index"), ordered);
+		} finally {
+			executor.shutdown();
+		}
+	}
+	
+	@Test
+	public void testUpdateOptions() throws Exception {
+		final ArgumentParser parser = new ArgumentParser();
+		parser.setExitOnError(false);
+		ParserSession session = parser.newSession();
+		
+		parser.beginUpdate();
+		try {
+			parser.addArguments(new Object() {
+				@Option String plugin;
+			});
+			parser.addArguments(new Object() {
+				@Option int level;
+			});
+			assertNotNull(parser.getOption("--plugin"));
+			// not yet visible to other threads
+			final Object[] seen = new Object[1];
+			Thread reader = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					seen[0] = parser.getOption("--plugin");
+				}
+			});
+			reader.start();
+			reader.join();
+			assertNull(seen[0]);
+		} finally {
+			parser.endUpdate();
+		}
+		
+		ArgumentValues ov = parser.parseArgs("--plugin", "x", "--level", "2");
+		assertEquals("x", ov.getValue("plugin"));
+		assertEquals(Integer.valueOf(2), ov.getValue("level"));
+		
+		// a parse keeps the options it started with
+		try {
+			session.feed("--level");
+			fail("program was expected to fail");
+		} catch (IllegalArgumentException e) {
+			// good
+		}
+		try {
+			parser.endUpdate();
+			fail("no update was in progress");
+		} catch (IllegalStateException e) {
+			// good
+		}
+	}
+	
+	@ParserOptions(newTargetPerParse=true)
+	private static class ValidatedOpts {
+		@Option(validate={"min=1", "max=64"}) int threads = 1;
+		@Option(action=Option.APPEND, validate={"exists", "file"}) List<File> input;
+		@Option(validate="directory") File out;
+	}
+	
+	@Test
+	public void testValidation() throws IOException {
+		final ArgumentParser parser = new ArgumentParser(ValidatedOpts.class);
+		parser.setExitOnError(false);
+		parser.addValidator(new ArgumentsValidator() {
+			@Override
+			public String validate(ArgumentValues values) {
+				List<File> input = values.getValue("input");
+				Integer threads = values.getValue("threads");
+				if (input != null && input.size() < threads)
+					return "more threads than inputs";
+				return null;
+			}
+		});
+		
+		File file = writeTempFile(new byte[0]);
+		File missing = new File(file.getPath() + ".missing");
+		parser.parseArgs("--threads", "1", "--input", file.getPath(), "--out", file.getParent());
+		try {
+			parser.parseArgs("--threads", "0", "--input", file.getPath(), "--input", missing.getPath(), "--out", file.getPath());
+			fail("program was expected to fail");
+		} catch (ValidationError e) {
+			assertEquals(4, e.getFailures().size());
+		}
+		try {
+			parser.parseArgs("--threads", "65", "--input", file.getPath());
+			fail("program was expected to fail");
+		} catch (ValidationError e) {
+			assertEquals(2, e.getFailures().size());
+		}
+		
+		// validators that throw are reported with the option
+		final ArgumentParser throwing = new ArgumentParser();
+		throwing.setExitOnError(false);
+		throwing.putValidator("broken", new OptionValidator() {
+			@Override
+			public String validate(Object value, String arg) {
+				throw new NullPointerException();
+			}
+		});
+		throwing.addArguments(new Object() {
+			@Option(validate="broken") int x;
+		});
+		try {
+			throwing.parseArgs("-x", "1");
+			fail("program was expected to fail");
+		} catch (ValidationError e) {
+			assertEquals(Arrays.asList("option -x: java.lang.NullPointerException"), e.getFailures());
+		}
+		assertFail(new Runnable() {
+			@Override
+			public void run() {
+				parser.addArguments(new Object() {
+					@Option(validate="unknown") int x;
+				});
+			}
+		});
+		assertFail(new Runnable() {
+			@Override
+			public void run() {
+				parser.addArguments(new Object() {
+					@Option(validate="min") int x;
+				});
+			}
+		});
+		assertFail(new Runnable() {
+			@Override
+			public void run() {
+				parser.addArguments(new Object() {
+					@Option(validate="max=many") int x;
+				});
+			}
+		});
+		assertNull(parser.getOption("-x"));
+	}
+	
+	public static class PooledOpts {
+		@Option int n = 3;
+		@Option(action=Option.APPEND) List<String> t = new ArrayList<String>(Arrays.asList("a"));
+	}
+	
+	@Test
+	public void testReset() {
+		PooledOpts opts = new PooledOpts();
+		List<String> t = opts.t;
+		ArgumentParser parser = new ArgumentParser(opts);
+		parser.parseArgs("-n", "5", "-t", "b", "-t", "c");
+		assertEquals(5, opts.n);
+		assertEquals(Arrays.asList("a", "b", "c"), opts.t);
+		
+		parser.reset();
+		assertEquals(3, opts.n);
+		assertSame(t, opts.t);
+		assertEquals(Arrays.asList("a"), opts.t);
+		parser.parseArgs("-t", "d");
+		assertEquals(Arrays.asList("a", "d"), opts.t);
+	}
+	
+	@Test
+	public void testParserPool() throws Exception {
+		ParserPool<PooledOpts> pool = new ParserPool<PooledOpts>(2, new TargetFactory<PooledOpts>() {
+			@Override
+			public PooledOpts newInstance() {
+				return new PooledOpts();
+			}
+		}) {
+			@Override
+			protected void configure(ArgumentParser parser) {
+				parser.setExitOnError(false);
+			}
+		};
+		
+		PooledParser<PooledOpts> first = pool.acquire();
+		PooledParser<PooledOpts> second = pool.acquire();
+		assertNull(pool.tryAcquire(10, TimeUnit.MILLISECONDS));
+		first.parseArgs("-n", "7", "-t", "b");
+		assertEquals(7, first.getTarget().n);
+		PooledOpts target = first.getTarget();
+		first.close();
+		try {
+			first.close();
+			fail("program was expected to fail");
+		} catch (IllegalStateException e) {
+			// good
+		}
+		
+		try (PooledParser<PooledOpts> third = pool.acquire()) {
+			assertSame(target, third.getTarget());
+			assertEquals(3, target.n);
+			assertEquals(Arrays.asList("a"), target.t);
+		}
+		second.close();
+		assertEquals(2, pool.size());
+	}
+	
+	public static class StagedOpts {
+		@Option(validate="min=1") int n = 3;
+		@Option(action=Option.COUNT) int v;
+		@Option(action=Option.APPEND) List<String> t = new ArrayList<String>(Arrays.asList("a"));
+		@Option(separator=",") List<Integer> ids = new ArrayList<Integer>(Arrays.asList(0));
+	}
+	
+	@Test
+	public void testTransactionalParse() {
+		StagedOpts opts = new StagedOpts();
+		List<String> t = opts.t;
+		ArgumentParser parser = new ArgumentParser(opts);
+		parser.setExitOnError(false);
+		parser.setTransactional(true);
+		
+		try {
+			parser.parseArgs("-n", "5", "-vv", "-t", "b", "--unknown");
+			fail("program was expected to fail");
+		} catch (IllegalArgumentException e) {
+			// good
+		}
+		try {
+			parser.parseArgs("-n", "0", "-v", "-t", "b");
+			fail("program was expected to fail");
+		} catch (ValidationError e) {
+			// good
+		}
+		assertEquals(3, opts.n);
+		assertEquals(0, opts.v);
+		assertEquals(Arrays.asList("a"), opts.t);
+		
+		ArgumentValues values = parser.parseArgs("-n", "5", "-vv", "-t", "b", "-v", "-t", "c");
+		assertEquals(5, opts.n);
+		assertEquals(3, opts.v);
+		assertSame(t, opts.t);
+		assertEquals(Arrays.asList("a", "b", "c"), opts.t);
+		assertEquals(Arrays.asList("a", "b", "c"), values.getValue("t"));
+		
+		// staged delimited lists are limited by the values already in the collection
+		ParseLimits limits = new ParseLimits();
+		limits.setMaxCollectionSize(4);
+		parser.setLimits(limits);
+		assertLimitExceeded(parser, "--ids=1,2", "--ids=3-4");
+		assertEquals(Arrays.asList(0), opts.ids);
+		parser.parseArgs("--ids=1,2", "--ids=3");
+		assertEquals(Arrays.asList(0, 1, 2, 3), opts.ids);
+		
+		// otherwise, delimited lists are added directly to the collection
+		List<Integer> ids = opts.ids = new ArrayList<Integer>();
+		parser.setTransactional(false);
+		parser.parseArgs("--ids=5,6");
+		assertSame(ids, opts.ids);
+		assertEquals(Arrays.asList(5, 6), ids);
+	}
+	
+	@Test
+	public void testTelemetry() throws IOException {
+		ArgumentParser parser = new ArgumentParser(new BatchOpts());
+		parser.setExitOnError(false);
+		OptionTelemetry telemetry = new OptionTelemetry();
+		parser.setTelemetry(telemetry);
+		
+		parser.parseArgs("-n", "1", "-t", "a", "-t", "b");
+		parser.parseArgs("-t", "c");
+		try {
+			parser.parseArgs("-n", "x");
+			fail("program was expected to fail");
+		} catch (IllegalArgumentException e) {
+			// good
+		}
+		
+		assertEquals(2, telemetry.getParses());
+		Map<String, OptionTelemetry.Counts> counts = telemetry.snapshot();
+		assertEquals(2, counts.get("-n").getSeen());
+		assertEquals(1, counts.get("-n").getDefaulted());
+		assertEquals(1, counts.get("-n").getErrors());
+		assertEquals(3, counts.get("-t").getSeen());
+		assertEquals(0, counts.get("-t").getDefaulted());
+		
+		File file = writeTempFile(new byte[0]);
+		telemetry.flush(file);
+		List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+		assertEquals("parses\t2", lines.get(0));
+		assertTrue(lines.contains("-n\t2\t1\t1"));
+		
+		// parses with a changed set of options add to the counts of the options they share
+		parser.addArguments(new Object() {
+			@Option String u;
+		});
+		parser.parseArgs("-t", "d");
+		counts = telemetry.snapshot();
+		assertEquals(3, telemetry.getParses());
+		assertEquals(2, counts.get("-n").getDefaulted());
+		assertEquals(1, counts.get("-u").getDefaulted());
+		assertEquals(4, counts.get("-t").getSeen());
+	}
+	
+	public static class TrainCommand {
+		@Option(optStrings="--epochs") int epochs = 1;
+	}
+	
+	@Test
+	public void testCommands() {
+		BatchOpts global = new BatchOpts();
+		final ArgumentParser parser = new ArgumentParser(global);
+		parser.setExitOnError(false);
+		parser.addCommand("train", TrainCommand.class.getName());
+		parser.addCommand("eval", new TargetFactory<BatchOpts>() {
+			@Override
+			public BatchOpts newInstance() {
+				return new BatchOpts();
+			}
+		});
+		assertEquals(new ArrayList<String>(Arrays.asList("train", "eval")), new ArrayList<String>(parser.getCommands()));
+		assertTrue(parser.helpString().contains("train"));
+		
+		ArgumentValues values = parser.parseArgs("-n", "2", "eval", "-n", "3", "x");
+		assertEquals(2, global.n);
+		assertEquals("eval", values.getCommand());
+		BatchOpts evalOpts = values.getCommandValues().getTarget();
+		assertEquals(3, evalOpts.n);
+		assertArrayEquals(new String[] {"x"}, values.getCommandValues().getPositionalArgs());
+		
+		values = parser.parseArgs("train", "--epochs", "5");
+		TrainCommand train = values.getCommandValues().getTarget();
+		assertEquals(5, train.epochs);
+		
+		assertFail(new Runnable() {
+			@Override
+			public void run() {
+				parser.parseArgs("test");
+			}
+		});
+		assertFail(new Runnable() {
+			@Override
+			public void run() {
+				parser.parseArgs("-n", "1");
+			}
+		});
+	}
+	
+	@Test
+	public void testCommandCommittedWithParent() {
+		StagedOpts opts = new StagedOpts();
+		ArgumentParser parser = new ArgumentParser(opts);
+		parser.setExitOnError(false);
+		parser.setTransactional(true);
+		final List<BatchOpts> created = new ArrayList<BatchOpts>();
+		parser.addCommand("eval", new TargetFactory<BatchOpts>() {
+			@Override
+			public BatchOpts newInstance() {
+				BatchOpts target = new BatchOpts();
+				created.add(target);
+				return target;
+			}
+		});
+		
+		// the parent fails validation after the command has been parsed
+		try {
+			parser.parseArgs("-n", "0", "eval", "-n", "3");
+			fail("program was expected to fail");
+		} catch (ValidationError e) {
+			// good
+		}
+		// one prototype and one target
+		assertEquals(2, created.size());
+		assertEquals(new BatchOpts().n, created.get(1).n);
+		
+		ArgumentValues values = parser.parseArgs("-n", "2", "eval", "-n", "3");
+		assertEquals(2, opts.n);
+		BatchOpts evalOpts = values.getCommandValues().getTarget();
+		assertSame(created.get(2), evalOpts);
+		assertEquals(3, evalOpts.n);
+		assertEquals(3, (int) values.getCommandValues().getValue("n"));
+	}
+	
+	public static class EchoOpts {
+		@Option int n = 1;
+	}
+	
+	public static class LocatedOpts {
+		@Option File file;
+		@Option static final ScopedOption<String> label = new ScopedOption<String>("none");
+	}
+	
+	@Test
+	public void testDaemon() throws Exception {
+		try (ParseDaemon daemon = new ParseDaemon()) {
+			daemon.register("echo", EchoOpts.class, new DaemonMain<EchoOpts>() {
+				@Override
+				public int run(EchoOpts opts, ArgumentValues values, DaemonContext context) throws Exception {
+					BufferedReader in = new BufferedReader(new InputStreamReader(context.getIn(), StandardCharsets.UTF_8));
+					context.getOut().print(opts.n + " " + in.readLine() + " " + context.getEnvironment().get("X") + " " + context.resolve("f"));
+					return opts.n;
+				}
+			});
+			File portFile = new File(Files.createTempDirectory("jargparser").toFile(), "port");
+			portFile.deleteOnExit();
+			portFile.getParentFile().deleteOnExit();
+			daemon.start(portFile);
+			if (!System.getProperty("os.name").startsWith("Windows"))
+				assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(portFile.toPath())));
+			
+			// an existing file, which someone else may own, is not reused
+			try (ParseDaemon other = new ParseDaemon()) {
+				other.start(portFile);
+				fail("the port file already exists");
+			} catch (FileAlreadyExistsException e) {
+				// good
+			}
+			
+			// a client sending more than a token before authenticating is dropped
+			try (Socket socket = new Socket(InetAddress.getByName(null), daemon.getPort())) {
+				new DataOutputStream(socket.getOutputStream()).writeInt(1 << 20);
+				assertEquals(-1, socket.getInputStream().read());
+			}
+			
+			File cwd = new File(System.getProperty("java.io.tmpdir"));
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			ByteArrayOutputStream err = new ByteArrayOutputStream();
+			int status = DaemonClient.run(portFile, "echo", new String[] {"-n", "3"}, Collections.singletonMap("X", "y"), cwd,
+					new ByteArrayInputStream("line\n".getBytes(StandardCharsets.UTF_8)), out, err);
+			assertEquals(3, status);
+			assertEquals("3 line y " + new File(cwd, "f"), out.toString("UTF-8"));
+			
+			out.reset();
+			status = DaemonClient.run(portFile, "echo", new String[] {"--help"}, Collections.<String, String>emptyMap(), cwd,
+					new ByteArrayInputStream(new byte[0]), out, err);
+			assertEquals(0, status);
+			assertTrue(out.toString("UTF-8").contains("echo [options]"));
+			
+			status = DaemonClient.run(portFile, "echo", new String[] {"-n", "x"}, Collections.<String, String>emptyMap(), cwd,
+					new ByteArrayInputStream(new byte[0]), out, err);
+			assertEquals(-1, status);
+			assertTrue(err.size() > 0);
+			
+			// files are resolved against the client's directory and scoped options stay within the run
+			daemon.register("where", LocatedOpts.class, new DaemonMain<LocatedOpts>() {
+				@Override
+				public int run(LocatedOpts opts, ArgumentValues values, DaemonContext context) throws Exception {
+					context.getOut().print(opts.file + " " + LocatedOpts.label.get());
+					return 0;
+				}
+			});
+			out.reset();
+			status = DaemonClient.run(portFile, "where", new String[] {"--file", "f", "--label", "x"}, Collections.<String, String>emptyMap(), cwd,
+					new ByteArrayInputStream(new byte[0]), out, err);
+			assertEquals(0, status);
+			assertEquals(new File(cwd, "f") + " x", out.toString("UTF-8"));
+			assertEquals("none", LocatedOpts.label.get());
+		}
+	}
+	
+	@Version("%prog 2.0")
+	public static class VersionedOpts {
+		@Option int n;
+	}
+	
+	@Test
+	public void testTryParseArgs() {
+		// exiting on error is left on; tryParseArgs must not exit anyway
+		ArgumentParser parser = new ArgumentParser(new VersionedOpts());
+		parser.setProg("prog");
+		
+		ParseOutcome outcome = parser.tryParseArgs("-n", "3", "x");
+		assertTrue(outcome.isParsed());
+		assertArrayEquals(new String[] {"x"}, outcome.getValues().getPositionalArgs());
+		
+		outcome = parser.tryParseArgs("-n", "3", "--help");
+		assertEquals(ParseOutcome.Kind.HELP, outcome.getKind());
+		assertEquals(0, outcome.getExitStatus());
+		assertTrue(outcome.getText().contains("--help"));
+		
+		outcome = parser.tryParseArgs("--version");
+		assertEquals(ParseOutcome.Kind.VERSION, outcome.getKind());
+		assertEquals("prog 2.0", outcome.getText());
+		
+		outcome = parser.tryParseArgs("--unknown");
+		assertEquals(ParseOutcome.Kind.ERROR, outcome.getKind());
+		assertEquals(-1, outcome.getExitStatus());
+		assertNotNull(outcome.getError());
+		assertTrue(outcome.getText().contains("unknown"));
+	}
+	
+	public static class ShellOpts {
+		@Option int n = 1;
+		@Option String name;
+	}
+	
+	@Test
+	public void testShell() throws IOException {
+		final ShellOpts opts = new ShellOpts();
+		ArgumentParser parser = new ArgumentParser(opts);
+		parser.setProg("prog");
+		final List<String> seen = new ArrayList<String>();
+		ParserShell shell = new ParserShell(parser, new ParserShell.LineHandler() {
+			@Override
+			public void handle(ArgumentValues values, ParserShell shell) {
+				Integer lines = (Integer) shell.getAttributes().get("lines");
+				shell.getAttributes().put("lines", lines == null ? 1 : lines + 1);
+				seen.add(opts.n + ":" + opts.name + ":" + Arrays.asList(values.getPositionalArgs()));
+				if (values.getPositionalArgs().length > 0 && values.getPositionalArgs()[0].equals("quit"))
+					shell.stop();
+			}
+		});
+		
+		ParseOutcome outcome = shell.parseLine("-n 3 --name 'a b' \"c \\\"d\\\"\" e\\ f '' # comment");
+		assertTrue(outcome.isParsed());
+		assertEquals(3, opts.n);
+		assertEquals("a b", opts.name);
+		assertArrayEquals(new String[] {"c \"d\"", "e f", ""}, outcome.getValues().getPositionalArgs());
+		
+		// nothing carries over from the previous line
+		outcome = shell.parseLine("x");
+		assertTrue(outcome.isParsed());
+		assertEquals(1, opts.n);
+		assertNull(opts.name);
+		
+		assertEquals(ParseOutcome.Kind.ERROR, shell.parseLine("--name 'a").getKind());
+		assertEquals(ParseOutcome.Kind.ERROR, shell.parseLine("--unknown").getKind());
+		assertEquals(ParseOutcome.Kind.HELP, shell.parseLine("--help").getKind());
+		
+		String input = "-n 2 x\n\n# skipped\n--bad\n--help\nquit\n-n 5\n";
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ByteArrayOutputStream err = new ByteArrayOutputStream();
+		shell.setPrompt("");
+		shell.run(new BufferedReader(new InputStreamReader(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8)),
+				new PrintStream(out, true), new PrintStream(err, true));
+		assertEquals(Arrays.asList("2:null:[x]", "1:null:[quit]"), seen);
+		assertEquals(2, shell.getAttributes().get("lines"));
+		assertTrue(new String(out.toByteArray(), StandardCharsets.UTF_8).contains("--help"));
+		assertTrue(new String(err.toByteArray(), StandardCharsets.UTF_8).contains("bad"));
+	}
+	
+	public enum Level { LOW, HIGH }
+	
+	public static class CompletedOpts {
+		@Option File output;
+		@Option(choices={"fast", "slow"}) String mode;
+		@Option Level level;
+		@Option(nargs=2) String[] pair;
+		@Option boolean verbose;
+		@Option int n;
+	}
+	
+	@Test
+	public void testShellCompletion() throws IOException {
+		ArgumentParser parser = new ArgumentParser(new CompletedOpts());
+		parser.addCommand("train", TrainCommand.class.getName());
+		parser.addCommand("tune", TrainCommand.class.getName());
+		ShellCompletion completion = new ShellCompletion(parser);
+		
+		assertEquals(Arrays.asList("--mode"), completion.complete(Arrays.asList("--mo")));
+		assertEquals(Arrays.asList("--verbose"), completion.complete(Arrays.asList("-n", "3", "--v")));
+		assertEquals(Arrays.asList("fast"), completion.complete(Arrays.asList("--mode", "f")));
+		assertEquals(Arrays.asList("--mode=fast", "--mode=slow"), completion.complete(Arrays.asList("--mode=")));
+		assertEquals(Arrays.asList("HIGH"), completion.complete(Arrays.asList("--lev", "H")));
+		assertEquals(Arrays.asList(ShellCompletion.FILES), completion.complete(Arrays.asList("--output", "")));
+		assertEquals(Collections.emptyList(), completion.complete(Arrays.asList("--pair", "a", "")));
+		assertEquals(Arrays.asList("train", "tune"), completion.complete(Arrays.asList("--verbose", "t")));
+		assertEquals(Arrays.asList("train"), completion.complete(Arrays.asList("--pair", "tune", "x", "tr")));
+		assertEquals(Arrays.asList("--epochs"), completion.complete(Arrays.asList("train", "--e")));
+		
+		ByteArrayOutputStream index = new ByteArrayOutputStream();
+		completion.write(index);
+		ShellCompletion read = ShellCompletion.read(new ByteArrayInputStream(index.toByteArray()));
+		assertEquals(Arrays.asList("--mode=fast", "--mode=slow"), read.complete(Arrays.asList("--mode=")));
+		assertEquals(Arrays.asList("--epochs", "--help"), read.complete(Arrays.asList("tune", "--")));
+		
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		assertFalse(read.answer(new String[] {"--mode"}, new PrintStream(out, true)));
+		assertTrue(read.answer(new String[] {ShellCompletion.COMPLETE_OPTION, "--mode", "s"}, new PrintStream(out, true)));
+		assertEquals("slow", new String(out.toByteArray(), StandardCharsets.UTF_8).trim());
+		
+		for (ShellCompletion.Shell shell : ShellCompletion.Shell.values()) {
+			assertTrue(ShellCompletion.script(shell, "my-prog").contains("my-prog " + ShellCompletion.COMPLETE_OPTION));
+		}
+		// bash splits COMP_WORDS at "=", so the script works from the line
+		assertTrue(ShellCompletion.script(ShellCompletion.Shell.BASH, "my-prog").contains("COMP_LINE"));
+		
+		// options of namespaces are completed by their qualified names
+		ShellCompletion nested = new ShellCompletion(new ArgumentParser(new PipelineOpts()));
+		assertEquals(Arrays.asList("--encoder.layers"), nested.complete(Arrays.asList("--encoder.l")));
+		assertEquals(Arrays.asList("--dec.attention.heads", "--dec.layers"), nested.complete(Arrays.asList("--dec.")));
+		assertEquals(Collections.emptyList(), nested.complete(Arrays.asList("--seed", "1", "--encoder.attention.heads", "")));
+		
+		// answering a query only exits when the parser exits on errors
+		parser.setCompletionEnabled(true);
+		ParseOutcome outcome = parser.tryParseArgs(ShellCompletion.COMPLETE_OPTION, "--mode", "s");
+		assertEquals(ParseOutcome.Kind.COMPLETION, outcome.getKind());
+		assertEquals("slow", outcome.getText());
+		assertEquals(0, outcome.getExitStatus());
+		parser.setExitOnError(false);
+		try {
+			parser.parseArgs(ShellCompletion.COMPLETE_OPTION, "--mo");
+			fail("completion should end the parse");
+		} catch (ExitRequestedError e) {
+			assertEquals(ParseOutcome.Kind.COMPLETION, e.getKind());
+			assertEquals("--mode", e.getText());
+		}
+	}
+	
+	public static class EncoderOpts {
+		@Option int layers = 1;
+		@Option(optStrings={"-d", "--dropout"}) double dropout;
+	}
+	
+	public static class DecoderOpts {
+		@Option int layers = 1;
+		@Option int beam = 1;
+	}
+	
+	@Test
+	public void testCompositeParser() {
+		EncoderOpts encoder = new EncoderOpts();
+		DecoderOpts decoder = new DecoderOpts();
+		ArgumentParser decoderParser = new ArgumentParser(decoder);
+		decoderParser.setExitOnError(false);
+		final CompositeParser parser = new CompositeParser();
+		parser.setExitOnError(false);
+		parser.add("encoder", new ArgumentParser(encoder));
+		parser.add("decoder", decoderParser);
+		assertEquals(Arrays.asList("encoder", "decoder"), parser.getComponents());
+		
+		CompositeValues values = parser.parseArgs("--encoder.layers", "6", "in.txt", "--decoder.layers=2", "--beam", "4", "-d0.5", "--", "-x");
+		assertEquals(6, encoder.layers);
+		assertEquals(0.5, encoder.dropout, 0.0);
+		assertEquals(2, decoder.layers);
+		assertEquals(4, decoder.beam);
+		assertEquals(4, (int) values.getValues("decoder").getValue("beam"));
+		assertArrayEquals(new String[] {"in.txt", "-x"}, values.getPositionalArgs());
+		
+		parser.parseArgs("--encoder.d", "0.25", "--bea=3");
+		assertEquals(0.25, encoder.dropout, 0.0);
+		assertEquals(3, decoder.beam);
+		
+		// shared option strings must be namespaced
+		assertFail(new Runnable() {
+			@Override
+			public void run() {
+				parser.parseArgs("--layers", "3");
+			}
+		});
+		assertFail(new Runnable() {
+			@Override
+			public void run() {
+				parser.parseArgs("--nope");
+			}
+		});
+		// errors within a component are reported by the component
+		assertFail(new Runnable() {
+			@Override
+			public void run() {
+				parser.parseArgs("--beam", "x");
+			}
+		});
+		
+		// help is printed without exiting
+		PrintStream out = System.out;
+		System.setOut(new PrintStream(new ByteArrayOutputStream()));
+		try {
+			parser.parseArgs("--help");
+			fail("help was expected to be requested");
+		} catch (ExitRequestedError e) {
+			assertTrue(e.isHelp());
+			assertTrue(e.getText().contains("encoder (--encoder.*)"));
+		} finally {
+			System.setOut(out);
+		}
+	}
+	
+	public static class AttentionOpts {
+		@Option int heads = 8;
+	}
+	
+	public static class LayerOpts {
+		@Option int layers = 2;
+		@Component AttentionOpts attention;
+	}
+	
+	public static class PipelineOpts {
+		@Option int seed;
+		@Component(help="the encoder") LayerOpts encoder;
+		@Component("dec") LayerOpts decoder = new LayerOpts();
+	}
+	
+	@Test
+	public void testNamespaces() {
+		PipelineOpts opts = new PipelineOpts();
+		final ArgumentParser parser = new ArgumentParser(opts);
+		parser.setExitOnError(false);
+		assertEquals(new ArrayList<String>(Arrays.asList("encoder", "dec")), new ArrayList<String>(parser.getNamespaces()));
+		assertTrue(parser.helpString().contains("--encoder.*"));
+		assertTrue(parser.helpString().contains("the encoder"));
+		// components are not created until needed
+		assertNull(opts.encoder);
+		
+		ArgumentValues values = parser.parseArgs("--seed", "1", "--encoder.lay", "4", "--encoder.attention.heads=2");
+		assertEquals(1, opts.seed);
+		assertEquals(4, opts.encoder.layers);
+		assertEquals(2, opts.encoder.attention.heads);
+		assertNull(opts.decoder.attention);
+		
+		assertEquals(2, (int) values.getValue("dec.layers"));
+		assertNull(opts.decoder.attention);
+		assertSame(parser.getNamespace("dec.attention"), opts.decoder.attention);
+		assertNotNull(opts.decoder.attention);
+		assertNull(parser.getNamespace("nope"));
+		
+		parser.reset();
+		assertEquals(2, opts.encoder.layers);
+		assertEquals(8, opts.encoder.attention.heads);
+		
+		assertFail(new Runnable() {
+			@Override
+			public void run() {
+				parser.parseArgs("--encoder.nope", "1");
+			}
+		});
+		assertFail(new Runnable() {
+			@Override
+			public void run() {
+				parser.parseArgs("--nope.layers", "1");
+			}
+		});
+	}
+	
+	@Test
+	public void testNamespacesPerTarget() {
+		ArgumentParser parser = new ArgumentParser(PipelineOpts.class, new TargetFactory<PipelineOpts>() {
+			@Override
+			public PipelineOpts newInstance() {
+				return new PipelineOpts();
+			}
+		});
+		parser.setExitOnError(false);
+		ArgumentValues first = parser.parseArgs("--encoder.layers", "4", "--encoder.attention.heads", "2");
+		ArgumentValues second = parser.parseArgs("--encoder.layers", "6", "--dec.layers", "3");
+		PipelineOpts firstOpts = first.getTarget();
+		PipelineOpts secondOpts = second.getTarget();
+		assertNotSame(firstOpts.encoder, secondOpts.encoder);
+		assertEquals(4, firstOpts.encoder.layers);
+		assertEquals(2, firstOpts.encoder.attention.heads);
+		assertEquals(2, firstOpts.decoder.layers);
+		assertEquals(6, secondOpts.encoder.layers);
+		assertNull(secondOpts.encoder.attention);
+		assertEquals(3, secondOpts.decoder.layers);
+		assertEquals(4, (int) first.getValue("encoder.layers"));
+		assertEquals(6, (int) second.getValue("encoder.layers"));
+		
+		List<ParseResult<PipelineOpts>> results = parser.parseAll(Arrays.asList(
+				new String[] {"--encoder.layers", "7"}, new String[] {"--encoder.layers", "8"}), new TargetFactory<PipelineOpts>() {
+			@Override
+			public PipelineOpts newInstance() {
+				return new PipelineOpts();
+			}
+		});
+		assertEquals(7, results.get(0).getTarget().encoder.layers);
+		assertEquals(8, results.get(1).getTarget().encoder.layers);
+	}
+	
+	@Test
+	public void testParseKnownArgs() {
+		BatchOpts opts = new BatchOpts();
+		ArgumentParser parser = new ArgumentParser(opts);
+		parser.setExitOnError(false);
+		String[] args = {"--jobs", "4", "-n", "2", "-q", "--depth=3", "in.txt", "-v", "--fast", "-x", "out.txt"};
+		KnownArgs known = parser.parseKnownArgs(args);
+		assertSame(args, known.getArgs());
+		assertEquals(2, opts.n);
+		assertArrayEquals(new String[] {"in.txt"}, known.getValues().getPositionalArgs());
+		
+		// adjacent unknown arguments share a range
+		assertEquals(3, known.getNumRanges());
+		assertEquals(0, known.getStart(0));
+		assertEquals(2, known.getEnd(0));
+		assertEquals(4, known.getStart(1));
+		assertEquals(6, known.getEnd(1));
+		assertEquals(7, known.getStart(2));
+		assertEquals(11, known.getEnd(2));
+		assertEquals(Arrays.asList("--jobs", "4", "-q", "--depth=3", "-v", "--fast", "-x", "out.txt"), known.getUnknownArgs());
+		
+		known = parser.parseKnownArgs("-n", "5", "x");
+		assertFalse(known.hasUnknownArgs());
+		assertEquals(Collections.emptyList(), known.getUnknownArgs());
+	}
+	
+	public static class Point {
+		final int x, y;
+		
+		Point(int x, int y) {
+			this.x = x;
+			this.y = y;
+		}
+	}
+	
+	@Plugin(type=Point.class)
+	public static class PointParser implements OptionArgumentParser<Point> {
+		@Override
+		public Point parse(String arg) {
+			String[] xy = arg.split(",");
+			return new Point(Integer.parseInt(xy[0]), Integer.parseInt(xy[1]));
+		}
+	}
+	
+	@Plugin(type=StringBuilder.class)
+	public static class BuilderParser implements OptionArgumentParser<StringBuilder> {
+		static volatile int instances;
+		
+		public BuilderParser() {
+			instances++;
+		}
+		
+		@Override
+		public StringBuilder parse(String arg) {
+			return new StringBuilder(arg);
+		}
+	}
+	
+	@Plugin(action="store_alias")
+	public static class StoreAlias implements OptionHandlerFactory {
+		@Override
+		public OptionHandler newHandler(ArgumentParser p, ReflectiveVariable f, Option opt, Object optObject, List<String> optStrings) {
+			return new Store().newHandler(p, f, opt, optObject, optStrings);
+		}
+	}
+	
+	public static class PluginOpts {
+		@Option Point origin;
+		@Option(action="store_alias") int n;
+	}
+	
+	@Test
+	public void testPlugins() throws Exception {
+		File dir = Files.createTempDirectory("jargparser").toFile();
+		File index = new File(dir, "META-INF/jargparser/plugins.index");
+		assertTrue(index.getParentFile().mkdirs());
+		String entries = "# test\naction\tstore_alias\t" + StoreAlias.class.getName() + "\n"
+				+ "type\t" + Point.class.getName() + "\t" + PointParser.class.getName() + "\n";
+		Files.write(index.toPath(), entries.getBytes(StandardCharsets.UTF_8));
+		File services = new File(dir, "META-INF/services/" + OptionArgumentParser.class.getName());
+		assertTrue(services.getParentFile().mkdirs());
+		Files.write(services.toPath(), (PointParser.class.getName() + "\n" + BuilderParser.class.getName() + " # not indexed\n").getBytes(StandardCharsets.UTF_8));
+		services.deleteOnExit();
+		services.getParentFile().deleteOnExit();
+		index.deleteOnExit();
+		index.getParentFile().deleteOnExit();
+		index.getParentFile().getParentFile().deleteOnExit();
+		dir.deleteOnExit();
+		
+		Thread thread = Thread.currentThread();
+		ClassLoader prev = thread.getContextClassLoader();
+		thread.setContextClassLoader(new URLClassLoader(new URL[] {dir.toURI().toURL()}, getClass().getClassLoader()));
+		try {
+			PluginOpts opts = new PluginOpts();
+			ArgumentParser parser = new ArgumentParser(opts);
+			parser.setExitOnError(false);
+			parser.parseArgs("--origin", "3,4", "-n", "5");
+			assertEquals(3, opts.origin.x);
+			assertEquals(4, opts.origin.y);
+			assertEquals(5, opts.n);
+			assertNull(parser.getOptionArgumentParser(Thread.class));
+			// looked up once per parser and type
+			assertSame(parser.getOptionArgumentParser(Point.class), parser.getOptionArgumentParser(Point.class));
+			assertSame(parser.getOptionArgumentParser(Level.class), parser.getOptionArgumentParser(Level.class));
+			// misses do not instantiate the providers
+			assertEquals(0, BuilderParser.instances);
+			assertEquals("x", parser.getOptionArgumentParser(StringBuilder.class).parse("x").toString());
+			assertEquals(1, BuilderParser.instances);
+			// the plugins are kept while their loader is alive
+			Plugins plugins = Plugins.get();
+			System.gc();
+			assertSame(plugins, Plugins.get());
+		} finally {
+			thread.setContextClassLoader(prev);
+		}
+	}
+	
+	@Test
+	public void testParseCache() {
+		final ArgumentParser parser = new ArgumentParser(FreshOpts.class);
+		parser.setExitOnError(false);
+		ParseCache cache = new ParseCache(2);
+		parser.setParseCache(cache);
+		
+		ArgumentValues first = parser.parseArgs("--count", "5", "-t", "a", "-t", "b", "in.txt");
+		ArgumentValues second = parser.parseArgs("--count", "5", "-t", "a", "-t", "b", "in.txt");
+		assertEquals(1, cache.getMisses());
+		assertEquals(1, cache.getHits());
+		FreshOpts firstOpts = first.getTarget();
+		FreshOpts secondOpts = second.getTarget();
+		assertNotSame(firstOpts, secondOpts);
+		assertEquals(5, secondOpts.count);
+		assertEquals(Arrays.asList("a", "b"), secondOpts.t);
+		assertNotSame(firstOpts.t, secondOpts.t);
+		assertArrayEquals(new String[] {"in.txt"}, second.getPositionalArgs());
+		
+		// failed parses are not cached
+		assertFail(new Runnable() {
+			public void run() {
+				parser.parseArgs("--count", "x");
+			}
+		});
+		assertEquals(1, cache.size());
+		
+		// the least recently used parse is evicted
+		parser.parseArgs("-t", "c");
+		parser.parseArgs("--count", "5", "-t", "a", "-t", "b", "in.txt");
+		parser.parseArgs("-t", "d");
+		assertEquals(2, cache.size());
+		assertEquals(2, cache.getHits());
+		parser.parseArgs("-t", "c");
+		assertEquals(2, cache.getHits());
+		
+		// new options invalidate the cached parses
+		parser.addArguments(new Object() {
+			@Option String u;
+		});
+		FreshOpts opts = parser.parseArgs("-t", "c").getTarget();
+		assertEquals(2, cache.getHits());
+		assertEquals(Arrays.asList("c"), opts.t);
+		
+		cache.clear();
+		assertEquals(0, cache.size());
+		
+		// parses that convert to mutable values are not cached
+		ArgumentParser mutable = new ArgumentParser();
+		mutable.setExitOnError(false);
+		mutable.setParseCache(cache);
+		mutable.putOptionArgumentParser(StringBuilder.class, new OptionArgumentParser<StringBuilder>() {
+			public StringBuilder parse(String arg) {
+				return new StringBuilder(arg);
+			}
+		});
+		MutableOpts m = new MutableOpts();
+		mutable.addArguments(m);
+		mutable.parseArgs("--sb", "x");
+		StringBuilder sb = m.sb;
+		mutable.parseArgs("--sb", "x");
+		assertEquals(0, cache.size());
+		assertEquals(2, cache.getHits());
+		assertNotSame(sb, m.sb);
+	}
+	
+	private static class MutableOpts {
+		@Option StringBuilder sb;
+	}
+	
+	private static void assertLimitExceeded(ArgumentParser parser, String... args) {
+		try {
+			parser.parseArgs(args);
+			fail("program was expected to fail");
+		} catch (ParseLimitError e) {
+			// good
+		}
+	}
+	
+	private static File writeTempFile(byte[] contents) throws IOException {
+		File file = File.createTempFile("jargparser", ".tmp");
+		file.deleteOnExit();
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			out.write(contents);
+		}
+		return file;
+	}
 
 	private static void assertFail(Runnable r){
 		try{
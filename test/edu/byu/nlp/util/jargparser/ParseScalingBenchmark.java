@@ -0,0 +1,246 @@
+/**
+ * Copyright 2011 Brigham Young University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.byu.nlp.util.jargparser;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import edu.byu.nlp.util.jargparser.annotations.Option;
+import edu.byu.nlp.util.jargparser.annotations.ParserOptions;
+
+/**
+ * Measures how parsing scales with the number of threads. This is not a unit
+ * test; run it on an otherwise idle machine with:
+ * 
+ * <p><blockquote><pre>
+ * 	java edu.byu.nlp.util.jargparser.ParseScalingBenchmark [maxThreads] [seconds]
+ * </pre></blockquote></p>
+ * 
+ * <p>Each run parses realistic command-lines for the given number of seconds, after
+ * a warmup of the same length, in one of three setups: a parser per thread, one
+ * parser shared by all threads (each parse storing into a new target), and
+ * {@link ArgumentParser#parseAll(List, TargetFactory, ForkJoinPool)} with as
+ * many workers as threads. The command-lines either spell out every long option
+ * or abbreviate them to prefixes shared with other options, so that all threads
+ * resolve the same prefixes.</p>
+ * 
+ * <p>For each run, it reports throughput, latency percentiles (per command-line,
+ * or per batch of {@value #BATCH_SIZE} for <code>parseAll</code>) and the bytes
+ * allocated per command-line, where the JVM can measure them.</p>
+ */
+public class ParseScalingBenchmark {
+
+	static final int BATCH_SIZE = 1024;
+	
+	// latencies recorded per thread; later ones are dropped
+	private static final int MAX_SAMPLES = 1 << 18;
+	
+	@ParserOptions(newTargetPerParse=true)
+	public static class Opts {
+		@Option(optStrings="--train-data") String trainData;
+		@Option(optStrings="--train-epochs") int trainEpochs = 10;
+		@Option(optStrings="--train-rate") double trainRate = 0.1;
+		@Option(optStrings="--test-data") String testData;
+		@Option(optStrings={"-t", "--threads"}) int threads = 1;
+		@Option(optStrings={"-v", "--verbose"}, action=Option.COUNT) int verbose;
+		@Option(optStrings="--tag", action=Option.APPEND) List<String> tags;
+		@Option(optStrings="--layers", separator=",") int[] layers;
+		@Option(optStrings="--mode", choices={"fast", "exact"}) String mode = "fast";
+	}
+	
+	static final String[][] FULL = {
+		{"--train-data", "train.txt", "--test-data", "test.txt", "--train-epochs", "20", "-vv"},
+		{"--train-rate", "0.05", "--layers", "512,256,128", "--mode", "exact", "model.bin"},
+		{"--threads", "8", "--tag", "a", "--tag", "b", "--tag", "c", "--train-data=train.txt", "out"},
+		{"-v", "--train-data", "train.txt", "--train-epochs", "5", "--train-rate", "0.5", "--", "-x"},
+	};
+	
+	static final String[][] PREFIXES = {
+		{"--train-d", "train.txt", "--te", "test.txt", "--train-e", "20", "-vv"},
+		{"--train-r", "0.05", "--l", "512,256,128", "--m", "exact", "model.bin"},
+		{"--th", "8", "--ta", "a", "--ta", "b", "--ta", "c", "--train-d=train.txt", "out"},
+		{"-v", "--train-d", "train.txt", "--train-e", "5", "--train-r", "0.5", "--", "-x"},
+	};
+	
+	enum Setup { PARSER_PER_THREAD, SHARED_PARSER, PARSE_ALL }
+	
+	public static void main(String[] args) throws Exception {
+		int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+		double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 2;
+		long nanos = (long) (seconds * 1e9);
+		
+		List<Integer> threadCounts = new ArrayList<Integer>();
+		for (int n = 1; n < maxThreads; n *= 2)
+			threadCounts.add(n);
+		threadCounts.add(maxThreads);
+		
+		System.out.printf("%-18s %-9s %7s %12s %9s %9s %9s %9s %10s%n",
+				"setup", "argv", "threads", "ops/s", "p50 us", "p90 us", "p99 us", "p99.9 us", "bytes/op");
+		for (String[][] argvs : new String[][][] {FULL, PREFIXES}) {
+			for (Setup setup : Setup.values()) {
+				for (int threads : threadCounts) {
+					Result r = run(setup, argvs, threads, nanos);
+					System.out.printf("%-18s %-9s %7d %12.0f %9.1f %9.1f %9.1f %9.1f %10s%n",
+							setup.name().toLowerCase(), argvs == FULL ? "full" : "prefixes", threads,
+							r.opsPerSecond(), r.percentile(0.5), r.percentile(0.9), r.percentile(0.99), r.percentile(0.999),
+							r.bytes < 0 ? "n/a" : String.valueOf(r.bytes / r.ops));
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Warms up for the given time, then measures for the same time.
+	 */
+	static Result run(Setup setup, final String[][] argvs, int threads, long nanos) throws InterruptedException {
+		final Phase phase = new Phase();
+		final ArgumentParser shared = new ArgumentParser(Opts.class);
+		final ForkJoinPool pool = setup == Setup.PARSE_ALL ? new ForkJoinPool(threads) : null;
+		final List<String[]> batch = new ArrayList<String[]>(BATCH_SIZE);
+		for (int i = 0; i < BATCH_SIZE; i++)
+			batch.add(argvs[i % argvs.length]);
+		final TargetFactory<Opts> factory = new TargetFactories.ConstructorFactory<Opts>(Opts.class);
+		
+		Worker[] workers = new Worker[setup == Setup.PARSE_ALL ? 1 : threads];
+		for (int i = 0; i < workers.length; i++) {
+			final ArgumentParser parser = setup == Setup.PARSER_PER_THREAD ? new ArgumentParser(Opts.class) : shared;
+			workers[i] = new Worker(phase, pool == null ? 1 : BATCH_SIZE, i) {
+				@Override
+				void op(int i) {
+					if (pool == null)
+						parser.parseArgs(argvs[i % argvs.length]);
+					else
+						parser.parseAll(batch, factory, pool);
+				}
+			};
+			workers[i].start();
+		}
+		
+		Thread.sleep(nanos / 1000000);
+		long bytes = allocatedBytes();
+		long start = System.nanoTime();
+		phase.value = Phase.MEASURE;
+		Thread.sleep(nanos / 1000000);
+		phase.value = Phase.STOP;
+		long elapsed = System.nanoTime() - start;
+		bytes = bytes < 0 ? -1 : allocatedBytes() - bytes;
+		
+		Result r = new Result(elapsed, bytes);
+		for (Worker w : workers) {
+			w.join();
+			r.add(w);
+		}
+		if (pool != null)
+			pool.shutdown();
+		return r;
+	}
+	
+	/**
+	 * @return the bytes allocated so far by all live threads; -1 if the JVM cannot tell
+	 */
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+		if (!(mx instanceof com.sun.management.ThreadMXBean))
+			return -1;
+		com.sun.management.ThreadMXBean sunMx = (com.sun.management.ThreadMXBean) mx;
+		if (!sunMx.isThreadAllocatedMemorySupported() || !sunMx.isThreadAllocatedMemoryEnabled())
+			return -1;
+		long total = 0;
+		for (long bytes : sunMx.getThreadAllocatedBytes(sunMx.getAllThreadIds())) {
+			if (bytes > 0)
+				total += bytes;
+		}
+		return total;
+	}
+	
+	private static class Phase {
+		static final int WARMUP = 0, MEASURE = 1, STOP = 2;
+		volatile int value = WARMUP;
+	}
+	
+	private static abstract class Worker extends Thread {
+		private final Phase phase;
+		private final int opsPerCall;
+		private final int offset;
+		long ops;
+		long[] latencies = new long[1024];
+		int numLatencies;
+		
+		Worker(Phase phase, int opsPerCall, int offset) {
+			this.phase = phase;
+			this.opsPerCall = opsPerCall;
+			this.offset = offset;
+			setDaemon(true);
+		}
+		
+		abstract void op(int i);
+		
+		@Override
+		public void run() {
+			int p;
+			for (int i = offset; (p = phase.value) != Phase.STOP; i++) {
+				long t0 = System.nanoTime();
+				op(i);
+				long t1 = System.nanoTime();
+				if (p == Phase.MEASURE) {
+					ops += opsPerCall;
+					if (numLatencies < MAX_SAMPLES) {
+						if (numLatencies == latencies.length)
+							latencies = Arrays.copyOf(latencies, latencies.length * 2);
+						latencies[numLatencies++] = t1 - t0;
+					}
+				}
+			}
+		}
+	}
+	
+	private static class Result {
+		final long elapsed;
+		final long bytes;
+		long ops;
+		long[] latencies = new long[0];
+		
+		Result(long elapsed, long bytes) {
+			this.elapsed = elapsed;
+			this.bytes = bytes;
+		}
+		
+		void add(Worker w) {
+			ops += w.ops;
+			int n = latencies.length;
+			latencies = Arrays.copyOf(latencies, n + w.numLatencies);
+			System.arraycopy(w.latencies, 0, latencies, n, w.numLatencies);
+			Arrays.sort(latencies);
+		}
+		
+		double opsPerSecond() {
+			return ops * 1e9 / elapsed;
+		}
+		
+		/**
+		 * @return the latency at the given percentile, in microseconds
+		 */
+		double percentile(double p) {
+			if (latencies.length == 0)
+				return Double.NaN;
+			int i = (int) Math.min(latencies.length - 1, Math.ceil(p * latencies.length) - 1);
+			return latencies[Math.max(i, 0)] / 1e3;
+		}
+	}
+}